@@ -0,0 +1,80 @@
+package cn.lycodeing.benchmark;
+
+import cn.lycodeing.request.Identifier;
+import cn.lycodeing.request.Payload;
+import cn.lycodeing.request.ProtectedHeader;
+import cn.lycodeing.response.ChallengesResponse;
+import cn.lycodeing.response.OrderResponse;
+import cn.lycodeing.utils.GsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求的 Base64url 编码与响应的 JSON 解析开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final String ORDER_JSON = "{\"status\":\"pending\",\"expires\":\"2026-01-01T00:00:00Z\","
+            + "\"identifiers\":[{\"type\":\"dns\",\"value\":\"example.com\"},{\"type\":\"dns\",\"value\":\"www.example.com\"}],"
+            + "\"authorizations\":[\"https://acme.example.com/acme/authz/1\",\"https://acme.example.com/acme/authz/2\"],"
+            + "\"finalize\":\"https://acme.example.com/acme/finalize/1\"}";
+
+    private static final String AUTHORIZATION_JSON = "{\"status\":\"pending\",\"expires\":\"2026-01-01T00:00:00Z\","
+            + "\"identifier\":{\"type\":\"dns\",\"value\":\"example.com\"},\"challenges\":["
+            + "{\"type\":\"http-01\",\"status\":\"pending\",\"url\":\"https://acme.example.com/acme/chall/1\",\"token\":\"DGyRejmCefe7v4NfDGDKfA\"},"
+            + "{\"type\":\"dns-01\",\"status\":\"pending\",\"url\":\"https://acme.example.com/acme/chall/2\",\"token\":\"DGyRejmCefe7v4NfDGDKfA\"}]}";
+
+    private ProtectedHeader header;
+
+    private Payload payload;
+
+    private byte[] orderBytes;
+
+    @Setup
+    public void setUp() {
+        header = ProtectedHeader.builder()
+                .alg("RS256")
+                .kid("https://acme.example.com/acme/acct/123456789")
+                .nonce("zincDUb4Q9Zn5Hpk0kCeLR8ymV_9rbf0hgb1MiNUTULhwd0")
+                .url("https://acme.example.com/acme/new-order")
+                .build();
+        orderBytes = ORDER_JSON.getBytes(StandardCharsets.UTF_8);
+        payload = new Payload(Arrays.asList(new Identifier("dns", "example.com"), new Identifier("dns", "www.example.com")));
+    }
+
+    @Benchmark
+    public String encodeHeader() {
+        return header.base64UrlEncode();
+    }
+
+    @Benchmark
+    public String encodePayload() {
+        return payload.base64UrlEncode();
+    }
+
+    @Benchmark
+    public OrderResponse decodeOrder() {
+        return GsonUtils.fromJson(ORDER_JSON, OrderResponse.class);
+    }
+
+    @Benchmark
+    public OrderResponse decodeOrderStream() {
+        return GsonUtils.fromJson(new InputStreamReader(new ByteArrayInputStream(orderBytes), StandardCharsets.UTF_8), OrderResponse.class);
+    }
+
+    @Benchmark
+    public ChallengesResponse decodeAuthorization() {
+        return GsonUtils.fromJson(AUTHORIZATION_JSON, ChallengesResponse.class);
+    }
+}
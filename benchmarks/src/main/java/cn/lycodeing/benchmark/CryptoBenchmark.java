@@ -0,0 +1,55 @@
+package cn.lycodeing.benchmark;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.request.Jwk;
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.CryptoUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密钥生成、CSR 生成、JWK 与指纹计算的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyTypeEnum keyType;
+
+    private KeyPair keyPair;
+
+    private Jwk jwk;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = CryptoUtils.generateKeyPair(keyType);
+        jwk = AcmeUtils.publicKeyToJwk(keyPair.getPublic());
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() throws Exception {
+        return CryptoUtils.generateKeyPair(keyType);
+    }
+
+    @Benchmark
+    public String generateCsr() throws Exception {
+        return CryptoUtils.generateCsr("example.com", keyPair);
+    }
+
+    @Benchmark
+    public Jwk publicKeyToJwk() throws Exception {
+        return AcmeUtils.publicKeyToJwk(keyPair.getPublic());
+    }
+
+    @Benchmark
+    public String thumbprint() {
+        return AcmeUtils.generateThumbprint(jwk);
+    }
+}
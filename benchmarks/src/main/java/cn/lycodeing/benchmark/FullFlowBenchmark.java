@@ -0,0 +1,68 @@
+package cn.lycodeing.benchmark;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.poll.PollPolicy;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 针对本地 MockAcmeServer 的完整签发流程：newOrder → 验证 → finalize → 下载证书
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FullFlowBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private MockAcmeServer server;
+
+    private AcmeClient account;
+
+    private Path outputDir;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        account = new AcmeClient(server.getDirectoryUrl());
+        account.setDnsPropagationChecker(null);
+        // The mock validates instantly, keep the poll delay from dominating the measurement
+        account.setPollPolicy(PollPolicy.builder().initialDelay(Duration.ofMillis(5)).build());
+        account.createAccount("bench@example.com");
+        outputDir = Files.createTempDirectory("acme-bench");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        File[] files = outputDir.toFile().listFiles();
+        if (files != null) {
+            Arrays.stream(files).forEach(File::delete);
+        }
+        outputDir.toFile().delete();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AcmeClient issue() throws Exception {
+        long id = sequence.incrementAndGet();
+        AcmeClient client = account.fork();
+        client.newOrder(Arrays.asList("host" + id + ".example.com"));
+        client.validateOrder();
+        client.finalizeOrder(client.getFinalizeOrderUrl());
+        client.getOrder();
+        client.getCertificate(outputDir.resolve(id + ".pem").toString(), outputDir.resolve(id + ".key").toString());
+        return client;
+    }
+}
@@ -0,0 +1,61 @@
+package cn.lycodeing.benchmark;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.jws.JwsBuilder;
+import cn.lycodeing.request.Identifier;
+import cn.lycodeing.request.Jws;
+import cn.lycodeing.request.Payload;
+import cn.lycodeing.request.ProtectedHeader;
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.GsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比逐步编码的 JWS 与 JwsBuilder，建议带上 -prof gc 查看每次分配量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwsBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyTypeEnum keyType;
+
+    private KeyPair keyPair;
+
+    private ProtectedHeader header;
+
+    private Payload payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = CryptoUtils.generateKeyPair(keyType);
+        header = ProtectedHeader.builder()
+                .alg(cn.lycodeing.enums.JwsAlgorithmEnum.of(keyPair.getPrivate()).getAlg())
+                .kid("https://acme.example.com/acme/acct/123456789")
+                .nonce("zincDUb4Q9Zn5Hpk0kCeLR8ymV_9rbf0hgb1MiNUTULhwd0")
+                .url("https://acme.example.com/acme/new-order")
+                .build();
+        payload = new Payload(Arrays.asList(new Identifier("dns", "example.com"), new Identifier("dns", "www.example.com")));
+    }
+
+    @Benchmark
+    public byte[] gsonPipeline() throws Exception {
+        Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), header.base64UrlEncode(), payload.base64UrlEncode());
+        return GsonUtils.toJson(jws).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jwsBuilder() throws Exception {
+        return JwsBuilder.sign(keyPair.getPrivate(), header, payload);
+    }
+}
@@ -1,26 +1,68 @@
 package cn.lycodeing;
 
+import cn.lycodeing.account.AccountStore;
+import cn.lycodeing.account.StoredAccount;
+import cn.lycodeing.authorization.AuthorizationCache;
+import cn.lycodeing.authorization.CachedAuthorization;
+import cn.lycodeing.challenge.ChallengeFailedException;
+import cn.lycodeing.challenge.ChallengeSolver;
+import cn.lycodeing.challenge.DnsChallengeSolver;
+import cn.lycodeing.challenge.PendingChallenge;
 import cn.lycodeing.consts.AcmeConsts;
+import cn.lycodeing.directory.DirectoryCache;
+import cn.lycodeing.dns.DnsPropagationChecker;
+import cn.lycodeing.enums.AcmeErrorTypeEnum;
 import cn.lycodeing.enums.ChallengeStatusEnum;
-import cn.lycodeing.enums.ChallengeTypeEnum;
+import cn.lycodeing.enums.JwsAlgorithmEnum;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.enums.OrderStateEnum;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.jws.JwsBuilder;
+import cn.lycodeing.key.KeyPairPool;
+import cn.lycodeing.metrics.MetricNames;
+import cn.lycodeing.metrics.MetricsRegistry;
+import cn.lycodeing.nonce.NoncePool;
+import cn.lycodeing.ocsp.OcspCache;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.order.JournaledOrder;
+import cn.lycodeing.order.OrderJournal;
+import cn.lycodeing.order.OrderSession;
+import cn.lycodeing.poll.PollPolicy;
+import cn.lycodeing.poll.PollResult;
+import cn.lycodeing.poll.Poller;
+import cn.lycodeing.ratelimit.RateLimitedException;
 import cn.lycodeing.request.*;
+import cn.lycodeing.response.AcmeProblemException;
 import cn.lycodeing.response.Challenge;
 import cn.lycodeing.response.ChallengesResponse;
 import cn.lycodeing.response.OrderResponse;
+import cn.lycodeing.response.ProblemResponse;
+import cn.lycodeing.response.RenewalInfoResponse;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
 import cn.lycodeing.utils.*;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.PrivateKey;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,6 +73,15 @@ import static cn.lycodeing.utils.AcmeUtils.generateThumbprint;
  * <p>
  * Handles ACME protocol operations, such as account creation, order creation, challenge validation, and certificate retrieval.
  * </p>
+ * <p>
+ * The step methods ({@link #newOrder}, {@link #validateOrder}, ...) keep the state of one order in
+ * this instance. To run many orders at once, configure the client and create the account once,
+ * then call {@link #issue(List)} or {@link #newSession()} from any thread: every
+ * {@link OrderSession} works on its own {@link #fork()} and only reads the account and directory
+ * state shared with this client. Blocking steps run on the {@code executor}; set it to
+ * {@link ThreadUtils#newVirtualThreadExecutor(String)} (or the system property
+ * {@code acme.virtual.threads=true}) to drive thousands of orders on virtual threads.
+ * </p>
  *
  * @author lycodeing
  */
@@ -38,58 +89,238 @@ import static cn.lycodeing.utils.AcmeUtils.generateThumbprint;
 @Getter
 public class AcmeClient {
     private static final Logger logger = LogManager.getLogger(AcmeClient.class);
-    private static final String DIRECTORY_URL = "https://acme-staging-v02.api.letsencrypt.org/directory";
+    /**
+     * 默认目录 URL，可通过系统属性 acme.directory.url 或环境变量 ACME_DIRECTORY_URL 指定，缺省为 Let's Encrypt 测试环境
+     */
+    public static final String DEFAULT_DIRECTORY_URL = System.getProperty("acme.directory.url",
+            Optional.ofNullable(System.getenv("ACME_DIRECTORY_URL")).orElse(AcmeConsts.LETS_ENCRYPT_STAGING));
+    private static final ExecutorService DEFAULT_EXECUTOR = Boolean.getBoolean("acme.virtual.threads")
+            ? ThreadUtils.newVirtualThreadExecutor("acme-worker")
+            : Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("acme-worker"));
 
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
-    // ACME directory data (URLs)
-    private Directory directory;
+    // ACME directory URL
+    private final String directoryUrl;
+    // HTTP transport shared by all forks of this client
+    private final HttpTransport transport;
+    // Loads and caches the directory of directoryUrl on first use
+    private DirectoryCache directoryCache = DirectoryCache.shared();
     // Account key pair
     private KeyPair keyPair;
+    // Type of the account key, EC keys are signed with ES256/ES384
+    private KeyTypeEnum accountKeyType = KeyTypeEnum.RSA_2048;
     // Domain key pair for CSR
     private KeyPair domainKeyPair;
+    // Type of the domain key, used when no key pool is configured
+    private KeyTypeEnum domainKeyType = KeyTypeEnum.RSA_2048;
+    // Pre-generated domain keys, null generates a key per order
+    private KeyPairPool domainKeyPool;
     // JWK for account key pair
     private Jwk jwk;
     // Key Identifier (Account ID)
     private String kid;
+    // Persists the account key and kid across restarts, null keeps the account in memory only
+    private AccountStore accountStore;
     // Thumbprint for account
     private String thumbprint;
+    // Domains of the current order
+    private List<String> domains;
+    // URL of the current order
+    private String orderUrl;
     // Authorization URLs
     private List<String> authorizations;
     // Finalize URL for order
     private String finalizeOrderUrl;
     // Retrieved certificate
     private String certificate;
+    // Write-ahead journal of order state, pending orders are resumed after a restart; null keeps orders in memory only
+    private OrderJournal orderJournal;
+    // Journal record of the current order
+    private JournaledOrder journaledOrder;
+    // Stores issued certificates per order, null writes cert.pem and private.key to the working directory
+    private CertificateStore certificateStore;
+    // Prefetches OCSP responses of stored certificates, null leaves stapling to the TLS frontends
+    private OcspCache ocspCache;
+    // Executor running the blocking steps of orders, e.g. challenge solvers, finalize and issue()
+    private ExecutorService executor = DEFAULT_EXECUTOR;
+    // Checks TXT record propagation before triggering dns-01 challenges, null skips the check
+    private DnsPropagationChecker dnsPropagationChecker = new DnsPropagationChecker();
+    // Challenge solvers in order of preference, null solves dns-01 with dnsPropagationChecker
+    private List<ChallengeSolver> challengeSolvers;
+    // Valid authorizations of earlier orders, skipped without fetching them; null always fetches
+    private AuthorizationCache authorizationCache;
+    // Polls challenges and orders without holding a thread
+    private Poller poller = new Poller();
+    private PollPolicy pollPolicy = PollPolicy.defaults();
+    // Replay-Nonce cache
+    private NoncePool noncePool;
+    // Step latencies, in-flight counts and ACME error counters, see MetricNames
+    private MetricsRegistry metrics = MetricsRegistry.NOOP;
 
     public AcmeClient() {
-        try {
-            initDirectories();
-        } catch (Exception e) {
-            logger.error("Failed to initialize directories", e);
+        this(DEFAULT_DIRECTORY_URL);
+    }
+
+    /**
+     * @param directoryUrl ACME 目录 URL
+     */
+    public AcmeClient(String directoryUrl) {
+        this(directoryUrl, HttpUtil.getDefaultTransport());
+    }
+
+    /**
+     * @param directoryUrl ACME 目录 URL
+     * @param transport    HTTP 传输层，如 {@link cn.lycodeing.http.ApacheHttpTransport} 或 {@link cn.lycodeing.http.JdkHttpTransport}
+     */
+    public AcmeClient(String directoryUrl, HttpTransport transport) {
+        this.directoryUrl = directoryUrl;
+        this.transport = transport;
+        this.noncePool = new NoncePool(() -> {
+            try {
+                return getDirectory().getNewNonce();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, transport);
+    }
+
+    private AcmeClient(AcmeClient account) {
+        this.directoryUrl = account.directoryUrl;
+        this.transport = account.transport;
+        this.directoryCache = account.directoryCache;
+        this.keyPair = account.keyPair;
+        this.accountKeyType = account.accountKeyType;
+        this.jwk = account.jwk;
+        this.kid = account.kid;
+        this.accountStore = account.accountStore;
+        this.certificateStore = account.certificateStore;
+        this.ocspCache = account.ocspCache;
+        this.orderJournal = account.orderJournal;
+        this.thumbprint = account.thumbprint;
+        this.noncePool = account.noncePool;
+        this.executor = account.executor;
+        this.dnsPropagationChecker = account.dnsPropagationChecker;
+        this.challengeSolvers = account.challengeSolvers;
+        this.authorizationCache = account.authorizationCache;
+        this.poller = account.poller;
+        this.pollPolicy = account.pollPolicy;
+        this.domainKeyType = account.domainKeyType;
+        this.domainKeyPool = account.domainKeyPool;
+        this.metrics = account.metrics;
+    }
+
+    /**
+     * 复制账户和目录信息创建新的客户端，订单状态互不影响，用于并发处理多个订单
+     */
+    public AcmeClient fork() {
+        return new AcmeClient(this);
+    }
+
+    /**
+     * 创建独立的订单会话，复制当前账户和配置，之后修改本客户端的配置不影响该会话
+     */
+    public OrderSession newSession() {
+        return new OrderSession(this);
+    }
+
+    /**
+     * 异步签发证书，可以在多个线程中同时调用
+     *
+     * @param domains 证书包含的域名
+     */
+    public CompletableFuture<IssuedCertificate> issue(List<String> domains) {
+        return newSession().issue(domains, null);
+    }
+
+    /**
+     * 异步签发续期证书
+     *
+     * @param replaces 被替换证书的 ARI 标识，为 null 时创建普通订单
+     */
+    public CompletableFuture<IssuedCertificate> issue(List<String> domains, String replaces) {
+        return newSession().issue(domains, replaces);
+    }
+
+    /**
+     * 在独立的会话中继续订单日志里本账户未完成的订单，每个订单从其在 CA 上的当前状态继续
+     */
+    public List<CompletableFuture<IssuedCertificate>> resumePendingOrders() {
+        if (orderJournal == null) {
+            return Collections.emptyList();
         }
+        return orderJournal.getPending(kid).stream()
+                .map(order -> newSession().resume(order))
+                .collect(Collectors.toList());
     }
 
     // ========================== Account Management ==========================
 
     /**
-     * 创建ACME账号
+     * 创建ACME账号，配置了账户存储时优先复用已保存的账户
      */
     public void createAccount(String email) throws Exception {
-        logger.info("Creating ACME account, email:{}", email);
-        keyPair = CryptoUtils.generateKeyPair();
-        jwk = AcmeUtils.publicKeyToJwk(keyPair.getPublic());
-        Payload payload = new Payload(email, true);
-        ProtectedHeader protectedHeader = ProtectedHeader.builder()
-                .alg("RS256")
-                .jwk(jwk)
-                .kid(kid)
-                .nonce(getNonce())
-                .url(directory.getNewAccount())
-                .build();
-        String payloadBase64 = payload.base64UrlEncode();
-        String protectedHeaderBase64 = protectedHeader.base64UrlEncode();
-        Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), protectedHeaderBase64, payloadBase64);
-        HttpUtil.Response response = HttpUtil.sendHttpPost(directory.getNewAccount(), jws, AcmeConsts.ACME_HEADER);
-        this.kid = response.getHeader(AcmeConsts.LOCATION);
+        StoredAccount stored = accountStore != null ? accountStore.load(directoryUrl, email) : null;
+        if (stored != null) {
+            keyPair = stored.toKeyPair();
+            accountKeyType = stored.getKeyType();
+            jwk = stored.getJwk();
+            thumbprint = stored.getThumbprint();
+            kid = stored.getKid();
+            if (kid != null) {
+                logger.info("Using stored ACME account {}", kid);
+                return;
+            }
+            if (findExistingAccount()) {
+                logger.info("Found existing ACME account {} for stored key", kid);
+                saveAccount(email);
+                return;
+            }
+        } else {
+            logger.info("Creating ACME account, email:{}", email);
+            long keyStart = metrics.start(MetricNames.KEY_GENERATION);
+            keyPair = CryptoUtils.generateKeyPair(accountKeyType);
+            metrics.stop(MetricNames.KEY_GENERATION, keyStart);
+            jwk = AcmeUtils.publicKeyToJwk(keyPair.getPublic());
+            thumbprint = generateThumbprint(jwk);
+            // Store the key before registering, a lost response is then recovered with onlyReturnExisting
+            saveAccount(email);
+        }
+        long start = metrics.start(MetricNames.NEW_ACCOUNT);
+        HttpUtil.Response response;
+        try {
+            response = postJws(getDirectory().getNewAccount(), new Payload(email, true), true, null);
+        } finally {
+            metrics.stop(MetricNames.NEW_ACCOUNT, start);
+        }
+        String location = response.getHeader(AcmeConsts.LOCATION);
+        if (location == null) {
+            throw new IOException("Failed to create ACME account: " + response.getStatusCode() + " " + response.getContent());
+        }
+        this.kid = location;
+        saveAccount(email);
+    }
+
+    /**
+     * 使用 onlyReturnExisting 按当前密钥查询账户 URL
+     *
+     * @return 账户存在时返回 true 并设置 kid
+     */
+    private boolean findExistingAccount() throws Exception {
+        HttpUtil.Response response = postJws(getDirectory().getNewAccount(), Payload.onlyReturnExisting(), true, null);
+        if (response.isProblem(AcmeErrorTypeEnum.ACCOUNT_DOES_NOT_EXIST)) {
+            return false;
+        }
+        String location = response.getHeader(AcmeConsts.LOCATION);
+        if (response.getStatusCode() != 200 || location == null) {
+            throw new IOException("Failed to look up ACME account: " + response.getStatusCode() + " " + response.getContent());
+        }
+        this.kid = location;
+        return true;
+    }
+
+    private void saveAccount(String email) throws IOException {
+        if (accountStore != null) {
+            accountStore.save(StoredAccount.of(directoryUrl, email, accountKeyType, keyPair, jwk, thumbprint, kid));
+        }
     }
 
     // ========================== Order Management ==========================
@@ -100,94 +331,419 @@ public class AcmeClient {
      * @param domains List of domain names to be included in the order
      */
     public void newOrder(List<String> domains) throws Exception {
+        newOrder(domains, null);
+    }
+
+    /**
+     * 创建续期订单
+     *
+     * @param domains  List of domain names to be included in the order
+     * @param replaces 被替换证书的 ARI 标识，为 null 时创建普通订单
+     */
+    public void newOrder(List<String> domains, String replaces) throws Exception {
         logger.info("Creating new order, domains: {}", domains);
         List<Identifier> identifiers = domains.stream()
                 .map(domain -> new Identifier("dns", domain))
                 .collect(Collectors.toList());
 
         Payload payload = new Payload(identifiers);
-        ProtectedHeader protectedHeader = ProtectedHeader.builder()
-                .alg("RS256")
-                .kid(kid)
-                .nonce(getNonce())
-                .url(directory.getNewOrder())
-                .build();
-
-        String payloadBase64 = payload.base64UrlEncode();
-        String protectedHeaderBase64 = protectedHeader.base64UrlEncode();
-        Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), protectedHeaderBase64, payloadBase64);
-        HttpUtil.Response response = HttpUtil.sendHttpPost(directory.getNewOrder(), jws, AcmeConsts.ACME_HEADER);
+        payload.setReplaces(replaces);
+        long start = metrics.start(MetricNames.NEW_ORDER);
+        HttpUtil.Response response;
+        try {
+            response = postJws(getDirectory().getNewOrder(), payload, false, OrderResponse.class);
+        } finally {
+            metrics.stop(MetricNames.NEW_ORDER, start);
+        }
+        checkProblem(getDirectory().getNewOrder(), response);
         OrderResponse orderResponse = response.getContent(OrderResponse.class);
+        this.domains = domains;
+        this.orderUrl = response.getHeader(AcmeConsts.LOCATION);
         this.finalizeOrderUrl = orderResponse.getFinalize();
         this.authorizations = orderResponse.getAuthorizations();
+        this.certificate = null;
+        this.journaledOrder = null;
+        if (orderJournal != null && orderUrl != null) {
+            JournaledOrder order = new JournaledOrder();
+            order.setAccount(kid);
+            order.setOrderUrl(orderUrl);
+            order.setDomains(domains);
+            order.setReplaces(replaces);
+            order.setAuthorizations(authorizations);
+            order.setFinalizeUrl(finalizeOrderUrl);
+            order.setExpires(parseTimestamp(orderResponse.getExpires()));
+            this.journaledOrder = order;
+            recordOrder(OrderStateEnum.CREATED);
+        }
+    }
+
+    /**
+     * 从订单日志的记录恢复订单状态，之后可以继续验证、完成订单或下载证书
+     */
+    public void restoreOrder(JournaledOrder order) throws GeneralSecurityException {
+        this.domainKeyPair = order.toKeyPair();
+        this.journaledOrder = order;
+        this.orderUrl = order.getOrderUrl();
+        this.domains = order.getDomains();
+        this.authorizations = order.getAuthorizations();
+        this.finalizeOrderUrl = order.getFinalizeUrl();
+        this.certificate = null;
+    }
+
+    /**
+     * 重新获取当前订单，更新授权列表和证书地址；订单已失效时记录到订单日志并失败
+     */
+    public CompletableFuture<OrderResponse> refreshOrderAsync() {
+        String url = orderUrl;
+        return getAsync(url, OrderResponse.class).thenApply(response -> {
+            OrderResponse orderResponse = response.getContent(OrderResponse.class);
+            if (response.getStatusCode() == 404 || orderResponse != null
+                    && ChallengeStatusEnum.INVALID.getStatus().equalsIgnoreCase(orderResponse.getStatus())) {
+                completeOrder(OrderStateEnum.FAILED);
+                throw new RuntimeException("Order " + url + " is no longer valid: " + response.getStatusCode() + " " + response.getContent());
+            }
+            if (response.getStatusCode() != 200 || orderResponse == null) {
+                throw new CompletionException(new IOException("Failed to get order " + url + ": "
+                        + response.getStatusCode() + " " + response.getContent()));
+            }
+            this.authorizations = orderResponse.getAuthorizations();
+            this.finalizeOrderUrl = orderResponse.getFinalize();
+            this.certificate = orderResponse.getCertificate();
+            return orderResponse;
+        });
+    }
+
+    /**
+     * 证书已保存，从订单日志中移除当前订单
+     */
+    public void completeOrder() {
+        completeOrder(OrderStateEnum.COMPLETED);
+    }
+
+    /**
+     * 记录当前订单的状态，写入磁盘后返回
+     */
+    private void recordOrder(OrderStateEnum state) throws IOException {
+        journaledOrder.setState(state);
+        orderJournal.record(journaledOrder);
+    }
+
+    /**
+     * 记录订单结束，写入失败时重启后会从 CA 查询到同样的结果，只记录警告
+     */
+    private void completeOrder(OrderStateEnum state) {
+        if (journaledOrder == null) {
+            return;
+        }
+        try {
+            recordOrder(state);
+        } catch (IOException e) {
+            logger.warn("Failed to journal order {} as {}", orderUrl, state, e);
+        }
+        journaledOrder = null;
+    }
+
+    // ========================== Renewal Information ==========================
+
+    /**
+     * 查询证书的建议续期窗口 (RFC 9773)
+     *
+     * @param certId 证书的 ARI 标识，见 {@link AcmeUtils#renewalCertId}
+     * @return CA 不支持 ARI 或不认识该证书时返回 null
+     */
+    public RenewalInfoResponse getRenewalInfo(String certId) throws IOException {
+        String renewalInfo = getDirectory().getRenewalInfo();
+        if (renewalInfo == null || certId == null) {
+            return null;
+        }
+        HttpUtil.Response response = get(renewalInfo + "/" + certId, RenewalInfoResponse.class);
+        if (response.getStatusCode() == 404) {
+            return null;
+        }
+        RenewalInfoResponse info = response.getContent(RenewalInfoResponse.class);
+        if (response.getStatusCode() != 200 || info == null || info.getSuggestedWindow() == null) {
+            throw new IOException("Failed to get renewal info " + certId + ": " + response.getStatusCode() + " " + response.getContent());
+        }
+        info.setRetryAfter(AcmeUtils.parseRetryAfter(response.getHeader(AcmeConsts.RETRY_AFTER)));
+        return info;
     }
 
     // ========================== Challenge Validation ==========================
 
     /**
-     * 验证订单挑战
+     * 验证订单挑战，所有授权并发获取，同一处理器的挑战批量部署后一起触发，全部完成后返回
      */
     public void validateOrder() throws IOException {
-        for (String authorization : this.getAuthorizations()) {
-            HttpUtil.Response response = HttpUtil.sendHttpGet(authorization);
+        validateOrders(Collections.singletonList(this));
+        logger.info("Order validation completed");
+    }
+
+    /**
+     * 同时验证多个订单（通常是同一账户 fork 出的客户端），所有订单的挑战按处理器合并为一批，
+     * 如 DNS-01 只发布一次记录、等待一次生效
+     */
+    public static void validateOrders(Collection<AcmeClient> clients) throws IOException {
+        await(validateOrdersAsync(clients));
+    }
+
+    /**
+     * 异步验证订单挑战，获取授权和轮询期间不占用线程
+     */
+    public CompletableFuture<Void> validateOrderAsync() {
+        return validateOrdersAsync(Collections.singletonList(this));
+    }
+
+    /**
+     * {@link #validateOrders(Collection)} 的异步版本
+     */
+    public static CompletableFuture<Void> validateOrdersAsync(Collection<AcmeClient> clients) {
+        List<CompletableFuture<SelectedChallenge>> selections = new ArrayList<>();
+        for (AcmeClient client : clients) {
+            for (String authorization : client.getAuthorizations()) {
+                selections.add(client.selectChallengeAsync(authorization));
+            }
+        }
+        return CompletableFuture.allOf(selections.toArray(new CompletableFuture<?>[0])).thenCompose(selected -> {
+            Map<ChallengeSolver, List<SelectedChallenge>> bySolver = new LinkedHashMap<>();
+            for (CompletableFuture<SelectedChallenge> selection : selections) {
+                SelectedChallenge challenge = selection.join();
+                if (challenge != null) {
+                    bySolver.computeIfAbsent(challenge.solver, key -> new ArrayList<>()).add(challenge);
+                }
+            }
+            return CompletableFuture.allOf(bySolver.entrySet().stream()
+                    .map(entry -> solveChallengesAsync(entry.getKey(), entry.getValue()))
+                    .toArray(CompletableFuture<?>[]::new));
+        });
+    }
+
+    /**
+     * 获取单个授权并选出第一个可用的处理器及其挑战，已生效或缓存中有效的授权返回 null
+     */
+    private CompletableFuture<SelectedChallenge> selectChallengeAsync(String authorization) {
+        CachedAuthorization cached = authorizationCache != null ? authorizationCache.findByUrl(kid, authorization) : null;
+        if (cached != null) {
+            logger.info("Authorization cached as valid until {}, domain: {}", Instant.ofEpochMilli(cached.getExpires()), cached.getIdentifier());
+            metrics.increment(MetricNames.AUTHORIZATION_CACHED);
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = metrics.start(MetricNames.AUTHORIZATION);
+        return getAsync(authorization, ChallengesResponse.class).whenComplete((response, error) ->
+                metrics.stop(MetricNames.AUTHORIZATION, start)
+        ).thenApply(response -> {
             ChallengesResponse challengesResponse = response.getContent(ChallengesResponse.class);
+            String domain = challengesResponse.getDomain();
+            if (ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(challengesResponse.getStatus())) {
+                logger.info("Authorization already valid, domain: {}", domain);
+                cacheAuthorization(authorization, challengesResponse);
+                return null;
+            }
+            forgetAuthorization(domain);
+            for (ChallengeSolver solver : getEffectiveChallengeSolvers()) {
+                if (!solver.supports(domain)) {
+                    continue;
+                }
+                for (Challenge challenge : challengesResponse.getChallenges()) {
+                    if (solver.getType().getType().equals(challenge.getType())) {
+                        String keyAuthorization = challenge.getToken() + "." + getThumbprint();
+                        return new SelectedChallenge(this, authorization, solver, new PendingChallenge(domain, challenge, keyAuthorization));
+                    }
+                }
+            }
+            throw new RuntimeException("No challenge solver for " + domain);
+        });
+    }
+
+    /**
+     * 批量部署挑战响应、一起触发验证，全部结束后批量清理
+     */
+    private static CompletableFuture<Void> solveChallengesAsync(ChallengeSolver solver, List<SelectedChallenge> selected) {
+        List<PendingChallenge> challenges = selected.stream().map(s -> s.challenge).collect(Collectors.toList());
+        AcmeClient first = selected.get(0).client;
+        // Solvers may block, e.g. on DNS propagation, so they run on the executor rather than the I/O thread
+        return CompletableFuture.runAsync(() -> {
+            long start = first.metrics.start(MetricNames.CHALLENGE_PREPARE);
+            try {
+                solver.prepareAll(challenges);
+            } catch (Exception e) {
+                throw new RuntimeException(solver.getType().getType() + " challenge preparation failed for "
+                        + challenges.stream().map(PendingChallenge::getDomain).collect(Collectors.toList()), e);
+            } finally {
+                first.metrics.stop(MetricNames.CHALLENGE_PREPARE, start);
+            }
+        }, first.executor).thenCompose(ignored -> CompletableFuture.allOf(selected.stream()
+                .map(s -> s.client.validateChallengesAsync(s.challenge.getChallenge().getUrl(), s.challenge.getDomain())
+                        .thenRun(() -> logger.info("Challenge validation completed, domain: {}", s.challenge.getDomain()))
+                        .thenCompose(validated -> s.client.refreshAuthorizationCacheAsync(s.authorizationUrl)))
+                .toArray(CompletableFuture<?>[]::new))
+        ).whenComplete((result, error) -> {
+            try {
+                solver.cleanupAll(challenges);
+            } catch (Exception e) {
+                logger.warn("Failed to clean up {} challenges", solver.getType().getType(), e);
+            }
+        });
+    }
 
-            for (Challenge challenge : challengesResponse.getChallenges()) {
-                if (ChallengeTypeEnum.DNS.getType().equals(challenge.getType())) {
-                    handleDnsChallenge(challenge, challengesResponse);
+    /**
+     * 选定的挑战及其所属客户端和处理器
+     */
+    private static class SelectedChallenge {
+        final AcmeClient client;
+        final String authorizationUrl;
+        final ChallengeSolver solver;
+        final PendingChallenge challenge;
+
+        SelectedChallenge(AcmeClient client, String authorizationUrl, ChallengeSolver solver, PendingChallenge challenge) {
+            this.client = client;
+            this.authorizationUrl = authorizationUrl;
+            this.solver = solver;
+            this.challenge = challenge;
+        }
+    }
+
+    /**
+     * 挑战验证通过后重新获取授权，记录其过期时间
+     */
+    private CompletableFuture<Void> refreshAuthorizationCacheAsync(String authorization) {
+        if (authorizationCache == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getAsync(authorization, ChallengesResponse.class).handle((response, error) -> {
+            if (error != null) {
+                logger.warn("Failed to refresh authorization {}", authorization, error);
+            } else {
+                ChallengesResponse challengesResponse = response.getContent(ChallengesResponse.class);
+                if (challengesResponse != null && ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(challengesResponse.getStatus())) {
+                    cacheAuthorization(authorization, challengesResponse);
                 }
             }
-            logger.info("Challenge validation completed");
+            return null;
+        });
+    }
+
+    /**
+     * 记录已生效的授权，缓存写入失败不影响验证
+     */
+    private void cacheAuthorization(String authorization, ChallengesResponse response) {
+        if (authorizationCache == null || kid == null || response.getExpires() == null) {
+            return;
+        }
+        try {
+            long expires = parseTimestamp(response.getExpires());
+            if (expires > 0) {
+                authorizationCache.put(new CachedAuthorization(kid, response.getDomain(), authorization, expires));
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to cache authorization {}", authorization, e);
+        }
+    }
+
+    /**
+     * 解析 RFC 3339 时间，为空或格式错误时返回 0
+     */
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid timestamp {}", timestamp);
+            return 0;
         }
     }
 
     /**
-     * 处理 DNS-01 挑战
+     * CA 要求重新验证时删除缓存中该域名的授权
      */
-    private void handleDnsChallenge(Challenge challenge, ChallengesResponse challengesResponse) {
+    private void forgetAuthorization(String domain) {
+        if (authorizationCache == null || authorizationCache.get(kid, domain) == null) {
+            return;
+        }
         try {
-            logger.info("Validating DNS-01 challenge for domain: {}" , challengesResponse.getIdentifier().getValue());
-            logger.info("Challenge URL: {}", challenge.getUrl());
-            logger.info("DNS TXT Record Value: {}", challenge.getDigest(generateThumbprint(jwk)));
-            logger.info("请绑定该dns记录");
-            // Wait for DNS propagation
-            Thread.sleep(1000 * 20);
-            validateChallenges(challenge.getUrl());
-        } catch (Exception e) {
-            throw new RuntimeException("DNS Challenge validation failed", e);
+            authorizationCache.remove(kid, domain);
+        } catch (IOException e) {
+            logger.warn("Failed to remove cached authorization of {}", domain, e);
         }
     }
 
     /**
-     * 递归验证挑战状态
+     * 未配置处理器时使用 DNS-01，并沿用 dnsPropagationChecker
+     */
+    private List<ChallengeSolver> getEffectiveChallengeSolvers() {
+        return challengeSolvers != null ? challengeSolvers
+                : Collections.singletonList(new DnsChallengeSolver(dnsPropagationChecker));
+    }
+
+    /**
+     * 验证挑战并等待结果
      */
     public void validateChallenges(String url) {
         try {
-            Payload payload = new Payload();
-            String payloadBase64 = payload.base64UrlEncode();
-            ProtectedHeader protectedHeader = ProtectedHeader.builder()
-                    .alg("RS256")
-                    .kid(kid)
-                    .nonce(getNonce())
-                    .url(url)
-                    .build();
-            String protectedHeaderBase64 = protectedHeader.base64UrlEncode();
-            Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), protectedHeaderBase64, payloadBase64);
-            HttpUtil.Response response = HttpUtil.sendHttpPost(url, jws, AcmeConsts.ACME_HEADER);
+            await(validateChallengesAsync(url));
+        } catch (IOException e) {
+            throw new RuntimeException("Challenge validation error", e);
+        }
+    }
+
+    /**
+     * 触发挑战验证并轮询其状态，轮询期间不占用线程
+     */
+    public CompletableFuture<Challenge> validateChallengesAsync(String url) {
+        return validateChallengesAsync(url, null);
+    }
+
+    /**
+     * @param domain 挑战所属的域名，用于错误信息，可以为 null
+     */
+    private CompletableFuture<Challenge> validateChallengesAsync(String url, String domain) {
+        AtomicBoolean triggered = new AtomicBoolean();
+        long start = metrics.start(MetricNames.CHALLENGE_WAIT);
+        return poller.poll(() -> {
+            // The first request triggers the challenge, later ones only query it (POST-as-GET)
+            boolean trigger = !triggered.getAndSet(true);
+            long requestStart = trigger ? metrics.start(MetricNames.CHALLENGE_TRIGGER) : 0;
+            HttpUtil.Response response;
+            try {
+                response = postJws(url, trigger ? new Payload() : null, false, Challenge.class);
+            } catch (RateLimitedException e) {
+                // Keep polling after Retry-After, a rejected trigger has to be sent again
+                if (trigger) {
+                    triggered.set(false);
+                }
+                return PollResult.pending(e.getRetryAfterMillis());
+            } finally {
+                if (trigger) {
+                    metrics.stop(MetricNames.CHALLENGE_TRIGGER, requestStart);
+                }
+            }
+            if (response.isProblem(AcmeErrorTypeEnum.BAD_NONCE)) {
+                // Still rejected after the retry in postJws, try again on the next attempt
+                if (trigger) {
+                    triggered.set(false);
+                }
+                return PollResult.pending(-1);
+            }
+            checkProblem(url, response);
             Challenge content = response.getContent(Challenge.class);
-            if (ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(content.getStatus())) {
+            String status = content.getStatus();
+            if (ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(status)) {
                 logger.info("Challenge validation successful");
-                return;
+                return PollResult.done(content);
             }
-            if (ChallengeStatusEnum.INVALID.getStatus().equalsIgnoreCase(content.getStatus())) {
-                throw new RuntimeException("Challenge validation failed");
+            if (ChallengeStatusEnum.INVALID.getStatus().equalsIgnoreCase(status)) {
+                metrics.increment(MetricNames.CHALLENGE_INVALID);
+                throw new ChallengeFailedException(domain, domain == null ? "Challenge validation failed"
+                        : "Challenge validation failed for " + domain);
+            }
+            if (!ChallengeStatusEnum.PENDING.getStatus().equalsIgnoreCase(status)
+                    && !ChallengeStatusEnum.PROCESSING.getStatus().equalsIgnoreCase(status)) {
+                throw new IOException("Unexpected status " + status + " of challenge " + url);
             }
             logger.info("Challenge validation pending ..........");
-            AcmeUtils.sleep(3);
-            validateChallenges(url);
-        } catch (Exception e) {
-            throw new RuntimeException("Challenge validation error", e);
-        }
+            return PollResult.pending(AcmeUtils.parseRetryAfter(response.getHeader(AcmeConsts.RETRY_AFTER)));
+        }, pollPolicy, executor).whenComplete((challenge, error) -> metrics.stop(MetricNames.CHALLENGE_WAIT, start));
     }
 
     // ========================== Finalizing Order ==========================
@@ -196,26 +752,28 @@ public class AcmeClient {
      * 完成订单并生成证书请求
      */
     public void finalizeOrder(String finalizeUrl) throws Exception {
-        domainKeyPair = CryptoUtils.generateKeyPair();
-        String csr = CryptoUtils.generateCsr("oll.lycodeing.cn", domainKeyPair);
-        Payload payload = new Payload(csr);
-        String payloadBase64Encoded = payload.base64UrlEncode();
-        ProtectedHeader protectedHeader = ProtectedHeader.builder()
-                .alg("RS256")
-                .kid(kid)
-                .nonce(getNonce())
-                .url(finalizeUrl)
-                .build();
-        String protectedHeaderBase64 = protectedHeader.base64UrlEncode();
-        Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), protectedHeaderBase64, payloadBase64Encoded);
-        finalizeOrder(finalizeUrl, jws);
-    }
-
-    /**
-     * 完成订单并获取 finalize URL
-     */
-    private void finalizeOrder(String url, Jws jws) throws IOException {
-        HttpUtil.Response response = HttpUtil.sendHttpPost(url, jws, AcmeConsts.ACME_HEADER);
+        KeyPair journaledKeyPair = journaledOrder != null ? journaledOrder.toKeyPair() : null;
+        if (journaledKeyPair != null) {
+            // The CSR may have been sent before a restart, it has to be signed with the same key
+            domainKeyPair = journaledKeyPair;
+        } else {
+            long keyStart = metrics.start(MetricNames.KEY_GENERATION);
+            domainKeyPair = domainKeyPool != null ? domainKeyPool.take() : CryptoUtils.generateKeyPair(domainKeyType);
+            metrics.stop(MetricNames.KEY_GENERATION, keyStart);
+            if (journaledOrder != null) {
+                journaledOrder.setKeyPair(domainKeyPair);
+                recordOrder(OrderStateEnum.FINALIZING);
+            }
+        }
+        String csr = CryptoUtils.generateCsr(domains, domainKeyPair);
+        long start = metrics.start(MetricNames.FINALIZE);
+        HttpUtil.Response response;
+        try {
+            response = postJws(finalizeUrl, new Payload(csr), false, OrderResponse.class);
+        } finally {
+            metrics.stop(MetricNames.FINALIZE, start);
+        }
+        checkProblem(finalizeUrl, response);
         logger.info(GsonUtils.toJson(response.getHeader(AcmeConsts.LOCATION)));
         this.finalizeOrderUrl = response.getHeader(AcmeConsts.LOCATION);
     }
@@ -223,31 +781,137 @@ public class AcmeClient {
     // ========================== Certificate Retrieval ==========================
 
     /**
-     * 获取订单状态
+     * 获取订单状态，等待订单生效
      */
     public void getOrder() throws IOException {
-        HttpUtil.Response response = HttpUtil.sendHttpGet(finalizeOrderUrl);
-        OrderResponse orderResponse = response.getContent(OrderResponse.class);
-        if (ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(orderResponse.getStatus())) {
+        await(getOrderAsync());
+    }
+
+    /**
+     * 轮询已提交 CSR 的订单直到生效，轮询期间不占用线程；订单仍为 ready 等非 processing 状态时失败
+     */
+    public CompletableFuture<OrderResponse> getOrderAsync() {
+        String orderUrl = this.orderUrl != null ? this.orderUrl : finalizeOrderUrl;
+        long start = metrics.start(MetricNames.ORDER_WAIT);
+        return poller.poll(() -> {
+            HttpUtil.Response response;
+            try {
+                response = get(orderUrl, OrderResponse.class);
+            } catch (RateLimitedException e) {
+                return PollResult.pending(e.getRetryAfterMillis());
+            }
+            checkProblem(orderUrl, response);
+            OrderResponse orderResponse = response.getContent(OrderResponse.class);
+            String status = orderResponse.getStatus();
+            if (ChallengeStatusEnum.VALID.getStatus().equalsIgnoreCase(status)) {
+                return PollResult.done(orderResponse);
+            }
+            if (ChallengeStatusEnum.INVALID.getStatus().equalsIgnoreCase(status)) {
+                metrics.increment(MetricNames.ORDER_INVALID);
+                completeOrder(OrderStateEnum.FAILED);
+                throw new RuntimeException("Order validation failed");
+            }
+            if (!ChallengeStatusEnum.PROCESSING.getStatus().equalsIgnoreCase(status)) {
+                // e.g. still ready because finalize was rejected, it will not become valid by waiting
+                throw new IOException("Unexpected status " + status + " of order " + orderUrl + " after finalize");
+            }
+            return PollResult.pending(AcmeUtils.parseRetryAfter(response.getHeader(AcmeConsts.RETRY_AFTER)));
+        }, pollPolicy, executor).whenComplete((orderResponse, error) ->
+                metrics.stop(MetricNames.ORDER_WAIT, start)
+        ).thenApply(orderResponse -> {
             this.certificate = orderResponse.getCertificate();
-            return;
+            return orderResponse;
+        });
+    }
+
+    /**
+     * 获取证书并保存，配置了证书存储时保存到存储中，否则保存到当前目录的 cert.pem 和 private.key
+     */
+    public void getCertificate() throws IOException {
+        if (certificateStore != null) {
+            storeCertificate();
+        } else {
+            getCertificate("cert.pem", "private.key");
+        }
+    }
+
+    /**
+     * 获取证书并保存到证书存储，以订单 URL 的哈希作为 id
+     */
+    public StoredCertificate storeCertificate() throws IOException {
+        Path download = Files.createTempFile(certificateStore.getRoot(), "download", ".tmp");
+        try {
+            HttpUtil.Response response = download(download);
+            if (response.getStatusCode() != 200) {
+                throw new IOException("Failed to download certificate " + certificate + ": "
+                        + response.getStatusCode() + " " + response.getContent());
+            }
+            StoredCertificate stored = certificateStore.save(CryptoUtils.hash256AndEncodeToBase64(orderUrl != null ? orderUrl : finalizeOrderUrl),
+                    Files.readAllBytes(download), domainKeyPair.getPrivate());
+            logger.info("Certificate {} for {} saved to {}", stored.getSerial(), stored.getNames(), certificateStore.getRoot());
+            completeOrder();
+            if (ocspCache != null) {
+                ocspCache.add(stored);
+            }
+            return stored;
+        } finally {
+            Files.deleteIfExists(download);
         }
-        if (ChallengeStatusEnum.INVALID.getStatus().equalsIgnoreCase(orderResponse.getStatus())) {
-            throw new RuntimeException("Order validation failed");
+    }
+
+    /**
+     * 获取证书并保存到指定文件，证书链直接从响应流写入磁盘，不经过内存字符串和日志
+     *
+     * @param certPath 证书保存路径
+     * @param keyPath  私钥保存路径
+     */
+    public void getCertificate(String certPath, String keyPath) throws IOException {
+        Path certFile = Paths.get(certPath);
+        HttpUtil.Response response = download(certFile);
+        if (response.getStatusCode() != 200) {
+            throw new IOException("Failed to download certificate " + certificate + ": "
+                    + response.getStatusCode() + " " + response.getContent());
         }
-        AcmeUtils.sleep(3);
-        getOrder();
+        logger.info("Certificate saved to {} ({} bytes)", certFile, Files.size(certFile));
+
+        savePrivateKeyToFile(domainKeyPair.getPrivate(), keyPath);
+        completeOrder();
     }
 
     /**
-     * 获取证书并保存到文件
+     * 证书下载 URL，订单生效后可用
      */
-    public void getCertificate() throws IOException {
-        HttpUtil.Response response = HttpUtil.sendHttpGet(certificate);
-        logger.info("Certificate: {}", response.getContent());
-        FileUtil.writeByteArrayToFile("cert.pem", response.getContent().getBytes(StandardCharsets.UTF_8));
+    public String getCertificateUrl() {
+        return certificate;
+    }
+
+    /**
+     * 异步下载证书链到内存，PEM 格式
+     */
+    public CompletableFuture<String> downloadCertificateAsync() {
+        String url = certificate;
+        long start = metrics.start(MetricNames.DOWNLOAD);
+        return transport.getAsync(url).whenComplete((response, error) ->
+                metrics.stop(MetricNames.DOWNLOAD, start)
+        ).thenApply(response -> {
+            noncePool.offer(response);
+            if (response.getStatusCode() != 200) {
+                throw new CompletionException(new IOException("Failed to download certificate " + url + ": "
+                        + response.getStatusCode() + " " + response.getContent()));
+            }
+            return response.getContent();
+        });
+    }
 
-        savePrivateKeyToFile(domainKeyPair.getPrivate(), "private.key");
+    private HttpUtil.Response download(Path target) throws IOException {
+        long start = metrics.start(MetricNames.DOWNLOAD);
+        try {
+            HttpUtil.Response response = transport.download(certificate, target);
+            noncePool.offer(response);
+            return response;
+        } finally {
+            metrics.stop(MetricNames.DOWNLOAD, start);
+        }
     }
 
     /**
@@ -264,18 +928,143 @@ public class AcmeClient {
     }
 
     /**
-     * 获取最新的 Nonce
+     * 账户公钥指纹，只计算一次
+     */
+    public String getThumbprint() {
+        if (thumbprint == null && jwk != null) {
+            thumbprint = generateThumbprint(jwk);
+        }
+        return thumbprint;
+    }
+
+    /**
+     * 获取最新的 Nonce，优先使用 Nonce 池中缓存的值
      */
     public String getNonce() throws IOException {
-        HttpUtil.Response response = HttpUtil.sendHttpHead(DIRECTORY_URL);
-        return response.getHeader(AcmeConsts.NONCE);
+        long start = metrics.start(MetricNames.NONCE);
+        try {
+            return noncePool.take();
+        } finally {
+            metrics.stop(MetricNames.NONCE, start);
+        }
+    }
+
+    /**
+     * 签名并发送 JWS POST 请求，遇到 badNonce 时使用响应中的新 Nonce 重试一次
+     *
+     * @param url     请求URL
+     * @param payload 请求体，为 null 时发送 POST-as-GET
+     * @param useJwk  是否在头部携带 jwk（仅 newAccount 使用），否则携带 kid
+     * @param type    成功响应的 JSON 类型，为 null 时不解码
+     */
+    private HttpUtil.Response postJws(String url, Payload payload, boolean useJwk, Class<?> type) throws Exception {
+        HttpUtil.Response response = doPostJws(url, payload, useJwk, type);
+        if (response.isProblem(AcmeErrorTypeEnum.BAD_NONCE)) {
+            logger.warn("Bad nonce, retrying request: {}", url);
+            response = doPostJws(url, payload, useJwk, type);
+        }
+        checkRateLimited(url, response);
+        return response;
+    }
+
+    /**
+     * 429 或 rateLimited 错误时抛出 {@link RateLimitedException}，携带 Retry-After
+     */
+    private static void checkRateLimited(String url, HttpUtil.Response response) throws RateLimitedException {
+        if (response.getStatusCode() == 429 || response.isProblem(AcmeErrorTypeEnum.RATE_LIMITED)) {
+            long retryAfter = AcmeUtils.parseRetryAfter(response.getHeader(AcmeConsts.RETRY_AFTER));
+            throw new RateLimitedException("Rate limited by CA: " + url + " " + response.getContent(), retryAfter);
+        }
+    }
+
+    private HttpUtil.Response doPostJws(String url, Payload payload, boolean useJwk, Class<?> type) throws Exception {
+        ProtectedHeader protectedHeader = ProtectedHeader.builder()
+                .alg(JwsAlgorithmEnum.of(keyPair.getPrivate()).getAlg())
+                .jwk(useJwk ? jwk : null)
+                .kid(useJwk ? null : kid)
+                .nonce(getNonce())
+                .url(url)
+                .build();
+        long start = metrics.start(MetricNames.SIGNING);
+        byte[] jws = JwsBuilder.sign(keyPair.getPrivate(), protectedHeader, payload);
+        metrics.stop(MetricNames.SIGNING, start);
+        HttpUtil.Response response = transport.post(url, jws, AcmeConsts.ACME_HEADER, type);
+        noncePool.offer(response);
+        recordError(response);
+        return response;
+    }
+
+    /**
+     * 按 ACME 错误类型计数，不是 problem 的错误响应按状态码计数；指标记录失败不影响请求结果
+     */
+    private void recordError(HttpUtil.Response response) {
+        if (response.getStatusCode() < 400) {
+            return;
+        }
+        try {
+            ProblemResponse problem = response.getProblem();
+            metrics.increment(problem != null ? MetricNames.error(problem.getType()) : MetricNames.unknownError(response.getStatusCode()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to record error metric for status {}", response.getStatusCode(), e);
+        }
+    }
+
+    /**
+     * 响应为 ACME 错误时抛出 {@link AcmeProblemException}，badNonce 和 rateLimited 由调用方先行处理
+     */
+    private static void checkProblem(String url, HttpUtil.Response response) throws AcmeProblemException {
+        if (response.getStatusCode() >= 400) {
+            throw new AcmeProblemException(url, response.getStatusCode(), response.getProblem());
+        }
+    }
+
+    private HttpUtil.Response get(String url, Class<?> type) throws IOException {
+        HttpUtil.Response response = transport.get(url, type);
+        noncePool.offer(response);
+        checkRateLimited(url, response);
+        return response;
+    }
+
+    private CompletableFuture<HttpUtil.Response> getAsync(String url, Class<?> type) {
+        return transport.getAsync(url, type).thenApply(response -> {
+            noncePool.offer(response);
+            try {
+                checkRateLimited(url, response);
+            } catch (RateLimitedException e) {
+                throw new CompletionException(e);
+            }
+            return response;
+        });
+    }
+
+    /**
+     * 等待异步结果，还原被包装的异常
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
     }
 
     /**
-     * 初始化 ACME 目录
+     * 获取 ACME 目录，首次使用时加载并缓存
      */
-    private void initDirectories() throws IOException {
-        HttpUtil.Response response = HttpUtil.sendHttpGet(DIRECTORY_URL);
-        directory = response.getContent(Directory.class);
+    public Directory getDirectory() throws IOException {
+        return directoryCache.get(directoryUrl, transport);
     }
 }
@@ -0,0 +1,35 @@
+package cn.lycodeing.account;
+
+import java.io.IOException;
+
+/**
+ * 账户存储，按 CA 目录 URL 和联系人保存账户密钥与 kid，重启后复用同一个账户
+ *
+ * @author lycodeing
+ */
+public interface AccountStore {
+
+    /**
+     * 读取账户
+     *
+     * @param directoryUrl ACME 目录 URL
+     * @param contact      注册时使用的联系人
+     * @return 保存的账户，不存在时返回 null
+     * @throws IOException 如果发生I/O错误
+     */
+    StoredAccount load(String directoryUrl, String contact) throws IOException;
+
+    /**
+     * 保存账户，覆盖同一目录 URL 和联系人下的旧记录
+     *
+     * @throws IOException 如果发生I/O错误
+     */
+    void save(StoredAccount account) throws IOException;
+
+    /**
+     * 删除账户
+     *
+     * @throws IOException 如果发生I/O错误
+     */
+    void delete(String directoryUrl, String contact) throws IOException;
+}
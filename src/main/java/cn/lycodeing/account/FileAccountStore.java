@@ -0,0 +1,65 @@
+package cn.lycodeing.account;
+
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.GsonUtils;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * FileAccountStore
+ * <p>
+ * Keeps one JSON file per directory URL and contact under {@code dir}, named after the SHA-256 of
+ * both. Files are written to a temporary file and atomically moved into place, and are readable
+ * by the owner only where the file system supports POSIX permissions, since they hold the
+ * account private key.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class FileAccountStore implements AccountStore {
+    private static final Logger logger = LogManager.getLogger(FileAccountStore.class);
+
+    @Getter
+    private final Path dir;
+
+    public FileAccountStore(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public StoredAccount load(String directoryUrl, String contact) throws IOException {
+        Path file = fileOf(directoryUrl, contact);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        StoredAccount account = GsonUtils.fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), StoredAccount.class);
+        if (account == null || !directoryUrl.equals(account.getDirectoryUrl()) || !contact.equals(account.getContact())) {
+            logger.warn("Ignoring account file {} that does not belong to {} {}", file, directoryUrl, contact);
+            return null;
+        }
+        return account;
+    }
+
+    @Override
+    public void save(StoredAccount account) throws IOException {
+        // Synced: losing the key and kid in a crash would register a new account on the next run
+        FileUtil.writeAtomically(fileOf(account.getDirectoryUrl(), account.getContact()),
+                GsonUtils.toJson(account).getBytes(StandardCharsets.UTF_8), true, true);
+    }
+
+    @Override
+    public void delete(String directoryUrl, String contact) throws IOException {
+        Files.deleteIfExists(fileOf(directoryUrl, contact));
+    }
+
+    private Path fileOf(String directoryUrl, String contact) {
+        return dir.resolve(CryptoUtils.hash256AndEncodeToBase64(directoryUrl + " " + contact) + ".json");
+    }
+}
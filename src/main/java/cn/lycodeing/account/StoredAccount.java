@@ -0,0 +1,65 @@
+package cn.lycodeing.account;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.request.Jwk;
+import lombok.Data;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * 持久化的 ACME 账户
+ * <p>
+ * 密钥以 PKCS#8 / X.509 DER 的 Base64 保存。{@code kid} 为 null 表示只有密钥，
+ * 需要通过 onlyReturnExisting 向 CA 查询账户 URL。
+ * </p>
+ *
+ * @author lycodeing
+ */
+@Data
+public class StoredAccount {
+
+    private String directoryUrl;
+
+    private String contact;
+
+    private KeyTypeEnum keyType;
+
+    private String privateKey;
+
+    private String publicKey;
+
+    private Jwk jwk;
+
+    private String thumbprint;
+
+    private String kid;
+
+    public static StoredAccount of(String directoryUrl, String contact, KeyTypeEnum keyType, KeyPair keyPair,
+                                   Jwk jwk, String thumbprint, String kid) {
+        StoredAccount account = new StoredAccount();
+        account.setDirectoryUrl(directoryUrl);
+        account.setContact(contact);
+        account.setKeyType(keyType);
+        account.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        account.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        account.setJwk(jwk);
+        account.setThumbprint(thumbprint);
+        account.setKid(kid);
+        return account;
+    }
+
+    /**
+     * 还原账户密钥对
+     */
+    public KeyPair toKeyPair() throws GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance(keyType.getAlgorithm());
+        return new KeyPair(
+                keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey))),
+                keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey))));
+    }
+}
@@ -0,0 +1,181 @@
+package cn.lycodeing.authorization;
+
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.GsonUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AuthorizationCache
+ * <p>
+ * Remembers valid authorizations per account and identifier together with their expiry, so that
+ * orders for hostnames validated earlier skip fetching the authorization, solving the challenge
+ * and waiting for DNS propagation. Entries are only used while at least {@code expiryMargin} of
+ * their lifetime is left, leaving room for the order to be finalized before the CA drops them.
+ * </p>
+ * <p>
+ * With a file, every change is appended as one JSON line and the file is replayed on start.
+ * Expired and overwritten lines are dropped by rewriting the file atomically on start and once
+ * the stale lines outnumber the live entries.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class AuthorizationCache {
+    private static final Logger logger = LogManager.getLogger(AuthorizationCache.class);
+
+    // Append-only log of changes, null keeps the cache in memory only
+    @Getter
+    private final Path file;
+    // Entries expiring within this time are treated as missing
+    @Getter
+    @Setter
+    private volatile Duration expiryMargin = Duration.ofHours(1);
+
+    private final Map<String, CachedAuthorization> byIdentifier = new HashMap<>();
+    private final Map<String, CachedAuthorization> byUrl = new HashMap<>();
+    // Lines in the file that no longer describe a live entry
+    private int staleLines;
+
+    /**
+     * 只保存在内存中
+     */
+    public AuthorizationCache() {
+        this.file = null;
+    }
+
+    /**
+     * 从文件加载，之后的修改追加到文件
+     */
+    public AuthorizationCache(Path file) throws IOException {
+        this.file = file;
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        apply(GsonUtils.fromJson(line, CachedAuthorization.class));
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping corrupt authorization cache line in {}", file, e);
+                    }
+                }
+            }
+            removeExpired();
+            compact();
+            logger.info("Loaded {} valid authorizations from {}", byIdentifier.size(), file);
+        }
+    }
+
+    /**
+     * 查找账户下某个域名的有效授权
+     */
+    public synchronized CachedAuthorization get(String account, String identifier) {
+        return usable(byIdentifier.get(key(account, identifier)));
+    }
+
+    /**
+     * 按授权 URL 查找账户的有效授权
+     */
+    public synchronized CachedAuthorization findByUrl(String account, String url) {
+        CachedAuthorization authorization = usable(byUrl.get(url));
+        return authorization != null && authorization.getAccount().equals(account) ? authorization : null;
+    }
+
+    /**
+     * 保存已生效的授权，替换同一账户和域名之前的记录
+     */
+    public synchronized void put(CachedAuthorization authorization) throws IOException {
+        apply(authorization);
+        append(authorization);
+    }
+
+    /**
+     * 删除授权，如 CA 报告其已失效
+     */
+    public synchronized void remove(String account, String identifier) throws IOException {
+        if (byIdentifier.containsKey(key(account, identifier))) {
+            CachedAuthorization removed = new CachedAuthorization(account, identifier, null, 0);
+            apply(removed);
+            append(removed);
+        }
+    }
+
+    public synchronized int size() {
+        return byIdentifier.size();
+    }
+
+    private CachedAuthorization usable(CachedAuthorization authorization) {
+        if (authorization == null || authorization.getExpires() - expiryMargin.toMillis() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return authorization;
+    }
+
+    private void apply(CachedAuthorization authorization) {
+        String key = key(authorization.getAccount(), authorization.getIdentifier());
+        CachedAuthorization previous = authorization.getExpires() > 0
+                ? byIdentifier.put(key, authorization)
+                : byIdentifier.remove(key);
+        if (previous != null) {
+            byUrl.remove(previous.getUrl(), previous);
+            staleLines++;
+        }
+        if (authorization.getExpires() > 0) {
+            byUrl.put(authorization.getUrl(), authorization);
+        } else {
+            staleLines++;
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        int before = byIdentifier.size();
+        byIdentifier.values().removeIf(authorization -> authorization.getExpires() <= now);
+        byUrl.values().removeIf(authorization -> authorization.getExpires() <= now);
+        staleLines += before - byIdentifier.size();
+    }
+
+    private void append(CachedAuthorization authorization) throws IOException {
+        if (file == null) {
+            return;
+        }
+        if (staleLines > Math.max(64, byIdentifier.size())) {
+            removeExpired();
+            compact();
+            return;
+        }
+        Files.write(file, (GsonUtils.toJson(authorization) + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 只保留有效记录，原子替换文件
+     */
+    private void compact() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (CachedAuthorization authorization : byIdentifier.values()) {
+            content.append(GsonUtils.toJson(authorization)).append('\n');
+        }
+        FileUtil.writeAtomically(file, content.toString().getBytes(StandardCharsets.UTF_8), false);
+        staleLines = 0;
+    }
+
+    private static String key(String account, String identifier) {
+        return account + " " + identifier;
+    }
+}
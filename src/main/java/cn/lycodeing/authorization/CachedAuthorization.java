@@ -0,0 +1,36 @@
+package cn.lycodeing.authorization;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 已生效的授权
+ *
+ * @author lycodeing
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CachedAuthorization {
+
+    /**
+     * 账户 URL (kid)
+     */
+    private String account;
+
+    /**
+     * 授权的域名，通配符授权带 "*." 前缀
+     */
+    private String identifier;
+
+    /**
+     * 授权 URL
+     */
+    private String url;
+
+    /**
+     * 授权过期时间，毫秒时间戳，0 表示该记录已删除
+     */
+    private long expires;
+}
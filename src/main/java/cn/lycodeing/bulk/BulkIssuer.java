@@ -0,0 +1,176 @@
+package cn.lycodeing.bulk;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.order.OrderSession;
+import cn.lycodeing.ratelimit.OrderScheduler;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BulkIssuer
+ * <p>
+ * Runs the newOrder → validate → finalize → download pipeline for many domain sets at once.
+ * At most {@code concurrency} orders run in parallel and at most {@code queueCapacity} more wait
+ * in the queue; reading from the source blocks once both are full. Completed orders are recorded
+ * in the checkpoint file and skipped when the job is restarted.
+ * </p>
+ * <p>
+ * When the account client has a {@link CertificateStore}, every certificate is saved to the
+ * store, which also feeds its OCSP cache, instead of to {@code outputDir}.
+ * </p>
+ * <p>
+ * With an {@link OrderScheduler} set, orders are started only while the CA's rate limits
+ * allow. Orders held back by a limit, or by the Retry-After of a 429 response, wait in the
+ * scheduler without a worker thread but still count against the queue capacity. An order
+ * rate limited after it was created is continued rather than placed again.
+ * </p>
+ *
+ * @author lycodeing
+ */
+@Getter
+@Setter
+public class BulkIssuer {
+    private static final Logger logger = LogManager.getLogger(BulkIssuer.class);
+
+    // Client holding the registered account, forked once per order
+    private final AcmeClient accountClient;
+    // Certificates are written to outputDir/<primary domain>/, unless the client has a certificate store
+    private final Path outputDir;
+    // Maximum number of orders processed in parallel
+    private int concurrency = 8;
+    // Maximum number of orders waiting for a worker
+    private int queueCapacity = 64;
+    // Checkpoint file, null disables resume
+    private Path checkpointFile;
+    // Holds orders back while a rate limit of the CA is exhausted, null starts every order immediately
+    private OrderScheduler orderScheduler;
+
+    public BulkIssuer(AcmeClient accountClient, Path outputDir) {
+        this.accountClient = accountClient;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * 读取全部域名集合并签发证书，所有订单结束后返回
+     */
+    public BulkResult run(DomainSetSource source) throws IOException, InterruptedException {
+        BulkResult result = new BulkResult();
+        Semaphore permits = new Semaphore(concurrency + queueCapacity);
+        // Unbounded: the permits already cap the backlog, while a bounded queue could still be full right
+        // after a worker released its permit and reject the next order
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), ThreadUtils.daemonThreadFactory("acme-bulk"));
+        Files.createDirectories(outputDir);
+        try (Checkpoint checkpoint = checkpointFile == null ? null : new Checkpoint(checkpointFile)) {
+            DomainSet domainSet;
+            while ((domainSet = source.next()) != null) {
+                if (checkpoint != null && checkpoint.isCompleted(domainSet.getId())) {
+                    result.getSkipped().incrementAndGet();
+                    continue;
+                }
+                // Backpressure: wait until a worker or a queue slot is free
+                permits.acquire();
+                DomainSet task = domainSet;
+                if (orderScheduler == null) {
+                    executor.execute(() -> {
+                        try {
+                            issue(task);
+                            completed(task, checkpoint, result);
+                        } catch (Throwable e) {
+                            failed(task, e, result);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } else {
+                    // Parked orders keep their permit but no worker thread. A 429 continues the same order
+                    logger.info("Issuing certificate for {}", task.getDomains());
+                    orderScheduler.issue(new OrderSession(accountClient), task.getDomains(), executor).whenComplete((issued, error) -> {
+                        try {
+                            if (error == null) {
+                                write(task, issued);
+                                completed(task, checkpoint, result);
+                            } else {
+                                failed(task, error, result);
+                            }
+                        } catch (Throwable e) {
+                            failed(task, e, result);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+            // Wait for parked orders as well, every order holds a permit until it is done
+            while (!permits.tryAcquire(concurrency + queueCapacity, 1, TimeUnit.MINUTES)) {
+                logger.info("Bulk issuance in progress, {}", result);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Bulk issuance in progress, {}", result);
+            }
+        } finally {
+            executor.shutdownNow();
+            source.close();
+        }
+        logger.info("Bulk issuance finished, {}", result);
+        return result;
+    }
+
+    private static void completed(DomainSet task, Checkpoint checkpoint, BulkResult result) throws IOException {
+        if (checkpoint != null) {
+            checkpoint.markCompleted(task.getId());
+        }
+        result.getSucceeded().incrementAndGet();
+    }
+
+    private static void failed(DomainSet task, Throwable e, BulkResult result) {
+        logger.error("Failed to issue certificate for {}", task.getDomains(), e);
+        result.getFailures().put(task.getId(), e);
+    }
+
+    /**
+     * 签发单个订单
+     */
+    private void issue(DomainSet domainSet) throws Exception {
+        logger.info("Issuing certificate for {}", domainSet.getDomains());
+        IssuedCertificate issued;
+        try {
+            issued = new OrderSession(accountClient).issue(domainSet.getDomains()).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        write(domainSet, issued);
+    }
+
+    /**
+     * 证书链和私钥写入 outputDir/&lt;主域名&gt;/；客户端配置了证书存储时已由会话保存到存储
+     */
+    private void write(DomainSet domainSet, IssuedCertificate issued) throws IOException {
+        if (issued.getStored() != null) {
+            logger.info("Certificate for {} saved to the certificate store as {}", domainSet.getDomains(), issued.getStored().getId());
+            return;
+        }
+        Path dir = outputDir.resolve(domainSet.getPrimaryDomain().replace('*', '_'));
+        Files.createDirectories(dir);
+        FileUtil.writeAtomically(dir.resolve("cert.pem"), issued.getCertificateChain().getBytes(StandardCharsets.US_ASCII), false);
+        FileUtil.writeAtomically(dir.resolve("private.key"), CryptoUtils.toPem("PRIVATE KEY", issued.getKeyPair().getPrivate().getEncoded()), true);
+    }
+}
@@ -0,0 +1,34 @@
+package cn.lycodeing.bulk;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量签发结果统计
+ *
+ * @author lycodeing
+ */
+@Data
+public class BulkResult {
+
+    private final AtomicInteger succeeded = new AtomicInteger();
+
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * 失败的订单 id 及失败原因
+     */
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("succeeded=%d, skipped=%d, failed=%d", succeeded.get(), skipped.get(), getFailed());
+    }
+}
@@ -0,0 +1,61 @@
+package cn.lycodeing.bulk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 批量任务断点文件
+ * <p>
+ * 每完成一个订单追加一行其 id，重启后加载已完成的 id 并跳过这些订单。
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class Checkpoint implements AutoCloseable {
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    private final BufferedWriter writer;
+
+    public Checkpoint(Path path) throws IOException {
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    completed.add(line);
+                }
+            }
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public boolean isCompleted(String id) {
+        return completed.contains(id);
+    }
+
+    /**
+     * 记录订单已完成
+     */
+    public synchronized void markCompleted(String id) throws IOException {
+        if (completed.add(id)) {
+            writer.write(id);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    public int size() {
+        return completed.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
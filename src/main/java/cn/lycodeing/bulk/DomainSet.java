@@ -0,0 +1,34 @@
+package cn.lycodeing.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一个证书订单包含的域名集合
+ *
+ * @author lycodeing
+ */
+@Data
+@AllArgsConstructor
+public class DomainSet {
+
+    /**
+     * 唯一标识，用于断点记录
+     */
+    private String id;
+
+    private List<String> domains;
+
+    public DomainSet(List<String> domains) {
+        this(String.join(",", domains), domains);
+    }
+
+    /**
+     * 主域名，即第一个域名
+     */
+    public String getPrimaryDomain() {
+        return domains.get(0);
+    }
+}
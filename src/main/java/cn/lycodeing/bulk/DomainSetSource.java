@@ -0,0 +1,33 @@
+package cn.lycodeing.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 批量签发的域名来源，可以是文件、接口等
+ *
+ * @author lycodeing
+ */
+public interface DomainSetSource extends Closeable {
+
+    /**
+     * 读取下一组域名
+     *
+     * @return 下一组域名，读取完毕时返回 null
+     * @throws IOException 如果发生I/O错误
+     */
+    DomainSet next() throws IOException;
+
+    /**
+     * 从已有的域名集合读取，如 {@link OrderPlanner#plan} 的结果
+     */
+    static DomainSetSource of(Iterable<DomainSet> domainSets) {
+        Iterator<DomainSet> iterator = domainSets.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
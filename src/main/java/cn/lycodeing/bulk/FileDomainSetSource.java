@@ -0,0 +1,48 @@
+package cn.lycodeing.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 从文本文件逐行读取域名集合
+ * <p>
+ * 每行一个订单，域名之间用逗号或空白分隔；空行和以 # 开头的行会被忽略。
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class FileDomainSetSource implements DomainSetSource {
+
+    private final BufferedReader reader;
+
+    public FileDomainSetSource(Path path) throws IOException {
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public DomainSet next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> domains = Arrays.stream(line.split("[,\\s]+"))
+                    .filter(domain -> !domain.isEmpty())
+                    .collect(Collectors.toList());
+            return new DomainSet(domains);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,164 @@
+package cn.lycodeing.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * OrderPlanner
+ * <p>
+ * Packs a large list of host names into as few orders as possible, each with at most
+ * {@code maxNamesPerOrder} names (the CA's SAN limit per certificate). The names are
+ * normalized and de-duplicated, and names already covered by a wildcard in the input are
+ * dropped. They are then grouped by registered domain, so the hosts of one domain end up in
+ * the same certificate whenever the group fits. The groups are then packed into orders with
+ * first-fit decreasing. A group larger than one order is split into full orders of adjacent
+ * names first.
+ * </p>
+ * <p>
+ * With {@code wildcardThreshold} set, that many or more hosts directly under the same parent
+ * domain are replaced by a single {@code *.parent} name. Wildcard orders must be validated
+ * with dns-01.
+ * </p>
+ * <p>
+ * The registered domain is the last two labels. It is the last three labels when the
+ * second-to-last label is a common second-level suffix under a two-letter country code
+ * ({@code example.co.uk}, {@code example.com.cn}), or when the suffix is in
+ * {@code publicSuffixes}.
+ * </p>
+ *
+ * @author lycodeing
+ */
+@Getter
+@Setter
+public class OrderPlanner {
+
+    private static final Set<String> SECOND_LEVEL_LABELS = new HashSet<>(Arrays.asList(
+            "ac", "co", "com", "edu", "gov", "net", "org", "ne", "or", "go"));
+
+    // Maximum number of names per certificate, 100 for Let's Encrypt
+    private int maxNamesPerOrder = 100;
+    // Number of sibling hosts replaced by a wildcard, 0 disables wildcards
+    private int wildcardThreshold;
+    // Additional two-label public suffixes, e.g. github.io
+    private Set<String> publicSuffixes = new HashSet<>();
+
+    /**
+     * 规划订单
+     *
+     * @param hosts 域名列表，可以包含重复和通配符域名
+     * @return 每个订单的域名集合，注册域名相同的域名尽量放在同一订单
+     */
+    public List<DomainSet> plan(Collection<String> hosts) {
+        Set<String> names = normalize(hosts);
+        if (wildcardThreshold > 0) {
+            names = collapseWildcards(names);
+        }
+
+        Map<String, List<String>> groups = new TreeMap<>();
+        for (String name : names) {
+            groups.computeIfAbsent(registeredDomain(name), key -> new ArrayList<>()).add(name);
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            List<String> sorted = group.getValue();
+            sorted.sort(Comparator.comparing(OrderPlanner::reversedLabels));
+            for (int i = 0; i < sorted.size(); i += maxNamesPerOrder) {
+                chunks.add(sorted.subList(i, Math.min(i + maxNamesPerOrder, sorted.size())));
+            }
+        }
+
+        // First-fit decreasing; the sort is stable so equal sizes keep domain order
+        chunks.sort(Comparator.comparingInt((List<String> chunk) -> chunk.size()).reversed());
+        List<List<String>> orders = new ArrayList<>();
+        for (List<String> chunk : chunks) {
+            List<String> target = null;
+            for (List<String> order : orders) {
+                if (order.size() + chunk.size() <= maxNamesPerOrder) {
+                    target = order;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new ArrayList<>(maxNamesPerOrder);
+                orders.add(target);
+            }
+            target.addAll(chunk);
+        }
+        return orders.stream().map(DomainSet::new).collect(Collectors.toList());
+    }
+
+    /**
+     * 转为小写、去掉末尾的点并去重，去掉已被通配符覆盖的域名
+     */
+    private static Set<String> normalize(Collection<String> hosts) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String host : hosts) {
+            String name = host.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        names.removeIf(name -> !name.startsWith("*.") && names.contains(wildcardOf(name)));
+        return names;
+    }
+
+    /**
+     * 同一父域名下的主机数达到阈值时替换为通配符，通配符不能直接位于注册域名之上
+     */
+    private Set<String> collapseWildcards(Set<String> names) {
+        Map<String, List<String>> byWildcard = new HashMap<>();
+        for (String name : names) {
+            String wildcard = wildcardOf(name);
+            if (!name.startsWith("*.") && wildcard != null && !registeredDomain(name).equals(name)) {
+                byWildcard.computeIfAbsent(wildcard, key -> new ArrayList<>()).add(name);
+            }
+        }
+        Set<String> result = new LinkedHashSet<>(names);
+        for (Map.Entry<String, List<String>> entry : byWildcard.entrySet()) {
+            if (entry.getValue().size() >= wildcardThreshold) {
+                result.removeAll(entry.getValue());
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 注册域名，如 www.example.co.uk 为 example.co.uk
+     */
+    public String registeredDomain(String name) {
+        String host = name.startsWith("*.") ? name.substring(2) : name;
+        String[] labels = host.split("\\.");
+        if (labels.length <= 2) {
+            return host;
+        }
+        int suffixLabels = 1;
+        String lastTwo = labels[labels.length - 2] + "." + labels[labels.length - 1];
+        if (publicSuffixes.contains(lastTwo)
+                || (labels[labels.length - 1].length() == 2 && SECOND_LEVEL_LABELS.contains(labels[labels.length - 2]))) {
+            suffixLabels = 2;
+        }
+        int keep = Math.min(labels.length, suffixLabels + 1);
+        return String.join(".", Arrays.asList(labels).subList(labels.length - keep, labels.length));
+    }
+
+    private static String wildcardOf(String name) {
+        int dot = name.indexOf('.');
+        return dot > 0 && name.indexOf('.', dot + 1) > 0 ? "*" + name.substring(dot) : null;
+    }
+
+    /**
+     * 标签反转后的排序键，使同一子域下的域名相邻
+     */
+    private static String reversedLabels(String name) {
+        List<String> labels = Arrays.asList(name.split("\\."));
+        Collections.reverse(labels);
+        return String.join(".", labels);
+    }
+}
@@ -0,0 +1,24 @@
+package cn.lycodeing.challenge;
+
+import lombok.Getter;
+
+/**
+ * 挑战被 CA 判定为无效
+ *
+ * @author lycodeing
+ */
+@Getter
+public class ChallengeFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 授权的域名，未知时为 null
+     */
+    private final String domain;
+
+    public ChallengeFailedException(String domain, String message) {
+        super(message);
+        this.domain = domain;
+    }
+}
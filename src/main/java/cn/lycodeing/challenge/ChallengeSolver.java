@@ -0,0 +1,67 @@
+package cn.lycodeing.challenge;
+
+import cn.lycodeing.enums.ChallengeTypeEnum;
+import cn.lycodeing.response.Challenge;
+
+import java.util.List;
+
+/**
+ * 挑战处理器，为授权部署挑战响应
+ * <p>
+ * {@link cn.lycodeing.AcmeClient} 按配置顺序选择第一个支持该域名、且类型在授权中可用的处理器，
+ * 每个授权只完成一个挑战。一个订单（或同时验证的多个订单）中由同一处理器完成的挑战会通过
+ * {@link #prepareAll} 一次性部署，返回后才通知 CA 验证，全部验证结束后调用 {@link #cleanupAll}。
+ * 多个订单会并发调用同一个处理器，实现必须线程安全。
+ * </p>
+ *
+ * @author lycodeing
+ */
+public interface ChallengeSolver {
+
+    /**
+     * 处理的挑战类型
+     */
+    ChallengeTypeEnum getType();
+
+    /**
+     * 是否能为该域名完成挑战，如 HTTP-01 不能验证通配符域名
+     *
+     * @param domain 授权的域名，通配符授权带 "*." 前缀
+     */
+    default boolean supports(String domain) {
+        return true;
+    }
+
+    /**
+     * 部署挑战响应，返回时 CA 应当已经可以验证
+     *
+     * @param domain           授权的域名，通配符授权带 "*." 前缀
+     * @param challenge        挑战
+     * @param keyAuthorization token + "." + 账户公钥指纹
+     */
+    void prepare(String domain, Challenge challenge, String keyAuthorization) throws Exception;
+
+    /**
+     * 验证结束后清理挑战响应，无论验证是否成功
+     */
+    default void cleanup(String domain, Challenge challenge, String keyAuthorization) throws Exception {
+    }
+
+    /**
+     * 批量部署挑战响应，默认逐个调用 {@link #prepare}，能合并操作的处理器应覆盖此方法
+     */
+    default void prepareAll(List<PendingChallenge> challenges) throws Exception {
+        for (PendingChallenge challenge : challenges) {
+            prepare(challenge.getDomain(), challenge.getChallenge(), challenge.getKeyAuthorization());
+        }
+    }
+
+    /**
+     * 批量清理挑战响应，默认逐个调用 {@link #cleanup}
+     */
+    default void cleanupAll(List<PendingChallenge> challenges) throws Exception {
+        for (PendingChallenge challenge : challenges) {
+            cleanup(challenge.getDomain(), challenge.getChallenge(), challenge.getKeyAuthorization());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package cn.lycodeing.challenge;
+
+import cn.lycodeing.dns.DnsPropagationChecker;
+import cn.lycodeing.dns.DnsProvider;
+import cn.lycodeing.dns.TxtRecord;
+import cn.lycodeing.enums.ChallengeTypeEnum;
+import cn.lycodeing.response.Challenge;
+import cn.lycodeing.utils.CryptoUtils;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DNS-01 挑战处理器
+ * <p>
+ * 配置了 {@link DnsProvider} 时，一批挑战的所有 TXT 记录通过一次调用发布，只等待一次生效，
+ * 验证结束后一起删除；未配置时记录需要手动或由外部系统添加，这里只输出 TXT 记录并等待其生效。
+ * 使用相同服务商和检查器的处理器相等，它们的挑战会合并到同一批中。
+ * </p>
+ *
+ * @author lycodeing
+ */
+@EqualsAndHashCode
+public class DnsChallengeSolver implements ChallengeSolver {
+    private static final Logger logger = LogManager.getLogger(DnsChallengeSolver.class);
+
+    public static final String DNS_CHALLENGE_PREFIX = "_acme-challenge.";
+
+    // Publishes and removes the TXT records, null means they are added by hand
+    @Getter
+    private final DnsProvider dnsProvider;
+    // Checks TXT record propagation before the challenge is triggered, null skips the check
+    @Getter
+    private final DnsPropagationChecker propagationChecker;
+
+    public DnsChallengeSolver(DnsPropagationChecker propagationChecker) {
+        this(null, propagationChecker);
+    }
+
+    public DnsChallengeSolver(DnsProvider dnsProvider, DnsPropagationChecker propagationChecker) {
+        this.dnsProvider = dnsProvider;
+        this.propagationChecker = propagationChecker;
+    }
+
+    @Override
+    public ChallengeTypeEnum getType() {
+        return ChallengeTypeEnum.DNS;
+    }
+
+    @Override
+    public void prepare(String domain, Challenge challenge, String keyAuthorization) throws Exception {
+        prepareAll(Collections.singletonList(new PendingChallenge(domain, challenge, keyAuthorization)));
+    }
+
+    @Override
+    public void cleanup(String domain, Challenge challenge, String keyAuthorization) throws Exception {
+        cleanupAll(Collections.singletonList(new PendingChallenge(domain, challenge, keyAuthorization)));
+    }
+
+    /**
+     * 一次发布全部 TXT 记录并等待它们一起生效
+     */
+    @Override
+    public void prepareAll(List<PendingChallenge> challenges) throws Exception {
+        List<TxtRecord> records = toRecords(challenges);
+        for (PendingChallenge challenge : challenges) {
+            logger.info("Validating DNS-01 challenge for domain: {}, challenge URL: {}", challenge.getDomain(), challenge.getChallenge().getUrl());
+        }
+        if (dnsProvider != null) {
+            dnsProvider.publish(records);
+        } else {
+            for (TxtRecord record : records) {
+                logger.info("DNS TXT Record {}: {}", record.getName(), record.getValue());
+            }
+            logger.info("请绑定该dns记录");
+        }
+        // Wait until every authoritative nameserver serves every record
+        if (propagationChecker != null) {
+            propagationChecker.awaitPropagation(records);
+        }
+    }
+
+    @Override
+    public void cleanupAll(List<PendingChallenge> challenges) throws Exception {
+        if (dnsProvider != null) {
+            dnsProvider.cleanup(toRecords(challenges));
+        }
+    }
+
+    private static List<TxtRecord> toRecords(List<PendingChallenge> challenges) {
+        Set<TxtRecord> records = new LinkedHashSet<>();
+        for (PendingChallenge challenge : challenges) {
+            records.add(new TxtRecord(recordName(challenge.getDomain()), txtValue(challenge.getKeyAuthorization())));
+        }
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * TXT 记录名，通配符授权与其基础域名使用同一个记录名
+     */
+    public static String recordName(String domain) {
+        return DNS_CHALLENGE_PREFIX + (domain.startsWith("*.") ? domain.substring(2) : domain);
+    }
+
+    /**
+     * TXT 记录值：base64url(SHA-256(keyAuthorization))
+     */
+    public static String txtValue(String keyAuthorization) {
+        return CryptoUtils.hash256AndEncodeToBase64(keyAuthorization);
+    }
+}
@@ -0,0 +1,340 @@
+package cn.lycodeing.challenge;
+
+import cn.lycodeing.enums.ChallengeTypeEnum;
+import cn.lycodeing.response.Challenge;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Http01Responder
+ * <p>
+ * Embedded HTTP-01 challenge server. One selector thread serves
+ * {@code GET /.well-known/acme-challenge/<token>} from a concurrent in-memory map of key
+ * authorizations. It uses non-blocking sockets, HTTP/1.1 keep-alive and pipelining, so a burst
+ * of validation requests from many CA vantage points costs a map lookup and a small write per
+ * request, no matter how many orders are in flight.
+ * </p>
+ * <p>
+ * Any other path gets a 404. A request head larger than the read buffer gets a 431 and the
+ * connection is closed. Connections idle for longer than {@code idleTimeout} are closed.
+ * Registering a challenge only adds a map entry, so it is visible to the next request
+ * immediately.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class Http01Responder implements ChallengeSolver, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(Http01Responder.class);
+
+    public static final String PATH_PREFIX = "/.well-known/acme-challenge/";
+    private static final int BUFFER_SIZE = 4096;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    // Token to key authorization
+    private final Map<String, byte[]> keyAuthorizations = new ConcurrentHashMap<>();
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    @Getter
+    private final int port;
+    // Idle keep-alive connections are closed after this time
+    @Getter
+    @Setter
+    private volatile Duration idleTimeout = Duration.ofSeconds(30);
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * 在所有网卡的指定端口上启动，生产环境通常为 80
+     *
+     * @param port 端口，0 表示随机端口
+     */
+    public Http01Responder(int port) throws IOException {
+        this(new InetSocketAddress(port));
+    }
+
+    public Http01Responder(InetSocketAddress address) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        this.thread = new Thread(this::run, "acme-http01-" + port);
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("HTTP-01 responder listening on {}", serverChannel.getLocalAddress());
+    }
+
+    @Override
+    public ChallengeTypeEnum getType() {
+        return ChallengeTypeEnum.HTTP;
+    }
+
+    /**
+     * HTTP-01 不能验证通配符域名
+     */
+    @Override
+    public boolean supports(String domain) {
+        return !domain.startsWith("*.");
+    }
+
+    @Override
+    public void prepare(String domain, Challenge challenge, String keyAuthorization) {
+        add(challenge.getToken(), keyAuthorization);
+    }
+
+    @Override
+    public void cleanup(String domain, Challenge challenge, String keyAuthorization) {
+        remove(challenge.getToken());
+    }
+
+    public void add(String token, String keyAuthorization) {
+        keyAuthorizations.put(token, keyAuthorization.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void remove(String token) {
+        keyAuthorizations.remove(token);
+    }
+
+    /**
+     * 当前注册的挑战数量
+     */
+    public int size() {
+        return keyAuthorizations.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    // ========================== Event Loop ==========================
+
+    private void run() {
+        long lastSweep = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read(key);
+                        } else if (key.isWritable()) {
+                            flush(key);
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        logger.debug("HTTP-01 connection failed", e);
+                        close(key);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= 1000) {
+                    closeIdle(now);
+                    lastSweep = now;
+                }
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (IOException e) {
+                logger.warn("HTTP-01 responder selector failed", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.channel.read(connection.in) < 0) {
+            close(key);
+            return;
+        }
+        connection.lastActive = System.currentTimeMillis();
+        // Answer every complete request in the buffer, clients may pipeline them
+        while (!connection.closeAfterWrite) {
+            int end = indexOf(connection.in, HEADER_END);
+            if (end < 0) {
+                if (!connection.in.hasRemaining()) {
+                    respond(connection, 431, "Request Header Fields Too Large", null, false, true);
+                }
+                break;
+            }
+            String head = new String(connection.in.array(), 0, end, StandardCharsets.US_ASCII);
+            connection.in.flip();
+            connection.in.position(end + HEADER_END.length);
+            connection.in.compact();
+            handle(connection, head);
+        }
+        flush(key);
+    }
+
+    private void handle(Connection connection, String head) {
+        requestCount.incrementAndGet();
+        int lineEnd = head.indexOf("\r\n");
+        String[] requestLine = (lineEnd < 0 ? head : head.substring(0, lineEnd)).split(" ");
+        if (requestLine.length != 3) {
+            respond(connection, 400, "Bad Request", null, false, true);
+            return;
+        }
+        String method = requestLine[0];
+        String target = requestLine[1];
+        boolean close = "HTTP/1.0".equals(requestLine[2])
+                ? !containsHeader(head, "connection", "keep-alive")
+                : containsHeader(head, "connection", "close");
+        boolean headOnly = "HEAD".equals(method);
+        if (!"GET".equals(method) && !headOnly) {
+            respond(connection, 405, "Method Not Allowed", null, false, close);
+            return;
+        }
+        int query = target.indexOf('?');
+        String path = query < 0 ? target : target.substring(0, query);
+        byte[] keyAuthorization = path.startsWith(PATH_PREFIX) ? keyAuthorizations.get(path.substring(PATH_PREFIX.length())) : null;
+        if (keyAuthorization == null) {
+            respond(connection, 404, "Not Found", null, headOnly, close);
+        } else {
+            respond(connection, 200, "OK", keyAuthorization, headOnly, close);
+        }
+    }
+
+    private static boolean containsHeader(String head, String name, String value) {
+        for (String line : head.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)
+                    && line.substring(colon + 1).trim().equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void respond(Connection connection, int status, String reason, byte[] body, boolean headOnly, boolean close) {
+        byte[] content = body == null ? new byte[0] : body;
+        String headers = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + (close ? "Connection: close\r\n" : "")
+                + "\r\n";
+        byte[] headerBytes = headers.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer response = ByteBuffer.allocate(headerBytes.length + (headOnly ? 0 : content.length));
+        response.put(headerBytes);
+        if (!headOnly) {
+            response.put(content);
+        }
+        response.flip();
+        connection.out.add(response);
+        connection.closeAfterWrite |= close;
+    }
+
+    /**
+     * 写出待发送的响应，写不完时等待可写事件并暂停读取
+     */
+    private void flush(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        while (!connection.out.isEmpty()) {
+            ByteBuffer buffer = connection.out.peek();
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.out.poll();
+        }
+        if (connection.closeAfterWrite) {
+            close(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void closeIdle(long now) {
+        long timeout = idleTimeout.toMillis();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection && now - ((Connection) key.attachment()).lastActive > timeout) {
+                close(key);
+            }
+        }
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.debug("Failed to close HTTP-01 connection", e);
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        byte[] bytes = buffer.array();
+        outer:
+        for (int i = 0; i <= buffer.position() - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close HTTP-01 responder", e);
+        }
+    }
+
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        long lastActive = System.currentTimeMillis();
+        boolean closeAfterWrite;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
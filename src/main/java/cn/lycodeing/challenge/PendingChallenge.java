@@ -0,0 +1,27 @@
+package cn.lycodeing.challenge;
+
+import cn.lycodeing.response.Challenge;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 待部署的挑战及其所属授权的域名
+ *
+ * @author lycodeing
+ */
+@Data
+@AllArgsConstructor
+public class PendingChallenge {
+
+    /**
+     * 授权的域名，通配符授权带 "*." 前缀
+     */
+    private String domain;
+
+    private Challenge challenge;
+
+    /**
+     * token + "." + 账户公钥指纹
+     */
+    private String keyAuthorization;
+}
@@ -14,5 +14,11 @@ public class AcmeConsts {
 
     public static final String LOCATION = "Location";
 
+    public static final String RETRY_AFTER = "Retry-After";
+
+    public static final String LETS_ENCRYPT_STAGING = "https://acme-staging-v02.api.letsencrypt.org/directory";
+
+    public static final String LETS_ENCRYPT_PRODUCTION = "https://acme-v02.api.letsencrypt.org/directory";
+
     public static final Map<String,String> ACME_HEADER = Collections.singletonMap("Content-Type", "application/jose+json");
 }
@@ -0,0 +1,230 @@
+package cn.lycodeing.directory;
+
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.request.Directory;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.GsonUtils;
+import cn.lycodeing.utils.HttpUtil;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DirectoryCache
+ * <p>
+ * Loads ACME directories on first use and caches them per directory URL, in memory and as JSON
+ * files on disk, so new clients and short-lived processes skip the directory round-trip. An entry
+ * older than {@code ttl} is still served, while a single background refresh fetches a new copy.
+ * Only a URL that has never been fetched blocks the caller, and concurrent callers share that
+ * one request.
+ * </p>
+ * <p>
+ * {@link #shared()} is used by every {@link cn.lycodeing.AcmeClient} unless another cache is set.
+ * Its disk location defaults to {@code ~/.acme-java/directories} and can be changed with the
+ * {@code acme.directory.cache.dir} system property.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class DirectoryCache {
+    private static final Logger logger = LogManager.getLogger(DirectoryCache.class);
+
+    private static final ExecutorService REFRESH_EXECUTOR =
+            Executors.newSingleThreadExecutor(ThreadUtils.daemonThreadFactory("acme-directory-refresh"));
+
+    private static final DirectoryCache SHARED = new DirectoryCache(Paths.get(System.getProperty("acme.directory.cache.dir",
+            Paths.get(System.getProperty("user.home"), ".acme-java", "directories").toString())));
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // First fetch of a URL, shared by concurrent callers
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    // Directory of the cache files, null keeps the cache in memory only
+    @Getter
+    private final Path cacheDir;
+    // Age after which an entry is refreshed in the background
+    @Getter
+    @Setter
+    private volatile Duration ttl = Duration.ofHours(12);
+
+    public DirectoryCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public static DirectoryCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 获取目录，过期时返回旧值并在后台刷新
+     *
+     * @param url       目录 URL
+     * @param transport 首次加载和刷新使用的传输层
+     * @throws IOException 如果从未获取过该目录且本次请求失败
+     */
+    public Directory get(String url, HttpTransport transport) throws IOException {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            entry = load(url, transport);
+        }
+        if (entry.isStale(ttl)) {
+            refreshAsync(url, transport, entry);
+        }
+        return entry.directory;
+    }
+
+    /**
+     * 丢弃内存和磁盘中的缓存
+     */
+    public void invalidate(String url) throws IOException {
+        entries.remove(url);
+        if (cacheDir != null) {
+            Files.deleteIfExists(fileOf(url));
+        }
+    }
+
+    /**
+     * 首次加载：优先读取磁盘缓存，没有时同步请求
+     */
+    private Entry load(String url, HttpTransport transport) throws IOException {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loading.putIfAbsent(url, future);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            Entry entry = entries.get(url);
+            if (entry == null) {
+                entry = readFromDisk(url);
+            }
+            if (entry == null) {
+                entry = fetch(url, transport);
+            }
+            entries.put(url, entry);
+            future.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(url, future);
+        }
+    }
+
+    private void refreshAsync(String url, HttpTransport transport, Entry stale) {
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(() -> {
+            try {
+                entries.put(url, fetch(url, transport));
+                logger.debug("Refreshed ACME directory {}", url);
+            } catch (Exception e) {
+                logger.warn("Failed to refresh ACME directory {}, keeping the cached copy", url, e);
+                stale.refreshing.set(false);
+            }
+        });
+    }
+
+    private Entry fetch(String url, HttpTransport transport) throws IOException {
+        HttpUtil.Response response = transport.get(url, Directory.class);
+        Directory directory = response.getContent(Directory.class);
+        if (response.getStatusCode() != 200 || directory == null || directory.getNewNonce() == null) {
+            throw new IOException("Failed to load ACME directory " + url + ": " + response.getStatusCode() + " " + response.getContent());
+        }
+        Entry entry = new Entry(directory, System.currentTimeMillis());
+        writeToDisk(url, entry);
+        return entry;
+    }
+
+    private Entry readFromDisk(String url) {
+        if (cacheDir == null) {
+            return null;
+        }
+        Path file = fileOf(url);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            CachedDirectory cached = GsonUtils.fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), CachedDirectory.class);
+            if (cached == null || !url.equals(cached.getUrl()) || cached.getDirectory() == null) {
+                return null;
+            }
+            return new Entry(cached.getDirectory(), cached.getFetchedAt());
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable directory cache file {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String url, Entry entry) {
+        if (cacheDir == null) {
+            return;
+        }
+        try {
+            CachedDirectory cached = new CachedDirectory();
+            cached.setUrl(url);
+            cached.setFetchedAt(entry.fetchedAt);
+            cached.setDirectory(entry.directory);
+            FileUtil.writeAtomically(fileOf(url), GsonUtils.toJson(cached).getBytes(StandardCharsets.UTF_8), false);
+        } catch (IOException e) {
+            logger.warn("Failed to write directory cache for {}", url, e);
+        }
+    }
+
+    private Path fileOf(String url) {
+        return cacheDir.resolve(CryptoUtils.hash256AndEncodeToBase64(url) + ".json");
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final Directory directory;
+        final long fetchedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Directory directory, long fetchedAt) {
+            this.directory = directory;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isStale(Duration ttl) {
+            return System.currentTimeMillis() - fetchedAt > ttl.toMillis();
+        }
+    }
+
+    /**
+     * 磁盘缓存文件内容
+     */
+    @Data
+    static class CachedDirectory {
+        private String url;
+        private long fetchedAt;
+        private Directory directory;
+    }
+}
@@ -0,0 +1,235 @@
+package cn.lycodeing.dns;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xbill.DNS.AAAARecord;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NSRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.TXTRecord;
+import org.xbill.DNS.Type;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * DnsPropagationChecker
+ * <p>
+ * Waits until a TXT record is visible on every authoritative nameserver of its zone. The
+ * nameservers are discovered through the configured (recursive) resolver and then queried
+ * directly and in parallel, retrying with exponential backoff until all of them return the
+ * expected value or the timeout expires.
+ * </p>
+ * <p>
+ * A batch of records, e.g. every dns-01 record of an order, is awaited as a whole: each round
+ * queries all unconfirmed record and nameserver pairs at once, and the batch shares one backoff
+ * and one timeout instead of waiting for the records one after another.
+ * </p>
+ *
+ * @author lycodeing
+ */
+@Getter
+@Setter
+public class DnsPropagationChecker {
+    private static final Logger logger = LogManager.getLogger(DnsPropagationChecker.class);
+
+    // Recursive resolver used to discover the authoritative nameservers
+    private final Resolver resolver;
+    // Port the authoritative nameservers are queried on
+    private int nameserverPort = SimpleResolver.DEFAULT_PORT;
+    // Timeout of a single DNS query
+    private Duration queryTimeout = Duration.ofSeconds(5);
+    // Delay before the first retry, doubled after every round
+    private Duration initialBackoff = Duration.ofSeconds(2);
+    // Upper bound of the retry delay
+    private Duration maxBackoff = Duration.ofSeconds(30);
+    // Overall time to wait for propagation
+    private Duration timeout = Duration.ofMinutes(10);
+
+    /**
+     * 使用系统配置的 DNS 服务器
+     */
+    public DnsPropagationChecker() {
+        this(new ExtendedResolver());
+    }
+
+    /**
+     * 使用指定的 DNS 服务器查找权威服务器
+     */
+    public DnsPropagationChecker(String host, int port) {
+        this(new SimpleResolver(new InetSocketAddress(host, port)));
+    }
+
+    public DnsPropagationChecker(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * 等待 TXT 记录在所有权威服务器上生效
+     *
+     * @param name          记录名，如 _acme-challenge.example.com
+     * @param expectedValue 期望的记录值
+     * @throws IOException 如果找不到权威服务器，或超时后仍有服务器未生效（cause 为 {@link TimeoutException}）
+     */
+    public void awaitPropagation(String name, String expectedValue) throws IOException, InterruptedException {
+        awaitPropagation(Collections.singletonList(new TxtRecord(name, expectedValue)));
+    }
+
+    /**
+     * 等待一批 TXT 记录全部生效，每轮并行查询所有尚未确认的记录和服务器，整批共用一个超时
+     *
+     * @param records 记录，同名记录的所有值都必须可见
+     * @throws IOException 如果找不到权威服务器，或超时后仍有服务器未生效（cause 为 {@link TimeoutException}）
+     */
+    public void awaitPropagation(Collection<TxtRecord> records) throws IOException, InterruptedException {
+        Map<Name, Set<String>> expected = new LinkedHashMap<>();
+        for (TxtRecord record : records) {
+            expected.computeIfAbsent(Name.fromString(record.getName(), Name.root), key -> new HashSet<>()).add(record.getValue());
+        }
+        // Nameservers that do not serve all values of a record name yet
+        Map<Name, Set<InetAddress>> pending = new LinkedHashMap<>();
+        for (Name name : expected.keySet()) {
+            pending.put(name, new LinkedHashSet<>(findAuthoritativeNameservers(name)));
+        }
+        logger.info("Waiting for TXT {} on nameservers {}", expected.keySet(), pending);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long backoff = initialBackoff.toMillis();
+        while (true) {
+            queryAll(pending, expected);
+            if (pending.isEmpty()) {
+                logger.info("TXT {} propagated to all nameservers", expected.keySet());
+                return;
+            }
+            long remaining = (deadline - System.nanoTime()) / 1_000_000;
+            if (remaining <= 0) {
+                String message = "DNS propagation timed out, pending nameservers: " + pending;
+                throw new IOException(message, new TimeoutException(message));
+            }
+            logger.info("TXT not yet visible on {}, retrying in {} ms", pending, backoff);
+            Thread.sleep(Math.min(backoff, remaining));
+            backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+        }
+    }
+
+    /**
+     * 查找记录所在区域的权威服务器地址，逐级向上查询 NS 记录
+     */
+    public List<InetAddress> findAuthoritativeNameservers(Name name) throws IOException {
+        Name current = name;
+        while (current.labels() > 1) {
+            Name zone = current;
+            Message response = send(zone, Type.NS);
+            List<Name> targets = response.getSection(Section.ANSWER).stream()
+                    .filter(record -> record instanceof NSRecord && record.getName().equals(zone))
+                    .map(record -> ((NSRecord) record).getTarget())
+                    .collect(Collectors.toList());
+            if (!targets.isEmpty()) {
+                List<InetAddress> addresses = new ArrayList<>();
+                for (Name target : targets) {
+                    addresses.addAll(resolveAddresses(target, response));
+                }
+                if (addresses.isEmpty()) {
+                    throw new IOException("Cannot resolve nameservers " + targets + " of zone " + zone);
+                }
+                return addresses;
+            }
+            current = new Name(current, 1);
+        }
+        throw new IOException("No authoritative nameserver found for " + name);
+    }
+
+    /**
+     * 解析 NS 主机地址，优先使用响应中的 glue 记录，没有 IPv4 地址时使用 IPv6 地址
+     */
+    private List<InetAddress> resolveAddresses(Name target, Message nsResponse) throws IOException {
+        List<InetAddress> glue = addressesOf(nsResponse.getSection(Section.ADDITIONAL), target);
+        if (!glue.isEmpty()) {
+            return glue;
+        }
+        List<InetAddress> addresses = addressesOf(send(target, Type.A).getSection(Section.ANSWER), target);
+        if (!addresses.isEmpty()) {
+            return addresses;
+        }
+        return addressesOf(send(target, Type.AAAA).getSection(Section.ANSWER), target);
+    }
+
+    /**
+     * 目标主机的 A 或 AAAA 地址；两者都有时只取 IPv4，没有 IPv6 连接的主机查询 IPv6 地址只会一直失败
+     */
+    private static List<InetAddress> addressesOf(List<Record> records, Name target) {
+        List<InetAddress> ipv4 = new ArrayList<>();
+        List<InetAddress> ipv6 = new ArrayList<>();
+        for (Record record : records) {
+            if (!record.getName().equals(target)) {
+                continue;
+            }
+            if (record instanceof ARecord) {
+                ipv4.add(((ARecord) record).getAddress());
+            } else if (record instanceof AAAARecord) {
+                ipv6.add(((AAAARecord) record).getAddress());
+            }
+        }
+        return ipv4.isEmpty() ? ipv6 : ipv4;
+    }
+
+    /**
+     * 并行查询所有待确认的记录和服务器，移除已经能查到全部期望值的服务器以及已全部确认的记录
+     */
+    private void queryAll(Map<Name, Set<InetAddress>> pending, Map<Name, Set<String>> expected) {
+        Map<Name, Map<InetAddress, CompletableFuture<Boolean>>> futures = new LinkedHashMap<>();
+        pending.forEach((name, nameservers) -> {
+            Map<InetAddress, CompletableFuture<Boolean>> byNameserver = new LinkedHashMap<>();
+            for (InetAddress nameserver : nameservers) {
+                SimpleResolver direct = new SimpleResolver(new InetSocketAddress(nameserver, nameserverPort));
+                direct.setTimeout(queryTimeout);
+                byNameserver.put(nameserver, direct.sendAsync(newQuery(name, Type.TXT)).toCompletableFuture()
+                        .thenApply(response -> containsTxt(response, name, expected.get(name)))
+                        .exceptionally(e -> {
+                            logger.debug("TXT query for {} to {} failed", name, nameserver, e);
+                            return false;
+                        }));
+            }
+            futures.put(name, byNameserver);
+        });
+        futures.forEach((name, byNameserver) -> byNameserver.forEach((nameserver, future) -> {
+            if (future.join()) {
+                pending.get(name).remove(nameserver);
+            }
+        }));
+        pending.values().removeIf(Set::isEmpty);
+    }
+
+    private static boolean containsTxt(Message response, Name name, Set<String> expectedValues) {
+        Set<String> values = new HashSet<>();
+        for (Record record : response.getSection(Section.ANSWER)) {
+            if (record instanceof TXTRecord && record.getName().equals(name)) {
+                values.addAll(((TXTRecord) record).getStrings());
+            }
+        }
+        return values.containsAll(expectedValues);
+    }
+
+    private Message send(Name name, int type) throws IOException {
+        return resolver.send(newQuery(name, type));
+    }
+
+    private static Message newQuery(Name name, int type) {
+        return Message.newQuery(Record.newRecord(name, type, DClass.IN));
+    }
+}
@@ -0,0 +1,27 @@
+package cn.lycodeing.dns;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * DNS 服务商接口，用于发布和删除 DNS-01 挑战的 TXT 记录
+ * <p>
+ * 记录总是成批传入：一个订单（或同时验证的多个订单）的所有记录会在一次调用中发布，
+ * 实现应尽量合并为一次 API 调用或一次区域更新。同名记录可以有多个值（如 example.com 与
+ * *.example.com），发布时不能相互覆盖。多个订单会并发调用，实现必须线程安全。
+ * </p>
+ *
+ * @author lycodeing
+ */
+public interface DnsProvider {
+
+    /**
+     * 发布记录，返回时服务商已经接受更新，但不要求已经在权威服务器上生效
+     */
+    void publish(Collection<TxtRecord> records) throws IOException;
+
+    /**
+     * 删除之前发布的记录
+     */
+    void cleanup(Collection<TxtRecord> records) throws IOException;
+}
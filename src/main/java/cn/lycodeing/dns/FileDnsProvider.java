@@ -0,0 +1,90 @@
+package cn.lycodeing.dns;
+
+import cn.lycodeing.utils.FileUtil;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FileDnsProvider
+ * <p>
+ * Local stand-in for a DNS provider that keeps the published TXT records in a zone file fragment,
+ * one {@code name. TTL IN TXT "value"} line per record. Every batch rewrites the file atomically
+ * once, so a nameserver or a test that includes the file never sees half of a batch.
+ * </p>
+ * <p>
+ * Records are reference counted: publishing the same record twice (e.g. from two orders) needs
+ * two cleanups before it disappears from the file.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class FileDnsProvider implements DnsProvider {
+    private static final Logger logger = LogManager.getLogger(FileDnsProvider.class);
+
+    @Getter
+    private final Path file;
+    // TTL written for every record
+    @Getter
+    @Setter
+    private int ttl = 60;
+    // Published records and how many times each one was published
+    private final Map<TxtRecord, Integer> records = new LinkedHashMap<>();
+    // Number of batches written to the file
+    private final AtomicInteger batchCount = new AtomicInteger();
+
+    public FileDnsProvider(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void publish(Collection<TxtRecord> records) throws IOException {
+        for (TxtRecord record : records) {
+            this.records.merge(record, 1, Integer::sum);
+        }
+        write();
+        logger.info("Published {} TXT records to {}", records.size(), file);
+    }
+
+    @Override
+    public synchronized void cleanup(Collection<TxtRecord> records) throws IOException {
+        for (TxtRecord record : records) {
+            this.records.computeIfPresent(record, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        write();
+        logger.info("Removed {} TXT records from {}", records.size(), file);
+    }
+
+    /**
+     * 当前发布的记录数量
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+
+    public synchronized boolean contains(TxtRecord record) {
+        return records.containsKey(record);
+    }
+
+    public int getBatchCount() {
+        return batchCount.get();
+    }
+
+    private void write() throws IOException {
+        StringBuilder zone = new StringBuilder();
+        for (TxtRecord record : records.keySet()) {
+            zone.append(record.getName()).append(". ").append(ttl).append(" IN TXT \"").append(record.getValue()).append("\"\n");
+        }
+        FileUtil.writeAtomically(file, zone.toString().getBytes(StandardCharsets.US_ASCII), false);
+        batchCount.incrementAndGet();
+    }
+}
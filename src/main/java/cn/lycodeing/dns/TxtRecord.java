@@ -0,0 +1,21 @@
+package cn.lycodeing.dns;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一条 TXT 记录
+ *
+ * @author lycodeing
+ */
+@Data
+@AllArgsConstructor
+public class TxtRecord {
+
+    /**
+     * 完整记录名，如 _acme-challenge.example.com，不带末尾的点
+     */
+    private String name;
+
+    private String value;
+}
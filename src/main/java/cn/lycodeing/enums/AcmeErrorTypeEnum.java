@@ -0,0 +1,30 @@
+package cn.lycodeing.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ACME 错误类型 (RFC 8555 6.7)
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+public enum AcmeErrorTypeEnum {
+
+    BAD_NONCE("urn:ietf:params:acme:error:badNonce"),
+
+    RATE_LIMITED("urn:ietf:params:acme:error:rateLimited"),
+
+    UNAUTHORIZED("urn:ietf:params:acme:error:unauthorized"),
+
+    MALFORMED("urn:ietf:params:acme:error:malformed"),
+
+    ACCOUNT_DOES_NOT_EXIST("urn:ietf:params:acme:error:accountDoesNotExist");
+
+    private final String type;
+
+    public boolean matches(String type) {
+        return this.type.equals(type);
+    }
+}
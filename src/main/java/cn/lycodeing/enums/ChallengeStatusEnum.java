@@ -13,6 +13,8 @@ public enum ChallengeStatusEnum {
 
     PENDING("pending"),
 
+    READY("ready"),
+
     PROCESSING("processing"),
 
     VALID("valid"),
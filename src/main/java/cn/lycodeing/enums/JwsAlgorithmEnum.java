@@ -0,0 +1,58 @@
+package cn.lycodeing.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.Key;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+
+/**
+ * JWS 签名算法 (RFC 7518)
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+public enum JwsAlgorithmEnum {
+
+    RS256("RS256", "SHA256withRSA", 0),
+
+    ES256("ES256", "SHA256withECDSA", 32),
+
+    ES384("ES384", "SHA384withECDSA", 48),
+
+    ES512("ES512", "SHA512withECDSA", 66);
+
+    /**
+     * JOSE 头部中的 alg
+     */
+    private final String alg;
+
+    /**
+     * JCA 签名算法名
+     */
+    private final String signatureAlgorithm;
+
+    /**
+     * ECDSA 签名中 R、S 各自的字节长度，RSA 为 0
+     */
+    private final int coordinateLength;
+
+    /**
+     * 根据账户密钥类型选择签名算法
+     */
+    public static JwsAlgorithmEnum of(Key key) {
+        if (key instanceof RSAKey) {
+            return RS256;
+        }
+        if (key instanceof ECKey) {
+            int fieldSize = ((ECKey) key).getParams().getCurve().getField().getFieldSize();
+            if (fieldSize <= 256) {
+                return ES256;
+            }
+            return fieldSize <= 384 ? ES384 : ES512;
+        }
+        throw new IllegalArgumentException("Unsupported account key type: " + key.getAlgorithm());
+    }
+}
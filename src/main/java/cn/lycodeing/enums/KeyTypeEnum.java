@@ -0,0 +1,39 @@
+package cn.lycodeing.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 密钥类型
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+public enum KeyTypeEnum {
+
+    RSA_2048("RSA", 2048, null),
+
+    RSA_3072("RSA", 3072, null),
+
+    RSA_4096("RSA", 4096, null),
+
+    EC_P256("EC", 256, "secp256r1"),
+
+    EC_P384("EC", 384, "secp384r1");
+
+    /**
+     * KeyPairGenerator 算法名
+     */
+    private final String algorithm;
+
+    /**
+     * 密钥长度
+     */
+    private final int size;
+
+    /**
+     * 椭圆曲线名称，RSA 为 null
+     */
+    private final String curve;
+}
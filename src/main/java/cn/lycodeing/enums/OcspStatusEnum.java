@@ -0,0 +1,16 @@
+package cn.lycodeing.enums;
+
+/**
+ * OCSP 响应中的证书状态
+ *
+ * @author lycodeing
+ */
+public enum OcspStatusEnum {
+
+    GOOD,
+
+    REVOKED,
+
+    UNKNOWN
+
+}
@@ -0,0 +1,37 @@
+package cn.lycodeing.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 订单日志中记录的订单状态
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+public enum OrderStateEnum {
+
+    /**
+     * 订单已创建，尚未提交 CSR
+     */
+    CREATED(false),
+
+    /**
+     * 域名密钥已生成，CSR 可能已经提交
+     */
+    FINALIZING(false),
+
+    /**
+     * 证书已保存
+     */
+    COMPLETED(true),
+
+    /**
+     * 订单已失效
+     */
+    FAILED(true);
+
+    private final boolean terminal;
+
+}
@@ -0,0 +1,204 @@
+package cn.lycodeing.http;
+
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.HttpUtil;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+
+/**
+ * ApacheHttpTransport
+ * <p>
+ * Blocking transport on a pooled Apache HttpClient. Connections are kept alive for the server's
+ * Keep-Alive value (capped at {@code keepAlive}) and idle or expired connections are evicted by
+ * a background thread. Typed JSON responses are decoded straight from the entity stream and
+ * downloads are streamed to disk, so neither is held as a String. Every request is aborted once
+ * {@code requestTimeout} elapses, so a hung CA connection cannot block a worker forever. The
+ * async variants run the blocking call on the given executor.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class ApacheHttpTransport implements HttpTransport {
+    private static final Logger logger = LogManager.getLogger(ApacheHttpTransport.class);
+
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+            Executors.newScheduledThreadPool(1, ThreadUtils.daemonThreadFactory("acme-http-timeout"));
+    private static final ExecutorService DEFAULT_EXECUTOR =
+            Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("acme-http"));
+
+    @Getter
+    private final HttpTransportConfig config;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    // Runs the blocking requests of the async variants
+    private final Executor executor;
+
+    public ApacheHttpTransport() {
+        this(HttpTransportConfig.defaults());
+    }
+
+    public ApacheHttpTransport(HttpTransportConfig config) {
+        this(config, DEFAULT_EXECUTOR);
+    }
+
+    public ApacheHttpTransport(HttpTransportConfig config, Executor executor) {
+        this.config = config;
+        this.executor = executor;
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) config.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) config.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) config.getRequestTimeout().toMillis())
+                .build();
+        long keepAlive = config.getKeepAlive().toMillis();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public HttpUtil.Response get(String url, Class<?> type) throws IOException {
+        return execute(new HttpGet(url), type, null);
+    }
+
+    @Override
+    public HttpUtil.Response head(String url) throws IOException {
+        return execute(new HttpHead(url), null, null);
+    }
+
+    @Override
+    public HttpUtil.Response post(String url, byte[] body, Map<String, String> headers, Class<?> type) throws IOException {
+        HttpPost request = new HttpPost(url);
+        request.setEntity(new ByteArrayEntity(body));
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            request.setHeader(entry.getKey(), entry.getValue());
+        }
+        return execute(request, type, null);
+    }
+
+    @Override
+    public HttpUtil.Response download(String url, Path target) throws IOException {
+        return execute(new HttpGet(url), null, target);
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> getAsync(String url, Class<?> type) {
+        return async(() -> get(url, type));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> headAsync(String url) {
+        return async(() -> head(url));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> postAsync(String url, byte[] body, Map<String, String> headers, Class<?> type) {
+        return async(() -> post(url, body, headers, type));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> downloadAsync(String url, Path target) {
+        return async(() -> download(url, target));
+    }
+
+    /**
+     * 连接池状态，便于排查排队问题
+     */
+    public String poolStats() {
+        return connectionManager.getTotalStats().toString();
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close HTTP client", e);
+        }
+    }
+
+    /**
+     * 执行请求；成功响应按 type 从流中解码或写入 target，其余响应读取为字符串
+     */
+    private HttpUtil.Response execute(HttpRequestBase request, Class<?> type, Path target) throws IOException {
+        // Bounds the whole exchange, the socket timeout only bounds the gap between two reads
+        ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(request::abort,
+                config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Arrays.stream(response.getAllHeaders()).forEach(header -> headers.put(header.getName(), header.getValue()));
+            HttpUtil.Response result = new HttpUtil.Response(statusCode, null, headers);
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return result;
+            }
+            if (target != null && statusCode == 200) {
+                try (InputStream in = entity.getContent()) {
+                    FileUtil.writeAtomically(target, in, false, true);
+                }
+            } else if (ResponseBodies.decodes(statusCode, type)) {
+                result.setBody(ResponseBodies.readBody(entity.getContent(), type));
+            } else {
+                result.setContent(EntityUtils.toString(entity, StandardCharsets.UTF_8));
+            }
+            return result;
+        } catch (IOException e) {
+            if (request.isAborted()) {
+                throw new IOException("Request to " + request.getURI() + " timed out after " + config.getRequestTimeout(), e);
+            }
+            throw e;
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    private CompletableFuture<HttpUtil.Response> async(BlockingCall call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.execute();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    private interface BlockingCall {
+        HttpUtil.Response execute() throws IOException;
+    }
+}
@@ -0,0 +1,104 @@
+package cn.lycodeing.http;
+
+import cn.lycodeing.utils.HttpUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * HttpTransport
+ * <p>
+ * HTTP layer used by {@link cn.lycodeing.AcmeClient}. Every request is available in a
+ * synchronous and an asynchronous form; implementations provide whichever is native and the
+ * other is derived from it.
+ * </p>
+ *
+ * @author lycodeing
+ * @see ApacheHttpTransport
+ * @see JdkHttpTransport
+ */
+public interface HttpTransport extends AutoCloseable {
+
+    /**
+     * 发送 GET 请求
+     *
+     * @param type 成功响应的 JSON 类型，不为 null 时直接从响应流解码到响应的 body，
+     *             为 byte[].class 时读取原始字节
+     */
+    CompletableFuture<HttpUtil.Response> getAsync(String url, Class<?> type);
+
+    CompletableFuture<HttpUtil.Response> headAsync(String url);
+
+    /**
+     * 发送 POST 请求
+     *
+     * @param type 成功响应的 JSON 类型，不为 null 时直接从响应流解码到响应的 body，
+     *             为 byte[].class 时读取原始字节
+     */
+    CompletableFuture<HttpUtil.Response> postAsync(String url, byte[] body, Map<String, String> headers, Class<?> type);
+
+    /**
+     * 将成功响应的响应体直接写入文件，写完后原子替换目标文件；错误响应照常读取为字符串
+     */
+    CompletableFuture<HttpUtil.Response> downloadAsync(String url, Path target);
+
+    default CompletableFuture<HttpUtil.Response> getAsync(String url) {
+        return getAsync(url, null);
+    }
+
+    default CompletableFuture<HttpUtil.Response> postAsync(String url, byte[] body, Map<String, String> headers) {
+        return postAsync(url, body, headers, null);
+    }
+
+    default HttpUtil.Response get(String url) throws IOException {
+        return get(url, null);
+    }
+
+    default HttpUtil.Response get(String url, Class<?> type) throws IOException {
+        return join(getAsync(url, type));
+    }
+
+    default HttpUtil.Response head(String url) throws IOException {
+        return join(headAsync(url));
+    }
+
+    default HttpUtil.Response post(String url, byte[] body, Map<String, String> headers) throws IOException {
+        return post(url, body, headers, null);
+    }
+
+    default HttpUtil.Response post(String url, byte[] body, Map<String, String> headers, Class<?> type) throws IOException {
+        return join(postAsync(url, body, headers, type));
+    }
+
+    default HttpUtil.Response download(String url, Path target) throws IOException {
+        return join(downloadAsync(url, target));
+    }
+
+    @Override
+    void close();
+
+    /**
+     * 等待异步请求完成，将异常还原为 IOException
+     */
+    static HttpUtil.Response join(CompletableFuture<HttpUtil.Response> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
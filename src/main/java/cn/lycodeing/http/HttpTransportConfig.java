@@ -0,0 +1,62 @@
+package cn.lycodeing.http;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * HTTP 传输层配置：连接池、超时与长连接
+ *
+ * @author lycodeing
+ */
+@Data
+@Builder
+public class HttpTransportConfig {
+
+    /**
+     * 每个目标地址的最大连接数
+     */
+    @Builder.Default
+    private int maxConnectionsPerRoute = 32;
+
+    /**
+     * 连接池总连接数
+     */
+    @Builder.Default
+    private int maxConnectionsTotal = 128;
+
+    /**
+     * 建立连接的超时时间
+     */
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 两次读取数据之间的超时时间
+     */
+    @Builder.Default
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 单个请求的总超时时间，包括等待连接池
+     */
+    @Builder.Default
+    private Duration requestTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 服务器未指定 Keep-Alive 时长连接的保持时间
+     */
+    @Builder.Default
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    /**
+     * 空闲超过该时间的连接会被后台清理
+     */
+    @Builder.Default
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    public static HttpTransportConfig defaults() {
+        return HttpTransportConfig.builder().build();
+    }
+}
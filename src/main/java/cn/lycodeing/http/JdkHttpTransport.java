@@ -0,0 +1,181 @@
+package cn.lycodeing.http;
+
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.HttpUtil;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JdkHttpTransport
+ * <p>
+ * Non-blocking transport on {@link HttpClient}. HTTPS connections negotiate HTTP/2, so concurrent
+ * requests to the CA are multiplexed over a single connection instead of queueing for pooled
+ * ones, and no thread is held while a request is in flight. Typed JSON responses are decoded
+ * from the body stream and downloads are written by the client straight into a file.
+ * </p>
+ * <p>
+ * Only the connect and request timeouts of {@link HttpTransportConfig} apply. The JDK client
+ * manages its HTTP/1.1 connection pool itself; its size and idle timeout are controlled by the
+ * {@code jdk.httpclient.connectionPoolSize} and {@code jdk.httpclient.keepalive.timeout}
+ * system properties.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class JdkHttpTransport implements HttpTransport {
+
+    private static final ExecutorService DEFAULT_DECODER =
+            Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("acme-http-decode"));
+
+    @Getter
+    private final HttpTransportConfig config;
+    private final HttpClient httpClient;
+    // Decodes streamed JSON bodies, reading may block until the body has arrived
+    private final Executor decoder;
+
+    public JdkHttpTransport() {
+        this(HttpTransportConfig.defaults());
+    }
+
+    public JdkHttpTransport(HttpTransportConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * @param executor 处理响应与解码的线程池，为 null 时使用默认线程池
+     */
+    public JdkHttpTransport(HttpTransportConfig config, Executor executor) {
+        this.config = config;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(config.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.httpClient = builder.build();
+        this.decoder = executor != null ? executor : DEFAULT_DECODER;
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> getAsync(String url, Class<?> type) {
+        return send(newRequest(url).GET(), type);
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> headAsync(String url) {
+        return send(newRequest(url).method("HEAD", HttpRequest.BodyPublishers.noBody()), null);
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> postAsync(String url, byte[] body, Map<String, String> headers, Class<?> type) {
+        HttpRequest.Builder request = newRequest(url).POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(request::header);
+        return send(request, type);
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> downloadAsync(String url, Path target) {
+        Path temp;
+        try {
+            temp = FileUtil.createTempFileFor(target, false);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        // Successful bodies go straight to the temporary file, errors are kept as text
+        HttpResponse.BodyHandler<Object> handler = info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofFile(temp), path -> (Object) path)
+                : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), text -> (Object) text);
+        return httpClient.sendAsync(newRequest(url).GET().build(), handler)
+                .thenApply(response -> {
+                    HttpUtil.Response result = new HttpUtil.Response(response.statusCode(), null, headers(response));
+                    try {
+                        if (response.body() instanceof Path) {
+                            FileUtil.moveAtomically(temp, target);
+                        } else {
+                            result.setContent(emptyToNull((String) response.body()));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return result;
+                })
+                .whenComplete((response, e) -> {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        // HttpClient has no close before JDK 21, its threads are daemons and stop when idle
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(config.getRequestTimeout());
+    }
+
+    /**
+     * 成功的 JSON 响应以流的形式交给解码线程池，其余响应读取为字符串
+     */
+    private CompletableFuture<HttpUtil.Response> send(HttpRequest.Builder request, Class<?> type) {
+        HttpResponse.BodyHandler<Object> handler = info -> ResponseBodies.decodes(info.statusCode(), type)
+                ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), in -> (Object) in)
+                : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), text -> (Object) text);
+        return httpClient.sendAsync(request.build(), handler)
+                .thenApplyAsync(response -> {
+                    HttpUtil.Response result = new HttpUtil.Response(response.statusCode(), null, headers(response));
+                    if (response.body() instanceof InputStream) {
+                        // Reading blocks until the body has arrived, hence the decoder executor
+                        try {
+                            result.setBody(ResponseBodies.readBody((InputStream) response.body(), type));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    } else {
+                        result.setContent(emptyToNull((String) response.body()));
+                    }
+                    return result;
+                }, decoder);
+    }
+
+    private static Map<String, String> headers(HttpResponse<?> response) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> entry : response.headers().map().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                headers.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+
+    private static String emptyToNull(String content) {
+        return content == null || content.isEmpty() ? null : content;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
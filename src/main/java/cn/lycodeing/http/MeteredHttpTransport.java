@@ -0,0 +1,87 @@
+package cn.lycodeing.http;
+
+import cn.lycodeing.metrics.MetricNames;
+import cn.lycodeing.metrics.MetricsRegistry;
+import cn.lycodeing.utils.HttpUtil;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * MeteredHttpTransport
+ * <p>
+ * Decorates another {@link HttpTransport} and records the latency and in-flight count of every
+ * request as {@code http.get}, {@code http.head}, {@code http.post} and {@code http.download},
+ * plus a counter per status class ({@code http.status.2xx}, {@code http.status.4xx}, ...)
+ * and {@code http.status.failed} for requests that did not get a response.
+ * </p>
+ * <p>
+ * Pass it to {@link cn.lycodeing.AcmeClient#AcmeClient(String, HttpTransport)} to meter the
+ * nonce, directory and ACME requests of a client, or install it with
+ * {@link HttpUtil#setDefaultTransport(HttpTransport)} to meter the static {@link HttpUtil} helpers
+ * and every client created afterwards.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class MeteredHttpTransport implements HttpTransport {
+
+    private final HttpTransport delegate;
+    private final MetricsRegistry metrics;
+
+    public MeteredHttpTransport(HttpTransport delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> getAsync(String url, Class<?> type) {
+        return meter("get", () -> delegate.getAsync(url, type));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> headAsync(String url) {
+        return meter("head", () -> delegate.headAsync(url));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> postAsync(String url, byte[] body, Map<String, String> headers, Class<?> type) {
+        return meter("post", () -> delegate.postAsync(url, body, headers, type));
+    }
+
+    @Override
+    public CompletableFuture<HttpUtil.Response> downloadAsync(String url, Path target) {
+        return meter("download", () -> delegate.downloadAsync(url, target));
+    }
+
+    private CompletableFuture<HttpUtil.Response> meter(String method, Supplier<CompletableFuture<HttpUtil.Response>> request) {
+        String name = MetricNames.HTTP_PREFIX + method;
+        long start = metrics.start(name);
+        CompletableFuture<HttpUtil.Response> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            metrics.stop(name, start);
+            metrics.increment(MetricNames.HTTP_STATUS_PREFIX + "failed");
+            throw e;
+        }
+        return future.whenComplete((response, error) -> {
+            metrics.stop(name, start);
+            metrics.increment(MetricNames.HTTP_STATUS_PREFIX + (response == null ? "failed" : response.getStatusCode() / 100 + "xx"));
+        });
+    }
+
+    /**
+     * 被包装的传输层
+     */
+    public HttpTransport getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
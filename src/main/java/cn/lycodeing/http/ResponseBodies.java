@@ -0,0 +1,41 @@
+package cn.lycodeing.http;
+
+import cn.lycodeing.utils.GsonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 响应体的流式处理：JSON 直接解码，二进制原样读取
+ *
+ * @author lycodeing
+ */
+final class ResponseBodies {
+
+    private ResponseBodies() {
+    }
+
+    /**
+     * 成功响应才按类型解码，错误响应需要保留原文解析 ACME problem
+     */
+    static boolean decodes(int statusCode, Class<?> type) {
+        return type != null && statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * 从输入流解码 JSON，不经过中间字符串；类型为 byte[] 时原样读取，如 OCSP 响应
+     */
+    static Object readBody(InputStream in, Class<?> type) throws IOException {
+        if (type == byte[].class) {
+            try (InputStream body = in) {
+                return body.readAllBytes();
+            }
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return GsonUtils.fromJson(reader, type);
+        }
+    }
+}
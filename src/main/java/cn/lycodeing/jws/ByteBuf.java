@@ -0,0 +1,135 @@
+package cn.lycodeing.jws;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的字节缓冲区，提供 JSON 与 Base64url 写入
+ *
+ * @author lycodeing
+ */
+final class ByteBuf {
+
+    private static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes();
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    byte[] bytes;
+
+    int length;
+
+    ByteBuf(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    ByteBuf write(byte b) {
+        ensure(1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    /**
+     * 写入只包含 ASCII 字符的常量
+     */
+    ByteBuf writeAscii(String value) {
+        int n = value.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            bytes[length++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    ByteBuf write(byte[] src, int offset, int count) {
+        ensure(count);
+        System.arraycopy(src, offset, bytes, length, count);
+        length += count;
+        return this;
+    }
+
+    /**
+     * 写入带引号并转义的 JSON 字符串，非 ASCII 字符按 UTF-8 编码
+     */
+    ByteBuf writeJsonString(String value) {
+        int n = value.length();
+        ensure(n * 3 + 2);
+        bytes[length++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                bytes[length++] = '\\';
+                bytes[length++] = (byte) c;
+            } else if (c < 0x20) {
+                ensure(6);
+                bytes[length++] = '\\';
+                bytes[length++] = 'u';
+                bytes[length++] = '0';
+                bytes[length++] = '0';
+                bytes[length++] = HEX[c >> 4];
+                bytes[length++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensure(1);
+        bytes[length++] = '"';
+        return this;
+    }
+
+    /**
+     * 以 Base64url（无填充）编码写入 src[offset, offset + count)
+     */
+    ByteBuf writeBase64Url(byte[] src, int offset, int count) {
+        ensure((count + 2) / 3 * 4);
+        int end = offset + count;
+        int i = offset;
+        for (; i + 3 <= end; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            bytes[length++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            bytes[length++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            bytes[length++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            bytes[length++] = BASE64_URL[bits & 0x3F];
+        }
+        int remaining = end - i;
+        if (remaining == 1) {
+            int bits = (src[i] & 0xFF) << 16;
+            bytes[length++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            bytes[length++] = BASE64_URL[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            bytes[length++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            bytes[length++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            bytes[length++] = BASE64_URL[(bits >>> 6) & 0x3F];
+        }
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+}
@@ -0,0 +1,179 @@
+package cn.lycodeing.jws;
+
+import cn.lycodeing.enums.JwsAlgorithmEnum;
+import cn.lycodeing.request.Identifier;
+import cn.lycodeing.request.Jwk;
+import cn.lycodeing.request.Payload;
+import cn.lycodeing.request.ProtectedHeader;
+import cn.lycodeing.utils.AcmeUtils;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JwsBuilder
+ * <p>
+ * Builds the flattened JWS JSON body of a signed ACME request with as few allocations as possible.
+ * The protected header and payload are written as JSON straight into per-thread byte buffers,
+ * Base64url-encoded once into the signing input, and signed with a per-thread cached
+ * {@link Signature}. Only the final request body is allocated.
+ * </p>
+ * <p>
+ * The JSON writers mirror the fields of {@link ProtectedHeader} and {@link Payload}; null fields
+ * are omitted just like Gson does. New fields must be added here as well.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public final class JwsBuilder {
+
+    private static final ThreadLocal<JwsBuilder> LOCAL = ThreadLocal.withInitial(JwsBuilder::new);
+
+    private final ByteBuf json = new ByteBuf(1024);
+    private final ByteBuf signingInput = new ByteBuf(2048);
+    private final ByteBuf output = new ByteBuf(4096);
+    private final Map<JwsAlgorithmEnum, Signature> signatures = new EnumMap<>(JwsAlgorithmEnum.class);
+
+    private JwsBuilder() {
+    }
+
+    /**
+     * 生成签名后的 JWS 请求体
+     *
+     * @param privateKey 账户私钥
+     * @param header     保护头
+     * @param payload    请求体，为 null 时生成 POST-as-GET 的空 payload
+     * @return UTF-8 编码的 JWS JSON
+     */
+    public static byte[] sign(PrivateKey privateKey, ProtectedHeader header, Payload payload) throws GeneralSecurityException {
+        return LOCAL.get().build(privateKey, header, payload);
+    }
+
+    private byte[] build(PrivateKey privateKey, ProtectedHeader header, Payload payload) throws GeneralSecurityException {
+        signingInput.reset();
+        json.reset();
+        writeHeader(header);
+        signingInput.writeBase64Url(json.bytes, 0, json.length);
+        int headerLength = signingInput.length;
+        signingInput.write((byte) '.');
+        if (payload != null) {
+            json.reset();
+            writePayload(payload);
+            signingInput.writeBase64Url(json.bytes, 0, json.length);
+        }
+
+        JwsAlgorithmEnum algorithm = JwsAlgorithmEnum.of(privateKey);
+        Signature signature = signatures.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm.getSignatureAlgorithm());
+            signatures.put(algorithm, signature);
+        }
+        signature.initSign(privateKey);
+        signature.update(signingInput.bytes, 0, signingInput.length);
+        byte[] sign = signature.sign();
+        if (algorithm.getCoordinateLength() > 0) {
+            sign = AcmeUtils.derToConcatenated(sign, algorithm.getCoordinateLength());
+        }
+
+        int payloadOffset = headerLength + 1;
+        output.reset();
+        output.writeAscii("{\"protected\":\"").write(signingInput.bytes, 0, headerLength)
+                .writeAscii("\",\"payload\":\"").write(signingInput.bytes, payloadOffset, signingInput.length - payloadOffset)
+                .writeAscii("\",\"signature\":\"").writeBase64Url(sign, 0, sign.length)
+                .writeAscii("\"}");
+        return output.toByteArray();
+    }
+
+    private void writeHeader(ProtectedHeader header) {
+        json.write((byte) '{');
+        boolean first = writeField(true, "alg", header.getAlg());
+        if (header.getJwk() != null) {
+            first = writeName(first, "jwk");
+            writeJwk(header.getJwk());
+        }
+        first = writeField(first, "kid", header.getKid());
+        first = writeField(first, "nonce", header.getNonce());
+        writeField(first, "url", header.getUrl());
+        json.write((byte) '}');
+    }
+
+    private void writeJwk(Jwk jwk) {
+        json.write((byte) '{');
+        boolean first = writeField(true, "crv", jwk.getCrv());
+        first = writeField(first, "e", jwk.getE());
+        first = writeField(first, "kty", jwk.getKty());
+        first = writeField(first, "n", jwk.getN());
+        first = writeField(first, "x", jwk.getX());
+        writeField(first, "y", jwk.getY());
+        json.write((byte) '}');
+    }
+
+    private void writePayload(Payload payload) {
+        json.write((byte) '{');
+        boolean first = writeField(true, "email", payload.getEmail());
+        List<String> contact = payload.getContact();
+        if (contact != null) {
+            first = writeName(first, "contact");
+            json.write((byte) '[');
+            for (int i = 0; i < contact.size(); i++) {
+                if (i > 0) {
+                    json.write((byte) ',');
+                }
+                json.writeJsonString(contact.get(i));
+            }
+            json.write((byte) ']');
+        }
+        if (payload.getTermsOfServiceAgreed() != null) {
+            first = writeName(first, "termsOfServiceAgreed");
+            json.writeAscii(payload.getTermsOfServiceAgreed().toString());
+        }
+        if (payload.getOnlyReturnExisting() != null) {
+            first = writeName(first, "onlyReturnExisting");
+            json.writeAscii(payload.getOnlyReturnExisting().toString());
+        }
+        List<Identifier> identifiers = payload.getIdentifiers();
+        if (identifiers != null) {
+            first = writeName(first, "identifiers");
+            json.write((byte) '[');
+            for (int i = 0; i < identifiers.size(); i++) {
+                if (i > 0) {
+                    json.write((byte) ',');
+                }
+                json.write((byte) '{');
+                boolean firstMember = writeField(true, "type", identifiers.get(i).getType());
+                writeField(firstMember, "value", identifiers.get(i).getValue());
+                json.write((byte) '}');
+            }
+            json.write((byte) ']');
+        }
+        first = writeField(first, "replaces", payload.getReplaces());
+        writeField(first, "csr", payload.getCsr());
+        json.write((byte) '}');
+    }
+
+    /**
+     * 写入字符串字段，值为 null 时跳过
+     *
+     * @return 之后的字段是否仍是第一个字段
+     */
+    private boolean writeField(boolean first, String name, String value) {
+        if (value == null) {
+            return first;
+        }
+        writeName(first, name);
+        json.writeJsonString(value);
+        return false;
+    }
+
+    private boolean writeName(boolean first, String name) {
+        if (!first) {
+            json.write((byte) ',');
+        }
+        json.write((byte) '"').writeAscii(name).writeAscii("\":");
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+package cn.lycodeing.key;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * KeyPairPool
+ * <p>
+ * Pre-generates domain key pairs on background threads so that finalizing an order does not pay
+ * for key generation. The pool is filled up to {@code capacity} on creation and refilled once it
+ * drops to {@code lowWaterMark}. When the pool is empty, {@link #take()} generates a key inline.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class KeyPairPool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(KeyPairPool.class);
+
+    @Getter
+    private final KeyTypeEnum keyType;
+    @Getter
+    private final int capacity;
+    @Getter
+    private final int lowWaterMark;
+
+    private final BlockingQueue<KeyPair> keyPairs;
+    private final ExecutorService generators;
+    // Number of key pairs currently being generated in the background
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * @param keyType      密钥类型
+     * @param capacity     池容量
+     * @param lowWaterMark 低于该数量时开始后台补充
+     * @param threads      后台生成线程数
+     */
+    public KeyPairPool(KeyTypeEnum keyType, int capacity, int lowWaterMark, int threads) {
+        if (lowWaterMark >= capacity) {
+            throw new IllegalArgumentException("lowWaterMark must be less than capacity");
+        }
+        this.keyType = keyType;
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.keyPairs = new ArrayBlockingQueue<>(capacity);
+        this.generators = Executors.newFixedThreadPool(threads, ThreadUtils.daemonThreadFactory("acme-keygen"));
+        refill();
+    }
+
+    public KeyPairPool(KeyTypeEnum keyType, int capacity) {
+        this(keyType, capacity, capacity / 4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * 取出一个密钥对，池为空时直接生成
+     */
+    public KeyPair take() throws NoSuchAlgorithmException {
+        KeyPair keyPair = keyPairs.poll();
+        if (keyPairs.size() <= lowWaterMark) {
+            refill();
+        }
+        if (keyPair == null) {
+            logger.debug("Key pair pool empty, generating {} key inline", keyType);
+            keyPair = CryptoUtils.generateKeyPair(keyType);
+        }
+        return keyPair;
+    }
+
+    public int size() {
+        return keyPairs.size();
+    }
+
+    /**
+     * 提交后台任务将池补满
+     */
+    private void refill() {
+        while (!generators.isShutdown()) {
+            int scheduled = inFlight.get();
+            if (keyPairs.size() + scheduled >= capacity) {
+                return;
+            }
+            if (inFlight.compareAndSet(scheduled, scheduled + 1)) {
+                try {
+                    generators.execute(this::generate);
+                } catch (RejectedExecutionException e) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void generate() {
+        try {
+            keyPairs.offer(CryptoUtils.generateKeyPair(keyType));
+        } catch (Exception e) {
+            logger.error("Failed to generate {} key pair", keyType, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        generators.shutdownNow();
+    }
+}
@@ -0,0 +1,153 @@
+package cn.lycodeing.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JmxExporter
+ * <p>
+ * Publishes a {@link SimpleMetricsRegistry} as one dynamic MBean named
+ * {@code cn.lycodeing:type=AcmeMetrics,name=<name>}, so that JConsole, jmx_exporter or any JMX
+ * based monitoring can read and alert on it without an extra service. Attributes are read from
+ * the registry on every access and new metrics show up as soon as they are first recorded:
+ * </p>
+ * <ul>
+ *     <li>{@code <histogram>.count}, {@code .meanMillis}, {@code .p50Millis}, {@code .p90Millis},
+ *     {@code .p99Millis} and {@code .maxMillis} for every latency histogram</li>
+ *     <li>{@code <counter>} for every counter</li>
+ *     <li>{@code <name>.inFlight} for every in-flight gauge</li>
+ * </ul>
+ *
+ * @author lycodeing
+ */
+public class JmxExporter implements DynamicMBean, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(JmxExporter.class);
+
+    private static final String[] HISTOGRAM_ATTRIBUTES = {"count", "meanMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis"};
+    private static final String IN_FLIGHT = ".inFlight";
+
+    private final SimpleMetricsRegistry registry;
+    private final ObjectName objectName;
+    private final MBeanServer server;
+
+    /**
+     * 注册到平台 MBeanServer
+     *
+     * @param name MBean 名称中的 name 属性，区分同一进程中的多个客户端
+     */
+    public JmxExporter(SimpleMetricsRegistry registry, String name) throws JMException {
+        this(registry, name, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxExporter(SimpleMetricsRegistry registry, String name, MBeanServer server) throws JMException {
+        this.registry = registry;
+        this.server = server;
+        this.objectName = ObjectName.getInstance("cn.lycodeing:type=AcmeMetrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        logger.info("Exporting ACME metrics as {}", objectName);
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter;
+        }
+        if (attribute.endsWith(IN_FLIGHT)) {
+            Long inFlight = registry.getInFlight().get(attribute.substring(0, attribute.length() - IN_FLIGHT.length()));
+            if (inFlight != null) {
+                return inFlight;
+            }
+        }
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram histogram = dot < 0 ? null : registry.getHistogram(attribute.substring(0, dot));
+        if (histogram != null) {
+            switch (attribute.substring(dot + 1)) {
+                case "count":
+                    return histogram.getCount();
+                case "meanMillis":
+                    return histogram.getMean() / 1e6;
+                case "p50Millis":
+                    return histogram.percentile(50) / 1e6;
+                case "p90Millis":
+                    return histogram.percentile(90) / 1e6;
+                case "p99Millis":
+                    return histogram.percentile(99) / 1e6;
+                case "maxMillis":
+                    return histogram.getMax() / 1e6;
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                logger.debug("Unknown metrics attribute {}", attribute);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getHistograms().keySet()) {
+            for (String suffix : HISTOGRAM_ATTRIBUTES) {
+                String type = "count".equals(suffix) ? Long.class.getName() : Double.class.getName();
+                attributes.add(new MBeanAttributeInfo(name + "." + suffix, type, name + " latency " + suffix, true, false, false));
+            }
+        }
+        for (Map.Entry<String, Long> counter : registry.getCounters().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(counter.getKey(), Long.class.getName(), "Counter", true, false, false));
+        }
+        for (String name : registry.getInFlight().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name + IN_FLIGHT, Long.class.getName(), name + " in flight", true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "ACME client metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    /**
+     * 从 MBeanServer 注销
+     */
+    @Override
+    public void close() {
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.warn("Failed to unregister {}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package cn.lycodeing.metrics;
+
+/**
+ * 客户端上报的指标名
+ *
+ * @author lycodeing
+ */
+public final class MetricNames {
+
+    // Steps of the issuance flow, recorded as latency and in-flight
+    public static final String NONCE = "acme.nonce";
+    public static final String NEW_ACCOUNT = "acme.newAccount";
+    public static final String NEW_ORDER = "acme.newOrder";
+    public static final String AUTHORIZATION = "acme.authorization";
+    // Counter of authorizations skipped because the AuthorizationCache holds them as valid
+    public static final String AUTHORIZATION_CACHED = "acme.authorization.cached";
+    public static final String CHALLENGE_PREPARE = "acme.challenge.prepare";
+    public static final String CHALLENGE_TRIGGER = "acme.challenge.trigger";
+    // Time from triggering a challenge until it is valid or invalid
+    public static final String CHALLENGE_WAIT = "acme.challenge.wait";
+    public static final String FINALIZE = "acme.finalize";
+    // Time from polling the order until it is valid or invalid
+    public static final String ORDER_WAIT = "acme.order.wait";
+    public static final String DOWNLOAD = "acme.download";
+    public static final String KEY_GENERATION = "acme.keyGeneration";
+    public static final String SIGNING = "acme.signing";
+
+    // HTTP requests by method, see MeteredHttpTransport
+    public static final String HTTP_PREFIX = "http.";
+    // Counters of HTTP responses by status class, e.g. http.status.4xx
+    public static final String HTTP_STATUS_PREFIX = "http.status.";
+
+    // Counters of ACME problems by type, e.g. acme.error.badNonce
+    public static final String ERROR_PREFIX = "acme.error.";
+    public static final String CHALLENGE_INVALID = ERROR_PREFIX + "invalidChallenge";
+    public static final String ORDER_INVALID = ERROR_PREFIX + "invalidOrder";
+
+    private MetricNames() {
+    }
+
+    /**
+     * ACME 错误类型对应的计数器名，如 urn:ietf:params:acme:error:badNonce 对应 acme.error.badNonce
+     */
+    public static String error(String problemType) {
+        return ERROR_PREFIX + (problemType == null ? "unknown" : problemType.substring(problemType.lastIndexOf(':') + 1));
+    }
+
+    /**
+     * 错误响应不是 ACME problem 时的计数器名，按状态码区分，如 acme.error.unknown.502
+     */
+    public static String unknownError(int statusCode) {
+        return ERROR_PREFIX + "unknown." + statusCode;
+    }
+}
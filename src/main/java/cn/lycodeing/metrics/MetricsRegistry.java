@@ -0,0 +1,63 @@
+package cn.lycodeing.metrics;
+
+/**
+ * 指标注册表，客户端通过它上报各步骤的延迟、错误计数和进行中的数量
+ * <p>
+ * 默认实现为 {@link SimpleMetricsRegistry}，可通过 {@link JmxExporter} 导出；接入其他监控系统时实现这三个方法即可。
+ * 所有方法会被多个线程并发调用，实现必须线程安全且足够轻量。指标名见 {@link MetricNames}。
+ * </p>
+ *
+ * @author lycodeing
+ */
+public interface MetricsRegistry {
+
+    /**
+     * 不记录任何指标
+     */
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void recordLatency(String name, long nanos) {
+        }
+
+        @Override
+        public void increment(String name) {
+        }
+
+        @Override
+        public void addInFlight(String name, int delta) {
+        }
+    };
+
+    /**
+     * 记录一次耗时
+     */
+    void recordLatency(String name, long nanos);
+
+    /**
+     * 计数器加一
+     */
+    void increment(String name);
+
+    /**
+     * 调整进行中的数量
+     */
+    void addInFlight(String name, int delta);
+
+    /**
+     * 开始计时并将进行中的数量加一
+     *
+     * @return 开始时间，传给 {@link #stop}
+     */
+    default long start(String name) {
+        addInFlight(name, 1);
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束计时并将进行中的数量减一
+     */
+    default void stop(String name, long startNanos) {
+        addInFlight(name, -1);
+        recordLatency(name, System.nanoTime() - startNanos);
+    }
+}
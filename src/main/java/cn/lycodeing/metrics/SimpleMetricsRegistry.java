@@ -0,0 +1,70 @@
+package cn.lycodeing.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存中的指标注册表，指标在第一次上报时创建
+ *
+ * @author lycodeing
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordLatency(String name, long nanos) {
+        histograms.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    @Override
+    public void increment(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void addInFlight(String name, int delta) {
+        inFlight.computeIfAbsent(name, key -> new AtomicLong()).addAndGet(delta);
+    }
+
+    /**
+     * 获取延迟直方图，未上报过时返回 null
+     */
+    public LatencyHistogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public long getInFlight(String name) {
+        AtomicLong gauge = inFlight.get(name);
+        return gauge == null ? 0 : gauge.get();
+    }
+
+    /**
+     * 按名称排序的直方图快照
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    public Map<String, Long> getInFlight() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        inFlight.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+        return snapshot;
+    }
+}
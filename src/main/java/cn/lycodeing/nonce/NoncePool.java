@@ -0,0 +1,142 @@
+package cn.lycodeing.nonce;
+
+import cn.lycodeing.consts.AcmeConsts;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.utils.HttpUtil;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * NoncePool
+ * <p>
+ * Caches Replay-Nonce values returned by the ACME server so that signed requests do not need
+ * a separate newNonce round-trip. Nonces are collected from every response; the pool only falls
+ * back to a HEAD on newNonce when it is empty, and then prefetches a few more in the background.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class NoncePool {
+    private static final Logger logger = LogManager.getLogger(NoncePool.class);
+
+    private static final ExecutorService PREFETCH_EXECUTOR =
+            Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("acme-nonce-prefetch"));
+
+    // newNonce URL, resolved lazily from the directory
+    private final Supplier<String> newNonceUrl;
+    private final HttpTransport transport;
+    private final Deque<String> nonces = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+
+    // Prefetch when the pool drops below this size (a miss always triggers a prefetch)
+    @Getter
+    @Setter
+    private int lowWaterMark = 0;
+    // Number of nonces fetched by one background prefetch
+    @Getter
+    @Setter
+    private int prefetchSize = 2;
+    // Upper bound of cached nonces, oldest ones are dropped first
+    @Getter
+    @Setter
+    private int maxSize = 64;
+
+    public NoncePool(Supplier<String> newNonceUrl) {
+        this(newNonceUrl, HttpUtil.getDefaultTransport());
+    }
+
+    public NoncePool(Supplier<String> newNonceUrl, HttpTransport transport) {
+        this.newNonceUrl = newNonceUrl;
+        this.transport = transport;
+    }
+
+    /**
+     * 取出一个 Nonce，池为空时同步请求 newNonce
+     */
+    public String take() throws IOException {
+        // Prefer the most recent nonce, older ones are more likely to have expired on the server
+        String nonce = nonces.pollLast();
+        boolean missed = nonce == null;
+        if (missed) {
+            nonce = fetch();
+        }
+        if (missed || nonces.size() < lowWaterMark) {
+            prefetchAsync();
+        }
+        return nonce;
+    }
+
+    /**
+     * 从 ACME 响应中回收 Replay-Nonce
+     */
+    public void offer(HttpUtil.Response response) {
+        if (response != null && response.getHeaders() != null) {
+            offer(response.getHeader(AcmeConsts.NONCE));
+        }
+    }
+
+    public void offer(String nonce) {
+        if (nonce == null || nonce.isEmpty()) {
+            return;
+        }
+        nonces.offerLast(nonce);
+        while (nonces.size() > maxSize) {
+            nonces.pollFirst();
+        }
+    }
+
+    public int size() {
+        return nonces.size();
+    }
+
+    /**
+     * 清空缓存的 Nonce
+     */
+    public void clear() {
+        nonces.clear();
+    }
+
+    private String fetch() throws IOException {
+        String url;
+        try {
+            url = newNonceUrl.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        HttpUtil.Response response = transport.head(url);
+        String nonce = response.getHeader(AcmeConsts.NONCE);
+        if (nonce == null) {
+            throw new IOException("newNonce response has no " + AcmeConsts.NONCE + " header");
+        }
+        return nonce;
+    }
+
+    private void prefetchAsync() {
+        if (prefetchSize <= 0 || !prefetching.compareAndSet(false, true)) {
+            return;
+        }
+        PREFETCH_EXECUTOR.execute(() -> {
+            try {
+                for (int i = 0; i < prefetchSize && nonces.size() < maxSize; i++) {
+                    offer(fetch());
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to prefetch nonce", e);
+            } finally {
+                prefetching.set(false);
+            }
+        });
+    }
+}
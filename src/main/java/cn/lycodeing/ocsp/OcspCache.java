@@ -0,0 +1,371 @@
+package cn.lycodeing.ocsp;
+
+import cn.lycodeing.enums.OcspStatusEnum;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OcspCache
+ * <p>
+ * Prefetches OCSP responses for the certificates of a {@link CertificateStore}. TLS frontends
+ * staple the saved {@code ocsp.der} (or {@link #getResponse(String)}) instead of each querying
+ * the responder themselves. A single thread takes due certificates from a delay queue in batches
+ * of at most {@code batchSize}. It groups them by responder and issuer and sends one request per
+ * group of up to {@code certificatesPerRequest} certificates. The responder is the OCSP URL in
+ * the certificate's AIA extension, unless the policy's {@code responderUrl} overrides it.
+ * </p>
+ * <p>
+ * Verified responses are kept in memory and written to the store. Each is refreshed once
+ * {@code refreshFraction} of its validity has passed. A failed fetch is retried with exponential
+ * backoff, and the previous response is served until it expires. On start, responses saved
+ * earlier are verified and reused, so a restart does not refetch responses that are still fresh.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class OcspCache implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OcspCache.class);
+
+    @Getter
+    private final CertificateStore store;
+    @Getter
+    private final OcspPolicy policy;
+    private final OcspFetcher fetcher;
+
+    // Scheduled refreshes ordered by their run time
+    private final DelayQueue<Refresh> queue = new DelayQueue<>();
+    // Current refresh of every certificate id, a refresh replaced here is dropped when it comes due
+    private final Map<String, Refresh> refreshes = new ConcurrentHashMap<>();
+    // Latest verified response by certificate id
+    private final Map<String, OcspStaple> staples = new ConcurrentHashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong fetchedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param store     证书存储，响应保存到证书目录下的 ocsp.der
+     * @param transport 发送 OCSP 请求的 HTTP 传输层
+     * @param policy    预取策略
+     */
+    public OcspCache(CertificateStore store, HttpTransport transport, OcspPolicy policy) {
+        this.store = store;
+        this.policy = policy;
+        this.fetcher = new OcspFetcher(transport);
+        this.fetcher.setClockSkew(policy.getClockSkew());
+        this.thread = new Thread(this::run, "acme-ocsp");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 加载存储中仍然有效的响应，其余未过期的证书下一轮即获取，并启动刷新线程
+     */
+    public void start() {
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        for (StoredCertificate certificate : store.getAll()) {
+            if (certificate.getNotAfter() <= now) {
+                continue;
+            }
+            if (loadSaved(certificate, now)) {
+                loaded++;
+            } else {
+                schedule(certificate, now, 0);
+            }
+        }
+        logger.info("Loaded {} saved OCSP responses, fetching {}", loaded, refreshes.size() - loaded);
+        thread.start();
+    }
+
+    /**
+     * 加入预取，下一轮即获取其响应；同一 id 的旧证书的响应被丢弃
+     */
+    public void add(StoredCertificate certificate) {
+        staples.remove(certificate.getId());
+        schedule(certificate, System.currentTimeMillis(), 0);
+    }
+
+    /**
+     * 停止预取证书的响应
+     */
+    public boolean remove(String id) {
+        staples.remove(id);
+        Refresh refresh = refreshes.remove(id);
+        if (refresh != null) {
+            queue.remove(refresh);
+        }
+        return refresh != null;
+    }
+
+    /**
+     * 证书当前的 OCSP 响应 (DER)，没有或已过期时返回 null
+     */
+    public byte[] getResponse(String id) {
+        OcspStaple staple = getStaple(id);
+        return staple != null ? staple.getResponse() : null;
+    }
+
+    /**
+     * 证书当前已校验的响应，没有或已过期时返回 null
+     */
+    public OcspStaple getStaple(String id) {
+        OcspStaple staple = staples.get(id);
+        if (staple == null || staple.getNextUpdate() > 0 && staple.getNextUpdate() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return staple;
+    }
+
+    /**
+     * 证书下次获取响应的时间，未加入预取时返回 null
+     */
+    public Instant getRefreshAt(String id) {
+        Refresh refresh = refreshes.get(id);
+        return refresh != null ? Instant.ofEpochMilli(refresh.runAt) : null;
+    }
+
+    public int size() {
+        return refreshes.size();
+    }
+
+    /**
+     * 已发送的 OCSP 请求数
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 获取并校验成功的证书响应数
+     */
+    public long getFetchedCount() {
+        return fetchedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                List<Refresh> batch = new ArrayList<>(policy.getBatchSize());
+                batch.add(queue.take());
+                queue.drainTo(batch, policy.getBatchSize() - 1);
+                batch.removeIf(refresh -> refreshes.get(refresh.certificate.getId()) != refresh);
+                try {
+                    fetch(batch);
+                } catch (RuntimeException e) {
+                    // Keep the only refresh thread alive, otherwise every response silently goes stale
+                    logger.error("OCSP refresh of {} certificates failed", batch.size(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug("OCSP cache stopped");
+        }
+    }
+
+    /**
+     * 按响应者和签发者分组，每组按 certificatesPerRequest 拆分请求并发发送，全部完成后返回
+     */
+    private void fetch(List<Refresh> batch) {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (Refresh refresh : batch) {
+            StoredCertificate certificate = refresh.certificate;
+            try {
+                List<X509Certificate> chain = store.readChain(certificate);
+                if (chain.size() < 2) {
+                    throw new IOException("Certificate chain has no issuer");
+                }
+                String url = policy.getResponderUrl() != null ? policy.getResponderUrl() : OcspFetcher.responderUrl(chain.get(0));
+                if (url == null) {
+                    logger.info("Certificate {} names no OCSP responder, not prefetching", certificate.getId());
+                    refreshes.remove(certificate.getId(), refresh);
+                    continue;
+                }
+                X509Certificate issuer = chain.get(1);
+                String key = url + " " + issuer.getSubjectX500Principal() + " " + issuer.getSerialNumber();
+                Group group = groups.computeIfAbsent(key, k -> new Group(url, issuer));
+                group.refreshes.add(refresh);
+                group.leaves.add(chain.get(0));
+            } catch (IOException | RuntimeException e) {
+                failed(Collections.singletonList(refresh), e);
+            }
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        int perRequest = Math.max(1, policy.getCertificatesPerRequest());
+        for (Group group : groups.values()) {
+            for (int from = 0; from < group.refreshes.size(); from += perRequest) {
+                int to = Math.min(from + perRequest, group.refreshes.size());
+                List<Refresh> refreshes = group.refreshes.subList(from, to);
+                List<X509Certificate> leaves = group.leaves.subList(from, to);
+                requestCount.incrementAndGet();
+                futures.add(fetcher.fetchAsync(group.url, group.issuer, leaves).handle((result, error) -> {
+                    if (error != null) {
+                        failed(refreshes, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    } else {
+                        for (int i = 0; i < refreshes.size(); i++) {
+                            Refresh refresh = refreshes.get(i);
+                            try {
+                                OcspStaple staple = result.get(leaves.get(i).getSerialNumber());
+                                if (staple == null) {
+                                    throw new IOException("No OCSP response for serial " + leaves.get(i).getSerialNumber().toString(16));
+                                }
+                                fetched(refresh, staple);
+                            } catch (IOException | RuntimeException e) {
+                                failed(Collections.singletonList(refresh), e);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void fetched(Refresh refresh, OcspStaple staple) {
+        StoredCertificate certificate = refresh.certificate;
+        if (refreshes.get(certificate.getId()) != refresh) {
+            // Removed or replaced while the request was in flight
+            return;
+        }
+        staples.put(certificate.getId(), staple);
+        if (staple.getStatus() != OcspStatusEnum.GOOD) {
+            logger.warn("OCSP status of certificate {} for {} is {}", certificate.getId(), certificate.getNames(), staple.getStatus());
+        }
+        try {
+            store.saveOcspResponse(certificate, staple.getResponse());
+        } catch (IOException e) {
+            logger.warn("Failed to save OCSP response of certificate {}", certificate.getId(), e);
+        }
+        schedule(certificate, refreshAt(staple, System.currentTimeMillis()), 0);
+        fetchedCount.incrementAndGet();
+    }
+
+    private void failed(List<Refresh> failed, Throwable error) {
+        long now = System.currentTimeMillis();
+        for (Refresh refresh : failed) {
+            if (refreshes.get(refresh.certificate.getId()) == refresh) {
+                int failures = refresh.failures + 1;
+                long delay = Math.min(policy.getRetryDelay().toMillis() << Math.min(failures - 1, 20),
+                        policy.getMaxRetryDelay().toMillis());
+                logger.warn("Failed to fetch OCSP response of certificate {}, retrying in {} ms", refresh.certificate.getId(), delay, error);
+                schedule(refresh.certificate, now + delay, failures);
+            }
+            failedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 验证并复用存储中保存的响应
+     */
+    private boolean loadSaved(StoredCertificate certificate, long now) {
+        try {
+            byte[] saved = store.readOcspResponse(certificate);
+            if (saved == null) {
+                return false;
+            }
+            List<X509Certificate> chain = store.readChain(certificate);
+            if (chain.size() < 2) {
+                return false;
+            }
+            OcspStaple staple = fetcher.verify(saved, chain.get(1), chain.subList(0, 1)).get(chain.get(0).getSerialNumber());
+            staples.put(certificate.getId(), staple);
+            schedule(certificate, refreshAt(staple, now), 0);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Ignoring saved OCSP response of certificate {}", certificate.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 在响应有效期过去 refreshFraction 时刷新，限制在 [minRefreshInterval, maxRefreshInterval] 内
+     */
+    private long refreshAt(OcspStaple staple, long now) {
+        long min = now + policy.getMinRefreshInterval().toMillis();
+        long max = now + policy.getMaxRefreshInterval().toMillis();
+        if (staple.getNextUpdate() <= 0) {
+            return max;
+        }
+        long at = staple.getThisUpdate() + (long) ((staple.getNextUpdate() - staple.getThisUpdate()) * policy.getRefreshFraction());
+        return Math.max(min, Math.min(at, max));
+    }
+
+    private void schedule(StoredCertificate certificate, long runAt, int failures) {
+        if (certificate.getNotAfter() <= runAt) {
+            remove(certificate.getId());
+            return;
+        }
+        Refresh refresh = new Refresh(certificate, runAt, failures);
+        Refresh previous = refreshes.put(certificate.getId(), refresh);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.add(refresh);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * 同一响应者和签发者的证书
+     */
+    private static class Group {
+        final String url;
+        final X509Certificate issuer;
+        final List<Refresh> refreshes = new ArrayList<>();
+        final List<X509Certificate> leaves = new ArrayList<>();
+
+        Group(String url, X509Certificate issuer) {
+            this.url = url;
+            this.issuer = issuer;
+        }
+    }
+
+    private static class Refresh implements Delayed {
+        final StoredCertificate certificate;
+        final long runAt;
+        // Consecutive failed fetches
+        final int failures;
+
+        Refresh(StoredCertificate certificate, long runAt, int failures) {
+            this.certificate = certificate;
+            this.runAt = runAt;
+            this.failures = failures;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(runAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(runAt, ((Refresh) other).runAt);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package cn.lycodeing.ocsp;
+
+import cn.lycodeing.enums.OcspStatusEnum;
+import cn.lycodeing.http.HttpTransport;
+import lombok.Getter;
+import lombok.Setter;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * OcspFetcher
+ * <p>
+ * Queries an OCSP responder (RFC 6960) for certificates of one issuer in a single request and
+ * verifies the answer: the response has to be signed by the issuer or by a responder
+ * certificate the issuer signed for OCSP signing, it has to cover every requested certificate,
+ * and it must be current within {@code clockSkew}. Requests are sent as POST through the
+ * configured {@link HttpTransport}.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class OcspFetcher {
+
+    private static final Map<String, String> HEADERS = Collections.singletonMap("Content-Type", "application/ocsp-request");
+
+    private final HttpTransport transport;
+    // Allowed clock difference to the responder when checking thisUpdate and nextUpdate
+    @Getter
+    @Setter
+    private volatile Duration clockSkew = Duration.ofMinutes(5);
+
+    public OcspFetcher(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * 读取证书 AIA 扩展中的 OCSP 地址，没有时返回 null
+     */
+    public static String responderUrl(X509Certificate certificate) throws IOException {
+        byte[] extension = certificate.getExtensionValue(Extension.authorityInfoAccess.getId());
+        if (extension == null) {
+            return null;
+        }
+        ASN1Primitive value = JcaX509ExtensionUtils.parseExtensionValue(extension);
+        for (AccessDescription description : AuthorityInformationAccess.getInstance(value).getAccessDescriptions()) {
+            if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod())
+                    && description.getAccessLocation().getTagNo() == GeneralName.uniformResourceIdentifier) {
+                return description.getAccessLocation().getName().toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在一个请求中查询同一签发者的多张证书
+     *
+     * @param url          响应者地址
+     * @param issuer       签发者证书
+     * @param certificates 要查询的证书
+     * @return 按序列号索引的已校验响应，包含所有请求的证书
+     */
+    public CompletableFuture<Map<BigInteger, OcspStaple>> fetchAsync(String url, X509Certificate issuer, List<X509Certificate> certificates) {
+        Map<CertificateID, BigInteger> ids;
+        byte[] request;
+        try {
+            ids = certificateIds(issuer, certificates);
+            OCSPReqBuilder builder = new OCSPReqBuilder();
+            ids.keySet().forEach(builder::addRequest);
+            request = builder.build().getEncoded();
+        } catch (OCSPException | IOException e) {
+            return CompletableFuture.failedFuture(new IOException("Failed to build OCSP request", e));
+        }
+        return transport.postAsync(url, request, HEADERS, byte[].class).thenApply(response -> {
+            try {
+                if (response.getStatusCode() != 200 || !(response.getBody() instanceof byte[])) {
+                    throw new IOException("OCSP responder " + url + " returned " + response.getStatusCode() + " " + response.getContent());
+                }
+                return verify((byte[]) response.getBody(), issuer, ids);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 校验之前保存的响应，如启动时从证书存储加载的响应
+     *
+     * @return 按序列号索引的已校验响应
+     * @throws IOException 响应无效、已过期或不包含所有证书时
+     */
+    public Map<BigInteger, OcspStaple> verify(byte[] response, X509Certificate issuer, List<X509Certificate> certificates) throws IOException {
+        return verify(response, issuer, certificateIds(issuer, certificates));
+    }
+
+    private static Map<CertificateID, BigInteger> certificateIds(X509Certificate issuer, List<X509Certificate> certificates) throws IOException {
+        try {
+            X509CertificateHolder issuerHolder = new JcaX509CertificateHolder(issuer);
+            DigestCalculator sha1 = new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1);
+            Map<CertificateID, BigInteger> ids = new LinkedHashMap<>();
+            for (X509Certificate certificate : certificates) {
+                ids.put(new CertificateID(sha1, issuerHolder, certificate.getSerialNumber()), certificate.getSerialNumber());
+            }
+            return ids;
+        } catch (OCSPException | OperatorCreationException | CertificateEncodingException e) {
+            throw new IOException("Failed to compute OCSP certificate ids", e);
+        }
+    }
+
+    /**
+     * 校验响应的状态、签名、覆盖范围和时间
+     */
+    private Map<BigInteger, OcspStaple> verify(byte[] der, X509Certificate issuer, Map<CertificateID, BigInteger> ids) throws IOException {
+        try {
+            OCSPResp ocspResponse = new OCSPResp(der);
+            if (ocspResponse.getStatus() != OCSPResp.SUCCESSFUL) {
+                throw new IOException("OCSP response status " + ocspResponse.getStatus());
+            }
+            BasicOCSPResp basic = (BasicOCSPResp) ocspResponse.getResponseObject();
+            verifySignature(basic, issuer);
+
+            long now = System.currentTimeMillis();
+            long skew = clockSkew.toMillis();
+            Map<BigInteger, OcspStaple> staples = new HashMap<>();
+            for (SingleResp single : basic.getResponses()) {
+                BigInteger serial = ids.get(single.getCertID());
+                if (serial == null) {
+                    continue;
+                }
+                long thisUpdate = single.getThisUpdate().getTime();
+                long nextUpdate = single.getNextUpdate() != null ? single.getNextUpdate().getTime() : 0;
+                if (thisUpdate > now + skew) {
+                    throw new IOException("OCSP response for " + serial.toString(16) + " is not yet valid");
+                }
+                if (nextUpdate > 0 && nextUpdate < now - skew) {
+                    throw new IOException("OCSP response for " + serial.toString(16) + " has expired");
+                }
+                staples.put(serial, new OcspStaple(serial, statusOf(single), thisUpdate, nextUpdate, der));
+            }
+            if (staples.size() < ids.size()) {
+                throw new IOException("OCSP response covers " + staples.size() + " of " + ids.size() + " certificates");
+            }
+            return staples;
+        } catch (OCSPException | OperatorCreationException | CertificateException e) {
+            throw new IOException("Invalid OCSP response", e);
+        }
+    }
+
+    /**
+     * 响应须由签发者签名，或由签发者签发、带 OCSPSigning 用途的委托响应者证书签名
+     */
+    private static void verifySignature(BasicOCSPResp basic, X509Certificate issuer)
+            throws OCSPException, OperatorCreationException, CertificateException, IOException {
+        ContentVerifierProvider issuerVerifier = new JcaContentVerifierProviderBuilder().build(issuer.getPublicKey());
+        if (basic.isSignatureValid(issuerVerifier)) {
+            return;
+        }
+        X509CertificateHolder issuerHolder = new JcaX509CertificateHolder(issuer);
+        Date now = new Date();
+        for (X509CertificateHolder responder : basic.getCerts()) {
+            ExtendedKeyUsage usage = ExtendedKeyUsage.fromExtensions(responder.getExtensions());
+            try {
+                if (usage != null && usage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)
+                        && responder.isValidOn(now)
+                        && responder.getIssuer().equals(issuerHolder.getSubject())
+                        && responder.isSignatureValid(issuerVerifier)
+                        && basic.isSignatureValid(new JcaContentVerifierProviderBuilder().build(responder))) {
+                    return;
+                }
+            } catch (CertException e) {
+                // Not signed by the issuer, try the next certificate
+            }
+        }
+        throw new IOException("OCSP response is not signed by the issuer or an authorized responder");
+    }
+
+    private static OcspStatusEnum statusOf(SingleResp single) {
+        CertificateStatus status = single.getCertStatus();
+        if (status == CertificateStatus.GOOD) {
+            return OcspStatusEnum.GOOD;
+        }
+        return status instanceof RevokedStatus ? OcspStatusEnum.REVOKED : OcspStatusEnum.UNKNOWN;
+    }
+}
@@ -0,0 +1,68 @@
+package cn.lycodeing.ocsp;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * OCSP 预取策略：响应者地址、批量大小、刷新时间和失败重试
+ *
+ * @author lycodeing
+ */
+@Data
+@Builder
+public class OcspPolicy {
+
+    /**
+     * 覆盖证书 AIA 中的 OCSP 地址，如本地代理或测试用的响应者，为 null 时使用 AIA
+     */
+    private String responderUrl;
+
+    /**
+     * 每轮刷新的证书数量上限，同一轮的请求并发发送
+     */
+    @Builder.Default
+    private int batchSize = 50;
+
+    /**
+     * 一个 OCSP 请求中查询的证书数量上限，同一响应者和签发者的证书合并查询；
+     * Let's Encrypt 等响应者每个请求只接受一张证书
+     */
+    @Builder.Default
+    private int certificatesPerRequest = 1;
+
+    /**
+     * 在响应有效期 (thisUpdate 到 nextUpdate) 过去该比例后刷新
+     */
+    @Builder.Default
+    private double refreshFraction = 0.5;
+
+    /**
+     * 刷新间隔的取值范围，响应没有 nextUpdate 时使用上限
+     */
+    @Builder.Default
+    private Duration minRefreshInterval = Duration.ofMinutes(1);
+
+    @Builder.Default
+    private Duration maxRefreshInterval = Duration.ofDays(1);
+
+    /**
+     * 允许的时钟偏差，用于校验 thisUpdate 和 nextUpdate
+     */
+    @Builder.Default
+    private Duration clockSkew = Duration.ofMinutes(5);
+
+    /**
+     * 获取失败后第一次重试前的等待时间，之后每次翻倍
+     */
+    @Builder.Default
+    private Duration retryDelay = Duration.ofMinutes(1);
+
+    @Builder.Default
+    private Duration maxRetryDelay = Duration.ofHours(1);
+
+    public static OcspPolicy defaults() {
+        return OcspPolicy.builder().build();
+    }
+}
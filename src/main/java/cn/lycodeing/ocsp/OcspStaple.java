@@ -0,0 +1,36 @@
+package cn.lycodeing.ocsp;
+
+import cn.lycodeing.enums.OcspStatusEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigInteger;
+
+/**
+ * 一张证书已校验的 OCSP 响应
+ *
+ * @author lycodeing
+ */
+@Data
+@AllArgsConstructor
+public class OcspStaple {
+
+    private BigInteger serial;
+
+    private OcspStatusEnum status;
+
+    /**
+     * epoch 毫秒
+     */
+    private long thisUpdate;
+
+    /**
+     * epoch 毫秒，响应没有 nextUpdate 时为 0
+     */
+    private long nextUpdate;
+
+    /**
+     * 完整的 OCSPResponse DER，可直接用于 TLS stapling；同一请求查询的证书共享同一响应
+     */
+    private byte[] response;
+}
@@ -0,0 +1,44 @@
+package cn.lycodeing.order;
+
+import cn.lycodeing.store.StoredCertificate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.security.KeyPair;
+import java.util.List;
+
+/**
+ * 一个订单签发的证书，由 {@link OrderSession#issue(List, String)} 返回
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "keyPair")
+public class IssuedCertificate {
+
+    private final List<String> domains;
+
+    /**
+     * 订单 URL
+     */
+    private final String orderUrl;
+
+    private final String certificateUrl;
+
+    /**
+     * PEM 格式的证书链，叶子证书在前
+     */
+    private final String certificateChain;
+
+    /**
+     * 证书的域名密钥对
+     */
+    private final KeyPair keyPair;
+
+    /**
+     * 客户端配置了证书存储时保存的元数据，否则为 null
+     */
+    private final StoredCertificate stored;
+}
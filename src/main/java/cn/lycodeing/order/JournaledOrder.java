@@ -0,0 +1,86 @@
+package cn.lycodeing.order;
+
+import cn.lycodeing.enums.OrderStateEnum;
+import lombok.Data;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 订单日志中的一条记录，保存订单在某个状态时的完整信息
+ * <p>
+ * 域名密钥以 PKCS#8 / X.509 DER 的 Base64 保存，在提交 CSR 之前写入，
+ * 重启后用同一个密钥完成订单，保证与已提交的 CSR 一致。
+ * </p>
+ *
+ * @author lycodeing
+ */
+@Data
+public class JournaledOrder {
+
+    /**
+     * 账户 URL (kid)
+     */
+    private String account;
+
+    private String orderUrl;
+
+    private OrderStateEnum state;
+
+    private List<String> domains;
+
+    /**
+     * 被替换证书的 ARI 标识
+     */
+    private String replaces;
+
+    private List<String> authorizations;
+
+    private String finalizeUrl;
+
+    /**
+     * 订单过期时间，epoch 毫秒，0 表示未知
+     */
+    private long expires;
+
+    /**
+     * 密钥算法，如 RSA、EC
+     */
+    private String keyAlgorithm;
+
+    private String privateKey;
+
+    private String publicKey;
+
+    /**
+     * 记录时间，epoch 毫秒
+     */
+    private long updated;
+
+    /**
+     * 保存域名密钥
+     */
+    public void setKeyPair(KeyPair keyPair) {
+        keyAlgorithm = keyPair.getPrivate().getAlgorithm();
+        privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    }
+
+    /**
+     * 还原域名密钥对，尚未生成时返回 null
+     */
+    public KeyPair toKeyPair() throws GeneralSecurityException {
+        if (privateKey == null) {
+            return null;
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+        return new KeyPair(
+                keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey))),
+                keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey))));
+    }
+}
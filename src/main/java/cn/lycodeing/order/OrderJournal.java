@@ -0,0 +1,221 @@
+package cn.lycodeing.order;
+
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.GsonUtils;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * OrderJournal
+ * <p>
+ * Write-ahead journal of order state. Every transition of an order is appended as one JSON line
+ * holding the full {@link JournaledOrder} and is on disk before {@link #record} returns, so the
+ * request that follows it (e.g. finalize with the journaled domain key) can be repeated after a
+ * crash. On start the journal is replayed and the last record of every order that is neither
+ * completed, failed nor expired is kept as pending.
+ * </p>
+ * <p>
+ * Concurrent writers share fsyncs: a record appended while another thread is syncing is covered
+ * by the next sync, which then confirms every record appended up to that point. Completed and
+ * superseded lines are dropped by rewriting the file on start and once they outnumber the
+ * pending orders. A torn last line left by a crash is skipped on replay.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class OrderJournal implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OrderJournal.class);
+
+    @Getter
+    private final Path file;
+
+    // Last record of every pending order by order URL
+    private final Map<String, JournaledOrder> pending = new LinkedHashMap<>();
+    // Serializes syncs and compaction, acquired before the journal lock
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    // Lines in the file that no longer describe a pending order
+    private int staleLines;
+    // Sequence number of the last appended record
+    private long appended;
+    // Sequence number of the last record known to be on disk
+    private volatile long synced;
+    // Number of fsyncs, less than the number of records when writers share them
+    @Getter
+    private volatile long syncCount;
+
+    /**
+     * 重放日志文件，之后的记录追加到该文件
+     */
+    public OrderJournal(Path file) throws IOException {
+        this.file = file;
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        apply(GsonUtils.fromJson(line, JournaledOrder.class));
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping corrupt order journal line in {}", file, e);
+                    }
+                }
+            }
+            removeExpired();
+            logger.info("Replayed {} pending orders from {}", pending.size(), file);
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * 所有未完成的订单
+     */
+    public synchronized List<JournaledOrder> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * 某个账户未完成的订单
+     */
+    public synchronized List<JournaledOrder> getPending(String account) {
+        return pending.values().stream()
+                .filter(order -> order.getAccount().equals(account))
+                .collect(Collectors.toList());
+    }
+
+    public synchronized JournaledOrder get(String orderUrl) {
+        return pending.get(orderUrl);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * 记录订单状态并等待其写入磁盘
+     */
+    public void record(JournaledOrder order) throws IOException {
+        order.setUpdated(System.currentTimeMillis());
+        String json = GsonUtils.toJson(order);
+        // Keep a copy, the caller goes on changing its instance
+        long sequence = append(GsonUtils.fromJson(json, JournaledOrder.class), json);
+        sync(sequence);
+        boolean compact;
+        synchronized (this) {
+            compact = staleLines > Math.max(64, pending.size());
+        }
+        if (compact) {
+            synchronized (syncLock) {
+                synchronized (this) {
+                    compact();
+                }
+            }
+        }
+    }
+
+    private synchronized long append(JournaledOrder order, String json) throws IOException {
+        if (channel == null) {
+            throw new IOException("Order journal " + file + " is closed");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        apply(order);
+        return ++appended;
+    }
+
+    /**
+     * 等待记录写入磁盘，其他线程的 fsync 已覆盖该记录时直接返回
+     */
+    private void sync(long sequence) throws IOException {
+        if (synced >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appended;
+                current = channel;
+            }
+            current.force(false);
+            syncCount++;
+            synced = target;
+        }
+    }
+
+    private void apply(JournaledOrder order) {
+        JournaledOrder previous = order.getState().isTerminal()
+                ? pending.remove(order.getOrderUrl())
+                : pending.put(order.getOrderUrl(), order);
+        if (previous != null) {
+            staleLines++;
+        }
+        if (order.getState().isTerminal()) {
+            staleLines++;
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        int before = pending.size();
+        pending.values().removeIf(order -> order.getExpires() > 0 && order.getExpires() <= now);
+        staleLines += before - pending.size();
+    }
+
+    /**
+     * 只保留未完成订单的最后一条记录，刷盘后原子替换文件，调用方需持有 syncLock 和本对象锁
+     */
+    private void compact() throws IOException {
+        removeExpired();
+        StringBuilder content = new StringBuilder();
+        for (JournaledOrder order : pending.values()) {
+            content.append(GsonUtils.toJson(order)).append('\n');
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        // Pending records hold domain keys
+        FileUtil.writeAtomically(file, content.toString().getBytes(StandardCharsets.UTF_8), true, true);
+        channel = FileUtil.openForAppend(file, true);
+        staleLines = 0;
+        synced = appended;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                    channel = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package cn.lycodeing.order;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.ChallengeStatusEnum;
+import cn.lycodeing.response.OrderResponse;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import cn.lycodeing.utils.CryptoUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * OrderSession
+ * <p>
+ * Holds the state of a single ACME order. A session works on its own {@link AcmeClient#fork()}
+ * of the account client, so any number of sessions of one account can run concurrently, and
+ * changing the configuration of the account client later does not affect sessions in flight.
+ * </p>
+ * <p>
+ * Every step returns a {@link CompletableFuture}. Steps that block, such as signing a request or
+ * generating the domain key, run on the executor of the client; authorizations, challenges and
+ * the order are polled without holding a thread. A session drives one order and is not meant to
+ * be shared between threads.
+ * </p>
+ * <p>
+ * With an {@link OrderJournal} on the client every step is journaled, and {@link #resume}
+ * continues a journaled order after a restart from the state the CA reports for it.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class OrderSession {
+    private static final Logger logger = LogManager.getLogger(OrderSession.class);
+
+    // Fork of the account client holding the order state
+    private final AcmeClient client;
+
+    /**
+     * @param account 已创建账户的客户端
+     */
+    public OrderSession(AcmeClient account) {
+        this.client = account.fork();
+    }
+
+    /**
+     * 依次执行创建订单、验证、完成订单、等待签发和下载
+     */
+    public CompletableFuture<IssuedCertificate> issue(List<String> domains) {
+        return issue(domains, null);
+    }
+
+    /**
+     * @param replaces 被替换证书的 ARI 标识，为 null 时创建普通订单
+     */
+    public CompletableFuture<IssuedCertificate> issue(List<String> domains, String replaces) {
+        return newOrderAsync(domains, replaces)
+                .thenCompose(created -> validateAsync())
+                .thenCompose(validated -> finalizeAsync())
+                .thenCompose(finalized -> awaitOrderAsync())
+                .thenCompose(order -> downloadAsync());
+    }
+
+    /**
+     * 继续订单日志中未完成的订单：待验证的先验证，已就绪的用日志中的密钥完成订单，
+     * 处理中或已生效的直接等待并下载证书
+     */
+    public CompletableFuture<IssuedCertificate> resume(JournaledOrder order) {
+        try {
+            client.restoreOrder(order);
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        logger.info("Resuming order {} journaled as {}, domains: {}", order.getOrderUrl(), order.getState(), order.getDomains());
+        return continueAsync();
+    }
+
+    /**
+     * 按 CA 报告的状态继续本会话已创建的订单，不创建新订单，例如某一步被限流之后
+     */
+    public CompletableFuture<IssuedCertificate> continueAsync() {
+        if (client.getOrderUrl() == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No order to continue"));
+        }
+        return client.refreshOrderAsync().thenCompose(current -> {
+            String status = current.getStatus();
+            logger.info("Continuing {} order {}", status, client.getOrderUrl());
+            if (ChallengeStatusEnum.PENDING.getStatus().equalsIgnoreCase(status)) {
+                return validateAsync()
+                        .thenCompose(validated -> finalizeAsync())
+                        .thenCompose(finalized -> awaitOrderAsync())
+                        .thenCompose(issued -> downloadAsync());
+            }
+            if (ChallengeStatusEnum.READY.getStatus().equalsIgnoreCase(status)) {
+                return finalizeAsync()
+                        .thenCompose(finalized -> awaitOrderAsync())
+                        .thenCompose(issued -> downloadAsync());
+            }
+            if (client.getDomainKeyPair() == null) {
+                throw new IllegalStateException("Order " + client.getOrderUrl() + " was finalized without a domain key");
+            }
+            return awaitOrderAsync().thenCompose(issued -> downloadAsync());
+        });
+    }
+
+    /**
+     * 创建订单
+     */
+    public CompletableFuture<Void> newOrderAsync(List<String> domains, String replaces) {
+        return runAsync(() -> client.newOrder(domains, replaces));
+    }
+
+    /**
+     * 验证订单的所有授权
+     */
+    public CompletableFuture<Void> validateAsync() {
+        return client.validateOrderAsync();
+    }
+
+    /**
+     * 生成域名密钥并提交 CSR
+     */
+    public CompletableFuture<Void> finalizeAsync() {
+        return runAsync(() -> client.finalizeOrder(client.getFinalizeOrderUrl()));
+    }
+
+    /**
+     * 轮询订单直到证书签发
+     */
+    public CompletableFuture<OrderResponse> awaitOrderAsync() {
+        return client.getOrderAsync();
+    }
+
+    /**
+     * 下载证书链，配置了证书存储时一并保存
+     */
+    public CompletableFuture<IssuedCertificate> downloadAsync() {
+        return client.downloadCertificateAsync().thenApplyAsync(chain -> {
+            StoredCertificate stored = null;
+            CertificateStore store = client.getCertificateStore();
+            if (store != null) {
+                try {
+                    stored = store.save(CryptoUtils.hash256AndEncodeToBase64(getOrderUrl()),
+                            chain.getBytes(StandardCharsets.US_ASCII), client.getDomainKeyPair().getPrivate());
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }
+            IssuedCertificate issued = new IssuedCertificate(getDomains(), getOrderUrl(), client.getCertificateUrl(), chain,
+                    client.getDomainKeyPair(), stored);
+            client.completeOrder();
+            if (stored != null && client.getOcspCache() != null) {
+                client.getOcspCache().add(stored);
+            }
+            return issued;
+        }, client.getExecutor());
+    }
+
+    public List<String> getDomains() {
+        return client.getDomains();
+    }
+
+    public String getOrderUrl() {
+        return client.getOrderUrl() != null ? client.getOrderUrl() : client.getFinalizeOrderUrl();
+    }
+
+    public AcmeClient getClient() {
+        return client;
+    }
+
+    private CompletableFuture<Void> runAsync(Step step) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, client.getExecutor());
+    }
+
+    /**
+     * 可能抛出受检异常的阻塞步骤
+     */
+    private interface Step {
+        void run() throws Exception;
+    }
+}
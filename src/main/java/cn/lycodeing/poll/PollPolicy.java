@@ -0,0 +1,50 @@
+package cn.lycodeing.poll;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 轮询策略：指数退避 + 抖动 + 总超时
+ *
+ * @author lycodeing
+ */
+@Data
+@Builder
+public class PollPolicy {
+
+    /**
+     * 第一次重试前的等待时间
+     */
+    @Builder.Default
+    private Duration initialDelay = Duration.ofSeconds(1);
+
+    /**
+     * 单次等待时间上限
+     */
+    @Builder.Default
+    private Duration maxDelay = Duration.ofSeconds(30);
+
+    /**
+     * 每次重试等待时间的倍数
+     */
+    @Builder.Default
+    private double multiplier = 2.0;
+
+    /**
+     * 抖动比例，0.2 表示在 ±20% 范围内随机
+     */
+    @Builder.Default
+    private double jitter = 0.2;
+
+    /**
+     * 轮询总超时时间
+     */
+    @Builder.Default
+    private Duration timeout = Duration.ofMinutes(10);
+
+    public static PollPolicy defaults() {
+        return PollPolicy.builder().build();
+    }
+}
@@ -0,0 +1,31 @@
+package cn.lycodeing.poll;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 单次轮询的结果
+ *
+ * @author lycodeing
+ */
+@Getter
+@AllArgsConstructor
+public class PollResult<T> {
+
+    private final boolean done;
+
+    private final T value;
+
+    /**
+     * 服务端通过 Retry-After 建议的等待毫秒数，小于 0 表示未指定
+     */
+    private final long retryAfterMillis;
+
+    public static <T> PollResult<T> done(T value) {
+        return new PollResult<>(true, value, -1);
+    }
+
+    public static <T> PollResult<T> pending(long retryAfterMillis) {
+        return new PollResult<>(false, null, retryAfterMillis);
+    }
+}
@@ -0,0 +1,86 @@
+package cn.lycodeing.poll;
+
+import cn.lycodeing.utils.ThreadUtils;
+
+import java.util.concurrent.*;
+
+/**
+ * Poller
+ * <p>
+ * Repeats an attempt until it reports completion, without holding a thread between attempts.
+ * Each attempt runs on the given executor; the wait in between is a task on a small shared
+ * scheduler. The delay is the server's Retry-After when present, otherwise a capped exponential
+ * backoff with jitter. The returned future fails with {@link TimeoutException} once the policy's
+ * timeout would be exceeded.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class Poller {
+
+    private static final ScheduledExecutorService DEFAULT_SCHEDULER =
+            Executors.newScheduledThreadPool(1, ThreadUtils.daemonThreadFactory("acme-poller"));
+
+    private final ScheduledExecutorService scheduler;
+
+    public Poller() {
+        this(DEFAULT_SCHEDULER);
+    }
+
+    public Poller(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 开始轮询，第一次尝试立即执行
+     *
+     * @param attempt  单次尝试，返回完成结果或等待建议
+     * @param policy   轮询策略
+     * @param executor 执行尝试的线程池
+     * @return 轮询结果
+     */
+    public <T> CompletableFuture<T> poll(Callable<PollResult<T>> attempt, PollPolicy policy, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadline = System.nanoTime() + policy.getTimeout().toNanos();
+        executor.execute(() -> run(attempt, policy, executor, future, deadline, 0));
+        return future;
+    }
+
+    private <T> void run(Callable<PollResult<T>> attempt, PollPolicy policy, Executor executor,
+                         CompletableFuture<T> future, long deadline, int attempts) {
+        if (future.isDone()) {
+            return;
+        }
+        PollResult<T> result;
+        try {
+            result = attempt.call();
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (result.isDone()) {
+            future.complete(result.getValue());
+            return;
+        }
+        long delay = result.getRetryAfterMillis() >= 0 ? result.getRetryAfterMillis() : backoff(policy, attempts);
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) > deadline) {
+            future.completeExceptionally(new TimeoutException("Polling timed out after " + (attempts + 1) + " attempts"));
+            return;
+        }
+        scheduler.schedule(() -> executor.execute(() -> run(attempt, policy, executor, future, deadline, attempts + 1)),
+                delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 计算第 n 次重试的等待时间
+     */
+    static long backoff(PollPolicy policy, int attempts) {
+        double delay = policy.getInitialDelay().toMillis() * Math.pow(policy.getMultiplier(), attempts);
+        delay = Math.min(delay, policy.getMaxDelay().toMillis());
+        double jitter = policy.getJitter();
+        if (jitter > 0) {
+            delay *= 1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter;
+        }
+        return (long) Math.min(delay, policy.getMaxDelay().toMillis());
+    }
+}
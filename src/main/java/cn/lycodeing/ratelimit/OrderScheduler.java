@@ -0,0 +1,324 @@
+package cn.lycodeing.ratelimit;
+
+import cn.lycodeing.bulk.OrderPlanner;
+import cn.lycodeing.challenge.ChallengeFailedException;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.order.OrderSession;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * OrderScheduler
+ * <p>
+ * Runs order tasks of one ACME account as fast as the CA's rate limits allow. It keeps three
+ * kinds of {@link TokenBucket}: new orders of the account, certificates per registered domain
+ * and failed validations per hostname. A task is started only when the account bucket and the
+ * bucket of every registered domain in the order have a token, and no hostname of the order has
+ * used up its failed validations. Otherwise the task is parked on a {@link DelayQueue} until the
+ * earliest time all buckets can serve it, without holding a worker thread.
+ * </p>
+ * <p>
+ * When a task fails with {@link RateLimitedException} (a 429 from the CA), the account bucket
+ * is paused for the Retry-After time and the task is parked again, up to
+ * {@code maxRateLimitRetries} times. A {@link ChallengeFailedException} is charged to the failed
+ * validations of its hostname and fails the task.
+ * </p>
+ * <p>
+ * A task given to {@link #submit} runs again from the start after a 429 and is charged to the
+ * buckets again. It must therefore be idempotent and continue the order it already created rather
+ * than create a new one. {@link #issue} does this for an {@link OrderSession}: once the order
+ * exists, a retry only continues it from the state the CA reports, and waits for the pause of the
+ * account bucket without taking another token.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class OrderScheduler implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OrderScheduler.class);
+
+    /**
+     * 订单任务
+     */
+    @FunctionalInterface
+    public interface OrderTask<T> {
+        T run() throws Exception;
+    }
+
+    @Getter
+    private final RateLimitPolicy policy;
+    private final LongSupplier clock;
+    private final TokenBucket orders;
+    private final Map<String, TokenBucket> certificates = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> failedValidations = new ConcurrentHashMap<>();
+    private final DelayQueue<Job<?>> parked = new DelayQueue<>();
+    private final ExecutorService defaultExecutor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    // Groups hostnames by registered domain
+    @Setter
+    private OrderPlanner planner = new OrderPlanner();
+    // Number of times a task was parked because a bucket was empty or the CA returned 429
+    private final AtomicLong parkedCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+
+    public OrderScheduler(RateLimitPolicy policy) {
+        this(policy, System::nanoTime);
+    }
+
+    /**
+     * @param clock 纳秒时钟，与 System.nanoTime 语义相同
+     */
+    public OrderScheduler(RateLimitPolicy policy, LongSupplier clock) {
+        this.policy = policy;
+        this.clock = clock;
+        this.orders = new TokenBucket(policy.getOrdersPerAccount(), policy.getOrderWindow(), clock);
+        this.defaultExecutor = Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("acme-order"));
+        this.dispatcher = new Thread(this::dispatch, "acme-order-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * 提交订单任务，在默认线程池中执行
+     *
+     * @param domains 订单包含的域名，用于选择令牌桶
+     */
+    public <T> CompletableFuture<T> submit(List<String> domains, OrderTask<T> task) {
+        return submit(domains, task, defaultExecutor);
+    }
+
+    /**
+     * 提交订单任务，令牌足够时在指定线程池中执行
+     */
+    public <T> CompletableFuture<T> submit(List<String> domains, OrderTask<T> task, Executor executor) {
+        return submit(new Job<>(domains, task, executor, null));
+    }
+
+    /**
+     * 通过会话签发证书，在默认线程池中执行
+     */
+    public CompletableFuture<IssuedCertificate> issue(OrderSession session, List<String> domains) {
+        return issue(session, domains, defaultExecutor);
+    }
+
+    /**
+     * 通过会话签发证书；订单创建后被限流时从 CA 报告的状态继续同一个订单，不再创建新订单
+     */
+    public CompletableFuture<IssuedCertificate> issue(OrderSession session, List<String> domains, Executor executor) {
+        OrderTask<IssuedCertificate> task = () -> {
+            CompletableFuture<IssuedCertificate> issued = session.getOrderUrl() == null
+                    ? session.issue(domains)
+                    : session.continueAsync();
+            try {
+                return issued.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        };
+        return submit(new Job<>(domains, task, executor, () -> session.getOrderUrl() != null));
+    }
+
+    private <T> CompletableFuture<T> submit(Job<T> job) {
+        if (!running) {
+            job.future.completeExceptionally(new RejectedExecutionException("Order scheduler is closed"));
+            return job.future;
+        }
+        tryStart(job);
+        return job.future;
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                tryStart(parked.take());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Order dispatch failed", e);
+            }
+        }
+    }
+
+    /**
+     * 令牌足够时启动任务，否则放回延迟队列
+     */
+    private synchronized void tryStart(Job<?> job) {
+        long wait = nanosUntilRunnable(job);
+        if (wait > 0) {
+            park(job, wait);
+            return;
+        }
+        if (!job.orderCreated()) {
+            orders.consume();
+            for (String domain : job.registeredDomains) {
+                certificate(domain).consume();
+            }
+        }
+        try {
+            job.executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            job.future.completeExceptionally(e);
+        }
+    }
+
+    private long nanosUntilRunnable(Job<?> job) {
+        if (job.orderCreated()) {
+            // The order was charged when it was created
+            return orders.nanosUntilResumed();
+        }
+        long wait = orders.nanosUntilAvailable();
+        for (String domain : job.registeredDomains) {
+            wait = Math.max(wait, certificate(domain).nanosUntilAvailable());
+        }
+        for (String host : job.hosts) {
+            TokenBucket failures = failedValidations.get(host);
+            if (failures != null) {
+                wait = Math.max(wait, failures.nanosUntilAvailable());
+            }
+        }
+        return wait;
+    }
+
+    private <T> void run(Job<T> job) {
+        try {
+            job.future.complete(job.task.run());
+        } catch (Exception e) {
+            onFailure(job, e);
+        } catch (Throwable e) {
+            job.future.completeExceptionally(e);
+        }
+    }
+
+    private void onFailure(Job<?> job, Exception e) {
+        RateLimitedException rateLimited = find(e, RateLimitedException.class);
+        if (rateLimited != null && job.rateLimitRetries < policy.getMaxRateLimitRetries() && running) {
+            job.rateLimitRetries++;
+            rateLimitedCount.incrementAndGet();
+            long retryAfter = rateLimited.getRetryAfterMillis() >= 0
+                    ? TimeUnit.MILLISECONDS.toNanos(rateLimited.getRetryAfterMillis())
+                    : policy.getDefaultRetryAfter().toNanos();
+            logger.warn("Rate limited while ordering {}, retrying in {} ms", job.domains, TimeUnit.NANOSECONDS.toMillis(retryAfter));
+            orders.pause(retryAfter);
+            park(job, retryAfter);
+            return;
+        }
+        ChallengeFailedException failed = find(e, ChallengeFailedException.class);
+        if (failed != null && failed.getDomain() != null) {
+            String host = host(failed.getDomain());
+            failedValidations.computeIfAbsent(host, key -> new TokenBucket(policy.getFailedValidationsPerHost(),
+                    policy.getFailedValidationWindow(), clock)).consume();
+        }
+        job.future.completeExceptionally(e);
+    }
+
+    private void park(Job<?> job, long nanos) {
+        parkedCount.incrementAndGet();
+        job.readyAt = clock.getAsLong() + nanos;
+        parked.add(job);
+    }
+
+    private TokenBucket certificate(String registeredDomain) {
+        return certificates.computeIfAbsent(registeredDomain, key -> new TokenBucket(policy.getCertificatesPerDomain(),
+                policy.getCertificateWindow(), clock));
+    }
+
+    private static String host(String domain) {
+        return domain.startsWith("*.") ? domain.substring(2) : domain;
+    }
+
+    private static <E extends Throwable> E find(Throwable e, Class<E> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前在延迟队列中等待的任务数量
+     */
+    public int getParkedSize() {
+        return parked.size();
+    }
+
+    public long getParkedCount() {
+        return parkedCount.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    /**
+     * 主机名剩余的验证失败次数
+     */
+    public double getFailedValidationsLeft(String host) {
+        TokenBucket failures = failedValidations.get(host);
+        return failures == null ? policy.getFailedValidationsPerHost() : failures.getTokens();
+    }
+
+    /**
+     * 停止调度，等待中的任务以 {@link RejectedExecutionException} 结束
+     */
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        List<Job<?>> remaining = new ArrayList<>(parked);
+        parked.clear();
+        for (Job<?> job : remaining) {
+            job.future.completeExceptionally(new RejectedExecutionException("Order scheduler is closed"));
+        }
+        defaultExecutor.shutdownNow();
+    }
+
+    private class Job<T> implements Delayed {
+        final List<String> domains;
+        final Set<String> hosts = new LinkedHashSet<>();
+        final Set<String> registeredDomains = new LinkedHashSet<>();
+        final OrderTask<T> task;
+        final Executor executor;
+        // Whether the task already created its order, null when the scheduler cannot tell
+        final BooleanSupplier created;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        volatile long readyAt;
+        int rateLimitRetries;
+
+        Job(List<String> domains, OrderTask<T> task, Executor executor, BooleanSupplier created) {
+            this.domains = domains;
+            this.task = task;
+            this.executor = executor;
+            this.created = created;
+            for (String domain : domains) {
+                String name = domain.toLowerCase(Locale.ROOT);
+                hosts.add(host(name));
+                registeredDomains.add(planner.registeredDomain(name));
+            }
+        }
+
+        boolean orderCreated() {
+            return created != null && created.getAsBoolean();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - clock.getAsLong(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((Job<?>) other).readyAt);
+        }
+    }
+}
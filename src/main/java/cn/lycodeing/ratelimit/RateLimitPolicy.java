@@ -0,0 +1,59 @@
+package cn.lycodeing.ratelimit;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 订单调度的限速配置，默认值与 Let's Encrypt 公布的限制一致
+ *
+ * @author lycodeing
+ */
+@Data
+@Builder
+public class RateLimitPolicy {
+
+    /**
+     * 每个账户在 orderWindow 内可创建的订单数
+     */
+    @Builder.Default
+    private int ordersPerAccount = 300;
+
+    @Builder.Default
+    private Duration orderWindow = Duration.ofHours(3);
+
+    /**
+     * 每个注册域名在 certificateWindow 内可签发的证书数
+     */
+    @Builder.Default
+    private int certificatesPerDomain = 50;
+
+    @Builder.Default
+    private Duration certificateWindow = Duration.ofDays(7);
+
+    /**
+     * 每个主机名在 failedValidationWindow 内允许的验证失败次数，用完后该主机名的订单暂停
+     */
+    @Builder.Default
+    private int failedValidationsPerHost = 5;
+
+    @Builder.Default
+    private Duration failedValidationWindow = Duration.ofHours(1);
+
+    /**
+     * 429 响应没有 Retry-After 时的等待时间
+     */
+    @Builder.Default
+    private Duration defaultRetryAfter = Duration.ofMinutes(1);
+
+    /**
+     * 单个订单因限速重试的最大次数
+     */
+    @Builder.Default
+    private int maxRateLimitRetries = 10;
+
+    public static RateLimitPolicy defaults() {
+        return RateLimitPolicy.builder().build();
+    }
+}
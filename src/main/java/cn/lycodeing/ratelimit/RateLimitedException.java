@@ -0,0 +1,27 @@
+package cn.lycodeing.ratelimit;
+
+import java.io.IOException;
+
+/**
+ * CA 返回 429 或 rateLimited 错误
+ *
+ * @author lycodeing
+ */
+public class RateLimitedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Retry-After 建议的等待毫秒数，小于 0 表示未指定
+     */
+    private final long retryAfterMillis;
+
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
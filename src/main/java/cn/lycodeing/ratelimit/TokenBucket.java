@@ -0,0 +1,108 @@
+package cn.lycodeing.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * TokenBucket
+ * <p>
+ * Holds up to {@code capacity} tokens and refills them continuously, so that a full bucket is
+ * refilled within {@code window}. This matches the sliding-window limits CAs publish ("300 new
+ * orders per 3 hours"): a burst of {@code capacity} goes through at once, after that requests
+ * are spread at the sustained rate. {@link #pause(long)} blocks the bucket completely, e.g.
+ * until the Retry-After of a 429 response has passed.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final double nanosPerToken;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefill;
+    // Nothing is handed out before this time (System.nanoTime based)
+    private long pausedUntil;
+
+    public TokenBucket(int capacity, Duration window) {
+        this(capacity, window, System::nanoTime);
+    }
+
+    /**
+     * @param clock 纳秒时钟，与 System.nanoTime 语义相同
+     */
+    public TokenBucket(int capacity, Duration window, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = (double) window.toNanos() / capacity;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * 还需等待多少纳秒才能取到一个令牌，0 表示现在就能取到
+     */
+    public synchronized long nanosUntilAvailable() {
+        long now = refill();
+        long paused = Math.max(0, pausedUntil - now);
+        long refill = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+        return Math.max(paused, refill);
+    }
+
+    /**
+     * 还需等待多少纳秒暂停才结束，不考虑令牌余量
+     */
+    public synchronized long nanosUntilResumed() {
+        return Math.max(0, pausedUntil - clock.getAsLong());
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @return 是否取到
+     */
+    public synchronized boolean tryAcquire() {
+        if (nanosUntilAvailable() > 0) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * 不检查余量直接扣除一个令牌，余量可以为负
+     */
+    public synchronized void consume() {
+        refill();
+        tokens -= 1;
+    }
+
+    /**
+     * 在指定时长内不再发放令牌
+     */
+    public synchronized void pause(long nanos) {
+        pausedUntil = Math.max(pausedUntil, clock.getAsLong() + nanos);
+    }
+
+    public synchronized double getTokens() {
+        refill();
+        return tokens;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private long refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+        lastRefill = now;
+        return now;
+    }
+}
@@ -0,0 +1,62 @@
+package cn.lycodeing.renewal;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 续期策略：批量大小、默认续期窗口、ARI 查询间隔和失败重试
+ *
+ * @author lycodeing
+ */
+@Data
+@Builder
+public class RenewalPolicy {
+
+    /**
+     * 同时续期的证书数量上限
+     */
+    @Builder.Default
+    private int batchSize = 10;
+
+    /**
+     * CA 不支持 ARI 时，在证书有效期过去该比例后续期
+     */
+    @Builder.Default
+    private double renewAfterFraction = 2.0 / 3;
+
+    /**
+     * CA 不支持 ARI 时，续期时间在 [续期点 - jitter, 续期点] 内随机，避免同一批证书同时续期
+     */
+    @Builder.Default
+    private Duration jitter = Duration.ofHours(12);
+
+    /**
+     * 响应没有 Retry-After 时重新查询 ARI 的间隔
+     */
+    @Builder.Default
+    private Duration checkInterval = Duration.ofHours(6);
+
+    /**
+     * Retry-After 的取值范围，防止 CA 返回过短或过长的间隔
+     */
+    @Builder.Default
+    private Duration minCheckInterval = Duration.ofMinutes(1);
+
+    @Builder.Default
+    private Duration maxCheckInterval = Duration.ofDays(1);
+
+    /**
+     * 续期失败后第一次重试前的等待时间，之后每次翻倍
+     */
+    @Builder.Default
+    private Duration retryDelay = Duration.ofMinutes(10);
+
+    @Builder.Default
+    private Duration maxRetryDelay = Duration.ofHours(6);
+
+    public static RenewalPolicy defaults() {
+        return RenewalPolicy.builder().build();
+    }
+}
@@ -0,0 +1,332 @@
+package cn.lycodeing.renewal;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.response.RenewalInfoResponse;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import cn.lycodeing.utils.ThreadUtils;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RenewalScheduler
+ * <p>
+ * Renews the certificates of a {@link CertificateStore} from a single long-running thread. Every
+ * certificate sits in a priority queue ordered by the time it next needs attention. That is the
+ * earlier of its renewal time and its next ACME Renewal Information (RFC 9773) check. The
+ * renewal time is a random point inside the window suggested by the CA's {@code renewalInfo}
+ * endpoint. Without ARI it is a random point in the {@code jitter} before
+ * {@code renewAfterFraction} of the lifetime. Certificates issued together are therefore spread
+ * out instead of renewing at once.
+ * </p>
+ * <p>
+ * Due certificates are taken from the queue in batches of at most {@code batchSize} and run in
+ * parallel. The next batch starts once the current one is done. A renewed certificate replaces
+ * its predecessor in the queue. A failed renewal is retried with exponential backoff.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class RenewalScheduler implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(RenewalScheduler.class);
+
+    // Registered account used to query renewal info and to order replacements
+    private final AcmeClient account;
+    @Getter
+    private final CertificateStore store;
+    @Getter
+    private final RenewalPolicy policy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Waiting renewals ordered by their next run time, guarded by lock
+    private final PriorityQueue<Renewal> queue = new PriorityQueue<>(Comparator.comparingLong(renewal -> renewal.nextRunAt));
+    // Waiting and running renewals by certificate id, guarded by lock
+    private final Map<String, Renewal> renewals = new HashMap<>();
+
+    private final ExecutorService workers;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong renewedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param account 已注册的账户，续期订单使用它的分支
+     * @param store   证书存储，续期后的证书保存到这里
+     * @param policy  续期策略
+     */
+    public RenewalScheduler(AcmeClient account, CertificateStore store, RenewalPolicy policy) {
+        this.account = account;
+        this.store = store;
+        this.policy = policy;
+        this.workers = Executors.newFixedThreadPool(policy.getBatchSize(), ThreadUtils.daemonThreadFactory("acme-renewal"));
+        this.thread = new Thread(this::run, "acme-renewal-scheduler");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 加入存储中每组域名过期最晚的证书并启动调度线程
+     */
+    public void start() {
+        Map<Set<String>, StoredCertificate> latest = new HashMap<>();
+        for (StoredCertificate certificate : store.getAll()) {
+            latest.merge(new HashSet<>(certificate.getNames()), certificate,
+                    (a, b) -> a.getNotAfter() >= b.getNotAfter() ? a : b);
+        }
+        latest.values().forEach(this::add);
+        logger.info("Scheduled {} of {} stored certificates for renewal", latest.size(), store.size());
+        thread.start();
+    }
+
+    /**
+     * 加入调度，下一批即查询其续期窗口
+     */
+    public void add(StoredCertificate certificate) {
+        Renewal renewal = new Renewal(certificate);
+        lock.lock();
+        try {
+            Renewal previous = renewals.put(certificate.getId(), renewal);
+            if (previous != null) {
+                queue.remove(previous);
+            }
+            renewal.nextRunAt = System.currentTimeMillis();
+            queue.add(renewal);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取消证书的续期，正在进行的续期完成后不再调度
+     */
+    public boolean remove(String id) {
+        lock.lock();
+        try {
+            Renewal renewal = renewals.remove(id);
+            if (renewal != null) {
+                queue.remove(renewal);
+            }
+            return renewal != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 证书计划的续期时间，尚未查询续期窗口时返回 null
+     */
+    public Instant getRenewAt(String id) {
+        lock.lock();
+        try {
+            Renewal renewal = renewals.get(id);
+            return renewal == null || renewal.renewAt < 0 ? null : Instant.ofEpochMilli(renewal.renewAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return renewals.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRenewedCount() {
+        return renewedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                List<Renewal> batch = takeBatch();
+                CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    Renewal renewal = batch.get(i);
+                    futures[i] = CompletableFuture.runAsync(() -> process(renewal), workers);
+                }
+                CompletableFuture.allOf(futures).join();
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            logger.debug("Renewal scheduler stopped");
+        }
+    }
+
+    /**
+     * 等待队首到期，取出最多 batchSize 个到期的证书
+     */
+    private List<Renewal> takeBatch() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (running) {
+                long now = System.currentTimeMillis();
+                Renewal head = queue.peek();
+                if (head == null) {
+                    changed.await();
+                } else if (head.nextRunAt > now) {
+                    changed.await(head.nextRunAt - now, TimeUnit.MILLISECONDS);
+                } else {
+                    List<Renewal> batch = new ArrayList<>(policy.getBatchSize());
+                    while (head != null && head.nextRunAt <= now && batch.size() < policy.getBatchSize()) {
+                        batch.add(queue.poll());
+                        head = queue.peek();
+                    }
+                    return batch;
+                }
+            }
+            return Collections.emptyList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void process(Renewal renewal) {
+        StoredCertificate certificate = renewal.certificate;
+        long now = System.currentTimeMillis();
+        try {
+            if (renewal.renewAt < 0 || now < renewal.renewAt) {
+                long nextCheck = refreshWindow(renewal, now);
+                if (now < renewal.renewAt) {
+                    reschedule(renewal, Math.min(renewal.renewAt, nextCheck));
+                    return;
+                }
+            }
+            logger.info("Renewing certificate {} for {}", certificate.getId(), certificate.getNames());
+            StoredCertificate renewed = renew(certificate);
+            renewedCount.incrementAndGet();
+            lock.lock();
+            try {
+                if (renewals.remove(certificate.getId(), renewal)) {
+                    add(renewed);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            renewal.failures++;
+            long delay = Math.min(policy.getRetryDelay().toMillis() << Math.min(renewal.failures - 1, 20),
+                    policy.getMaxRetryDelay().toMillis());
+            logger.warn("Failed to renew certificate {} for {}, retrying in {} ms", certificate.getId(), certificate.getNames(), delay, e);
+            reschedule(renewal, now + delay);
+        }
+    }
+
+    /**
+     * 查询续期窗口，已选的续期时间仍在窗口内时保持不变
+     *
+     * @return 下次查询窗口的时间
+     */
+    private long refreshWindow(Renewal renewal, long now) {
+        StoredCertificate certificate = renewal.certificate;
+        RenewalInfoResponse info = null;
+        try {
+            info = account.getRenewalInfo(certificate.getCertId());
+        } catch (Exception e) {
+            logger.warn("Failed to get renewal info of certificate {}, using the default window", certificate.getId(), e);
+        }
+        long start;
+        long end;
+        if (info != null) {
+            start = info.getSuggestedWindow().getStartInstant().toEpochMilli();
+            end = info.getSuggestedWindow().getEndInstant().toEpochMilli();
+        } else {
+            long lifetime = certificate.getNotAfter() - certificate.getNotBefore();
+            end = certificate.getNotBefore() + (long) (lifetime * policy.getRenewAfterFraction());
+            start = Math.max(certificate.getNotBefore(), end - policy.getJitter().toMillis());
+        }
+        if (renewal.renewAt < start || renewal.renewAt >= end) {
+            renewal.renewAt = end <= start ? start : ThreadLocalRandom.current().nextLong(start, end);
+            logger.debug("Certificate {} renews at {}", certificate.getId(), Instant.ofEpochMilli(renewal.renewAt));
+        }
+        long interval = info != null && info.getRetryAfter() >= 0
+                ? Math.max(policy.getMinCheckInterval().toMillis(), Math.min(info.getRetryAfter(), policy.getMaxCheckInterval().toMillis()))
+                : policy.getCheckInterval().toMillis();
+        return now + interval;
+    }
+
+    /**
+     * 续期一张证书并保存到存储，子类可以替换签发流程
+     */
+    protected StoredCertificate renew(StoredCertificate certificate) throws Exception {
+        AcmeClient client = account.fork();
+        client.setCertificateStore(store);
+        // The order only carries dns identifiers, so IP address SANs are left out of the renewal
+        List<String> domains = new ArrayList<>();
+        for (String name : certificate.getNames()) {
+            if (!isIpAddress(name)) {
+                domains.add(name);
+            }
+        }
+        if (domains.isEmpty()) {
+            throw new IOException("Certificate " + certificate.getId() + " has no DNS names to renew");
+        }
+        client.newOrder(domains, certificate.getCertId());
+        client.validateOrder();
+        client.finalizeOrder(client.getFinalizeOrderUrl());
+        client.getOrder();
+        return client.storeCertificate();
+    }
+
+    /**
+     * 证书里的 iPAddress SAN，IPv4 为点分十进制，IPv6 含冒号
+     */
+    private static boolean isIpAddress(String name) {
+        return name.indexOf(':') >= 0 || name.matches("\\d{1,3}(\\.\\d{1,3}){3}");
+    }
+
+    private void reschedule(Renewal renewal, long runAt) {
+        lock.lock();
+        try {
+            if (renewals.get(renewal.certificate.getId()) == renewal) {
+                renewal.nextRunAt = runAt;
+                queue.add(renewal);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        workers.shutdownNow();
+    }
+
+    private static class Renewal {
+        final StoredCertificate certificate;
+        // Chosen renewal time, -1 until the window is known
+        volatile long renewAt = -1;
+        // Time of the next check or renewal, guarded by the scheduler lock
+        long nextRunAt;
+        volatile int failures;
+
+        Renewal(StoredCertificate certificate) {
+            this.certificate = certificate;
+        }
+    }
+}
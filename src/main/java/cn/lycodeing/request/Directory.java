@@ -12,4 +12,9 @@ public class Directory {
     private String newAccount;
 
     private String newOrder;
+
+    /**
+     * ACME Renewal Information (RFC 9773)，CA 不支持时为 null
+     */
+    private String renewalInfo;
 }
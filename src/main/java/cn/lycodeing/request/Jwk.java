@@ -14,9 +14,15 @@ import lombok.Data;
 @AllArgsConstructor
 public class Jwk {
 
+    private String crv;
+
     private String e;
 
     private String kty;
 
     private String n;
+
+    private String x;
+
+    private String y;
 }
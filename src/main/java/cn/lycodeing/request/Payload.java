@@ -6,8 +6,6 @@ import lombok.Data;
 
 import java.util.List;
 
-import static cn.lycodeing.utils.AcmeUtils.makeUrlSafe;
-
 /**
  * @author lycodeing
  */
@@ -20,9 +18,15 @@ public class Payload {
 
     private Boolean termsOfServiceAgreed;
 
+    private Boolean onlyReturnExisting;
 
     private List<Identifier> identifiers;
 
+    /**
+     * 被本订单替换的证书 ARI 标识 (RFC 9773)
+     */
+    private String replaces;
+
     private String csr;
 
     public Payload() {
@@ -46,8 +50,17 @@ public class Payload {
         this.csr = csr;
     }
 
+    /**
+     * 按账户公钥查询已有账户，不存在时不创建
+     */
+    public static Payload onlyReturnExisting() {
+        Payload payload = new Payload();
+        payload.setOnlyReturnExisting(true);
+        return payload;
+    }
+
     public String base64UrlEncode() {
-        return makeUrlSafe(AcmeUtils.base64UrlEncode(GsonUtils.toJson(this)));
+        return AcmeUtils.base64UrlEncode(GsonUtils.toJson(this));
     }
 
 }
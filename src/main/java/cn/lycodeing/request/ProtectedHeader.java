@@ -7,8 +7,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import static cn.lycodeing.utils.AcmeUtils.makeUrlSafe;
-
 /**
  * @author lycodeing
  */
@@ -30,6 +28,6 @@ public class ProtectedHeader {
 
 
     public String base64UrlEncode() {
-        return makeUrlSafe(AcmeUtils.base64UrlEncode(GsonUtils.toJson(this)));
+        return AcmeUtils.base64UrlEncode(GsonUtils.toJson(this));
     }
 }
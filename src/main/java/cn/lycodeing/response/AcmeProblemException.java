@@ -0,0 +1,36 @@
+package cn.lycodeing.response;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * CA 返回的 ACME 错误 (application/problem+json)
+ *
+ * @author lycodeing
+ */
+@Getter
+public class AcmeProblemException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * HTTP 状态码
+     */
+    private final int status;
+
+    /**
+     * 错误类型，如 urn:ietf:params:acme:error:rejectedIdentifier，响应没有错误体时为 null
+     */
+    private final String type;
+
+    private final String detail;
+
+    public AcmeProblemException(String url, int status, ProblemResponse problem) {
+        super("ACME request " + url + " failed with " + status
+                + (problem != null ? ": " + problem.getType() + " " + problem.getDetail() : ""));
+        this.status = status;
+        this.type = problem != null ? problem.getType() : null;
+        this.detail = problem != null ? problem.getDetail() : null;
+    }
+}
@@ -21,4 +21,16 @@ public class ChallengesResponse {
 
     private Identifier identifier;
 
+    /**
+     * 是否为通配符域名的授权，此时 identifier 不含 "*."
+     */
+    private Boolean wildcard;
+
+    /**
+     * 授权对应的域名，通配符授权带 "*." 前缀
+     */
+    public String getDomain() {
+        return Boolean.TRUE.equals(wildcard) ? "*." + identifier.getValue() : identifier.getValue();
+    }
+
 }
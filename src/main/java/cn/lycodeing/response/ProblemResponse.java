@@ -0,0 +1,18 @@
+package cn.lycodeing.response;
+
+import lombok.Data;
+
+/**
+ * ACME 错误响应 (application/problem+json)
+ *
+ * @author lycodeing
+ */
+@Data
+public class ProblemResponse {
+
+    private String type;
+
+    private String detail;
+
+    private Integer status;
+}
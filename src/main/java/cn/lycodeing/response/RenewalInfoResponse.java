@@ -0,0 +1,40 @@
+package cn.lycodeing.response;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * ACME Renewal Information 响应 (RFC 9773)
+ *
+ * @author lycodeing
+ */
+@Data
+public class RenewalInfoResponse {
+
+    private SuggestedWindow suggestedWindow;
+
+    private String explanationURL;
+
+    /**
+     * 下次查询前应等待的毫秒数，来自 Retry-After 响应头，不参与 JSON 解析
+     */
+    private transient long retryAfter = -1;
+
+    @Data
+    public static class SuggestedWindow {
+
+        private String start;
+
+        private String end;
+
+        public Instant getStartInstant() {
+            return OffsetDateTime.parse(start).toInstant();
+        }
+
+        public Instant getEndInstant() {
+            return OffsetDateTime.parse(end).toInstant();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package cn.lycodeing.store;
+
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.FileUtil;
+import cn.lycodeing.utils.GsonUtils;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * CertificateStore
+ * <p>
+ * Keeps issued certificates on disk, one directory per order under {@code certificates/} holding
+ * the leaf {@code cert.pem}, the private {@code key.pem} and a small {@code meta.json}. Chain
+ * certificates are stored once under {@code intermediates/}, named after the SHA-256 of their
+ * DER encoding, and referenced from the metadata, so thousands of leaves share one copy of the
+ * chain. Every file is written atomically and {@code meta.json} is written last, so a directory
+ * without it is an interrupted save and is ignored. The latest OCSP response of a leaf can be
+ * kept next to it as {@code ocsp.der} for TLS frontends to staple.
+ * </p>
+ * <p>
+ * On startup only the metadata files are read to rebuild an in-memory index by name (with
+ * single-label wildcard matching), by expiry and by serial number. Lookups never touch the
+ * disk and are safe to call from any thread.
+ * </p>
+ *
+ * @author lycodeing
+ */
+public class CertificateStore {
+    private static final Logger logger = LogManager.getLogger(CertificateStore.class);
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final String CERTIFICATE = "cert.pem";
+    private static final String KEY = "key.pem";
+    private static final String META = "meta.json";
+    private static final String OCSP = "ocsp.der";
+
+    @Getter
+    private final Path root;
+    private final Path certificatesDir;
+    private final Path intermediatesDir;
+
+    private final Map<String, StoredCertificate> byId = new ConcurrentHashMap<>();
+    // Lower-case name, including wildcard names such as *.example.com, to certificate ids
+    private final Map<String, Set<String>> byName = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Set<String>> byNotAfter = new ConcurrentSkipListMap<>();
+    private final Map<String, String> bySerial = new ConcurrentHashMap<>();
+
+    /**
+     * 打开证书存储并从元数据重建索引
+     *
+     * @param root 存储根目录，不存在时创建
+     */
+    public CertificateStore(Path root) throws IOException {
+        this.root = root;
+        this.certificatesDir = root.resolve("certificates");
+        this.intermediatesDir = root.resolve("intermediates");
+        Files.createDirectories(certificatesDir);
+        Files.createDirectories(intermediatesDir);
+        load();
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(certificatesDir)) {
+            for (Path dir : dirs) {
+                Path meta = dir.resolve(META);
+                if (!Files.isRegularFile(meta)) {
+                    logger.warn("Ignoring incomplete certificate directory {}", dir);
+                    continue;
+                }
+                try {
+                    index(GsonUtils.fromJson(new String(Files.readAllBytes(meta), StandardCharsets.UTF_8), StoredCertificate.class));
+                } catch (Exception e) {
+                    logger.warn("Ignoring unreadable certificate metadata {}", meta, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load certificate store " + root, e);
+        }
+        logger.info("Loaded {} certificates from {} in {} ms", byId.size(), root, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 保存证书链和私钥，相同 id 的旧证书被替换
+     *
+     * @param id         订单标识，只能包含字母、数字、下划线和连字符
+     * @param pemChain   PEM 证书链，第一张为叶子证书
+     * @param privateKey 叶子证书的私钥
+     */
+    public synchronized StoredCertificate save(String id, byte[] pemChain, PrivateKey privateKey) throws IOException {
+        if (!ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid certificate id: " + id);
+        }
+        List<X509Certificate> chain = parse(pemChain);
+        X509Certificate leaf = chain.get(0);
+
+        List<String> intermediates = new ArrayList<>();
+        for (X509Certificate intermediate : chain.subList(1, chain.size())) {
+            intermediates.add(storeIntermediate(intermediate));
+        }
+        StoredCertificate certificate = new StoredCertificate();
+        certificate.setId(id);
+        certificate.setNames(namesOf(leaf));
+        certificate.setSerial(leaf.getSerialNumber().toString(16));
+        certificate.setCertId(AcmeUtils.renewalCertId(leaf));
+        certificate.setNotBefore(leaf.getNotBefore().getTime());
+        certificate.setNotAfter(leaf.getNotAfter().getTime());
+        certificate.setIntermediates(intermediates);
+
+        Path dir = certificatesDir.resolve(id);
+        // Drop the old metadata first so a crash in between leaves an ignored directory, not a mismatched one
+        Files.deleteIfExists(dir.resolve(META));
+        Files.deleteIfExists(dir.resolve(OCSP));
+        FileUtil.writeAtomically(dir.resolve(CERTIFICATE), CryptoUtils.toPem("CERTIFICATE", encoded(leaf)), false);
+        FileUtil.writeAtomically(dir.resolve(KEY), CryptoUtils.toPem("PRIVATE KEY", privateKey.getEncoded()), true);
+        FileUtil.writeAtomically(dir.resolve(META), GsonUtils.toJson(certificate).getBytes(StandardCharsets.UTF_8), false);
+
+        StoredCertificate previous = byId.get(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(certificate);
+        return certificate;
+    }
+
+    /**
+     * 删除证书，共享的中间证书保留
+     */
+    public synchronized void delete(String id) throws IOException {
+        StoredCertificate certificate = byId.get(id);
+        if (certificate == null) {
+            return;
+        }
+        unindex(certificate);
+        Path dir = certificatesDir.resolve(id);
+        Files.deleteIfExists(dir.resolve(META));
+        Files.deleteIfExists(dir.resolve(CERTIFICATE));
+        Files.deleteIfExists(dir.resolve(KEY));
+        Files.deleteIfExists(dir.resolve(OCSP));
+        Files.deleteIfExists(dir);
+    }
+
+    public StoredCertificate get(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public Collection<StoredCertificate> getAll() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /**
+     * 查找覆盖该主机名的证书，按过期时间从晚到早排列
+     */
+    public List<StoredCertificate> findByHost(String host) {
+        String name = host.toLowerCase();
+        List<StoredCertificate> result = new ArrayList<>();
+        collect(byName.get(name), result);
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+            collect(byName.get("*" + name.substring(dot)), result);
+        }
+        result.sort(Comparator.comparingLong(StoredCertificate::getNotAfter).reversed());
+        return result;
+    }
+
+    /**
+     * 查找当前有效且覆盖该主机名的证书中过期最晚的一张
+     */
+    public Optional<StoredCertificate> findValid(String host, Instant now) {
+        long millis = now.toEpochMilli();
+        return findByHost(host).stream()
+                .filter(certificate -> certificate.getNotBefore() <= millis && millis < certificate.getNotAfter())
+                .findFirst();
+    }
+
+    /**
+     * 查找过期时间在 [from, to) 之间的证书，按过期时间从早到晚排列
+     */
+    public List<StoredCertificate> findExpiringBetween(Instant from, Instant to) {
+        List<StoredCertificate> result = new ArrayList<>();
+        for (Set<String> ids : byNotAfter.subMap(from.toEpochMilli(), true, to.toEpochMilli(), false).values()) {
+            collect(ids, result);
+        }
+        return result;
+    }
+
+    public Optional<StoredCertificate> findBySerial(BigInteger serial) {
+        String id = bySerial.get(serial.toString(16));
+        return Optional.ofNullable(id == null ? null : byId.get(id));
+    }
+
+    public Path getCertificatePath(StoredCertificate certificate) {
+        return certificatesDir.resolve(certificate.getId()).resolve(CERTIFICATE);
+    }
+
+    public Path getKeyPath(StoredCertificate certificate) {
+        return certificatesDir.resolve(certificate.getId()).resolve(KEY);
+    }
+
+    /**
+     * 读取完整证书链：叶子证书加中间证书
+     */
+    public String readFullChain(StoredCertificate certificate) throws IOException {
+        StringBuilder chain = new StringBuilder(new String(Files.readAllBytes(getCertificatePath(certificate)), StandardCharsets.US_ASCII));
+        for (String hash : certificate.getIntermediates()) {
+            chain.append(new String(Files.readAllBytes(intermediatesDir.resolve(hash + ".pem")), StandardCharsets.US_ASCII));
+        }
+        return chain.toString();
+    }
+
+    /**
+     * 读取并解析完整证书链，叶子证书在前
+     */
+    public List<X509Certificate> readChain(StoredCertificate certificate) throws IOException {
+        return parse(readFullChain(certificate).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Path getOcspResponsePath(StoredCertificate certificate) {
+        return certificatesDir.resolve(certificate.getId()).resolve(OCSP);
+    }
+
+    /**
+     * 保存证书的 OCSP 响应（DER），替换之前的响应
+     */
+    public void saveOcspResponse(StoredCertificate certificate, byte[] response) throws IOException {
+        FileUtil.writeAtomically(getOcspResponsePath(certificate), response, false);
+    }
+
+    /**
+     * 读取保存的 OCSP 响应，没有时返回 null
+     */
+    public byte[] readOcspResponse(StoredCertificate certificate) throws IOException {
+        Path file = getOcspResponsePath(certificate);
+        return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+    }
+
+    private String storeIntermediate(X509Certificate certificate) throws IOException {
+        byte[] der = encoded(certificate);
+        String hash = sha256Hex(der);
+        Path file = intermediatesDir.resolve(hash + ".pem");
+        if (!Files.exists(file)) {
+            FileUtil.writeAtomically(file, CryptoUtils.toPem("CERTIFICATE", der), false);
+        }
+        return hash;
+    }
+
+    private void index(StoredCertificate certificate) {
+        String id = certificate.getId();
+        byId.put(id, certificate);
+        for (String name : certificate.getNames()) {
+            byName.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        byNotAfter.computeIfAbsent(certificate.getNotAfter(), key -> ConcurrentHashMap.newKeySet()).add(id);
+        bySerial.put(certificate.getSerial(), id);
+    }
+
+    private void unindex(StoredCertificate certificate) {
+        String id = certificate.getId();
+        byId.remove(id, certificate);
+        for (String name : certificate.getNames()) {
+            removeId(byName, name, id);
+        }
+        removeId(byNotAfter, certificate.getNotAfter(), id);
+        bySerial.remove(certificate.getSerial(), id);
+    }
+
+    private static <K> void removeId(Map<K, Set<String>> index, K key, String id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private void collect(Set<String> ids, List<StoredCertificate> result) {
+        if (ids == null) {
+            return;
+        }
+        for (String id : ids) {
+            StoredCertificate certificate = byId.get(id);
+            if (certificate != null) {
+                result.add(certificate);
+            }
+        }
+    }
+
+    private static List<X509Certificate> parse(byte[] pemChain) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(pemChain)) {
+            List<X509Certificate> chain = new ArrayList<>();
+            for (java.security.cert.Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                chain.add((X509Certificate) certificate);
+            }
+            if (chain.isEmpty()) {
+                throw new IOException("No certificate in chain");
+            }
+            return chain;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Invalid certificate chain", e);
+        }
+    }
+
+    private static List<String> namesOf(X509Certificate certificate) throws IOException {
+        List<String> names = new ArrayList<>();
+        try {
+            Collection<List<?>> alternativeNames = certificate.getSubjectAlternativeNames();
+            if (alternativeNames != null) {
+                for (List<?> name : alternativeNames) {
+                    int type = (Integer) name.get(0);
+                    // 2 = dNSName, 7 = iPAddress
+                    if (type == 2 || type == 7) {
+                        names.add(((String) name.get(1)).toLowerCase());
+                    }
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Invalid subjectAltName extension", e);
+        }
+        return names;
+    }
+
+    private static byte[] encoded(X509Certificate certificate) throws IOException {
+        try {
+            return certificate.getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(data)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
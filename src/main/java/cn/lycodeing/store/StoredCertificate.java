@@ -0,0 +1,41 @@
+package cn.lycodeing.store;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 证书存储中一个订单的证书元数据，启动时只读取元数据即可重建索引
+ *
+ * @author lycodeing
+ */
+@Data
+public class StoredCertificate {
+
+    private String id;
+
+    /**
+     * 证书中的 dNSName / iPAddress，小写
+     */
+    private List<String> names;
+
+    /**
+     * 序列号，小写十六进制
+     */
+    private String serial;
+
+    /**
+     * ARI 证书标识 (RFC 9773)，证书没有 AKI 时为 null
+     */
+    private String certId;
+
+    private long notBefore;
+
+    private long notAfter;
+
+    /**
+     * 中间证书的 SHA-256，按链的顺序排列
+     */
+    private List<String> intermediates;
+
+}
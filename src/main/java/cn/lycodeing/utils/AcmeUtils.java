@@ -1,25 +1,33 @@
 package cn.lycodeing.utils;
 
+import cn.lycodeing.enums.JwsAlgorithmEnum;
 import cn.lycodeing.request.Jwk;
 import cn.lycodeing.request.Jws;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.bouncycastle.util.BigIntegers;
 
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.security.*;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.X509EncodedKeySpec;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Base64;
-import java.util.Map;
-import java.util.TreeMap;
 
 import static cn.lycodeing.utils.CryptoUtils.generateKeyPair;
 import static cn.lycodeing.utils.CryptoUtils.hash256AndEncodeToBase64;
@@ -34,9 +42,6 @@ public class AcmeUtils {
         Security.addProvider(new BouncyCastleProvider());
     }
 
-    private static final String ALGORITHM = "SHA256withRSA";
-
-
     /**
      * 生成CSR
      *
@@ -79,16 +84,36 @@ public class AcmeUtils {
     public static Jws generateSignatureJws(PrivateKey privateKey, String protectedHeader, String payload) throws Exception {
         // 生成 signature
         String dataToSign = protectedHeader + "." + payload;
-        Signature instance = Signature.getInstance(ALGORITHM);
+        JwsAlgorithmEnum algorithm = JwsAlgorithmEnum.of(privateKey);
+        Signature instance = Signature.getInstance(algorithm.getSignatureAlgorithm());
         instance.initSign(privateKey);
         instance.update(dataToSign.getBytes(StandardCharsets.UTF_8));
         byte[] sign = instance.sign();
+        if (algorithm.getCoordinateLength() > 0) {
+            sign = derToConcatenated(sign, algorithm.getCoordinateLength());
+        }
         String signatureBase64 = base64UrlEncode(sign);
         return new Jws(protectedHeader, payload, signatureBase64);
     }
 
+    /**
+     * 将 DER 编码的 ECDSA 签名转换为 JWS 要求的 R||S 格式 (RFC 7518 3.4)
+     */
+    public static byte[] derToConcatenated(byte[] der, int coordinateLength) {
+        ASN1Sequence sequence = ASN1Sequence.getInstance(der);
+        BigInteger r = ASN1Integer.getInstance(sequence.getObjectAt(0)).getValue();
+        BigInteger s = ASN1Integer.getInstance(sequence.getObjectAt(1)).getValue();
+        byte[] concatenated = new byte[coordinateLength * 2];
+        System.arraycopy(BigIntegers.asUnsignedByteArray(coordinateLength, r), 0, concatenated, 0, coordinateLength);
+        System.arraycopy(BigIntegers.asUnsignedByteArray(coordinateLength, s), 0, concatenated, coordinateLength, coordinateLength);
+        return concatenated;
+    }
+
 
     public static Jwk publicKeyToJwk(PublicKey publicKey) throws Exception {
+        if (publicKey instanceof ECPublicKey) {
+            return ecPublicKeyToJwk((ECPublicKey) publicKey);
+        }
         byte[] encoded = publicKey.getEncoded();
         X509EncodedKeySpec keySpec = new X509EncodedKeySpec(encoded);
         KeyFactory keyFactory = KeyFactory.getInstance("RSA");
@@ -110,22 +135,42 @@ public class AcmeUtils {
 
         String n = base64UrlEncode(modulusBytes);
         String e = base64UrlEncode(exponentBytes);
-        return new Jwk(e, "RSA", n);
+        return Jwk.builder().e(e).kty("RSA").n(n).build();
     }
 
-    public static String generateThumbprint(Jwk jwk) throws Exception {
-        // 创建Gson实例以处理JSON
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
-        // 将JWK对象转换为TreeMap以确保键按字母顺序排列
-        Map<String, Object> sortedJwk = new TreeMap<>();
-        sortedJwk.put("e", jwk.getE());
-        sortedJwk.put("kty", jwk.getKty());
-        sortedJwk.put("n", jwk.getN());
-
-        // 序列化为JSON字符串并移除所有空白字符
-        String jwkJson = gson.toJson(sortedJwk).replaceAll("\\s", "");
+    /**
+     * EC 公钥转换为 JWK，坐标按曲线长度补齐 (RFC 7518 6.2.1)
+     */
+    private static Jwk ecPublicKeyToJwk(ECPublicKey publicKey) {
+        int fieldSize = publicKey.getParams().getCurve().getField().getFieldSize();
+        int length = (fieldSize + 7) / 8;
+        String crv;
+        if (fieldSize == 256) {
+            crv = "P-256";
+        } else if (fieldSize == 384) {
+            crv = "P-384";
+        } else if (fieldSize == 521) {
+            crv = "P-521";
+        } else {
+            throw new IllegalArgumentException("Unsupported EC curve, field size: " + fieldSize);
+        }
+        return Jwk.builder()
+                .crv(crv)
+                .kty("EC")
+                .x(base64UrlEncode(BigIntegers.asUnsignedByteArray(length, publicKey.getW().getAffineX())))
+                .y(base64UrlEncode(BigIntegers.asUnsignedByteArray(length, publicKey.getW().getAffineY())))
+                .build();
+    }
 
+    public static String generateThumbprint(Jwk jwk) {
+        // 只包含必需字段并按字母顺序排列，无空白 (RFC 7638)
+        String jwkJson;
+        if ("EC".equals(jwk.getKty())) {
+            jwkJson = "{\"crv\":\"" + jwk.getCrv() + "\",\"kty\":\"EC\",\"x\":\"" + jwk.getX()
+                    + "\",\"y\":\"" + jwk.getY() + "\"}";
+        } else {
+            jwkJson = "{\"e\":\"" + jwk.getE() + "\",\"kty\":\"" + jwk.getKty() + "\",\"n\":\"" + jwk.getN() + "\"}";
+        }
         return hash256AndEncodeToBase64(jwkJson);
     }
 
@@ -135,6 +180,48 @@ public class AcmeUtils {
     }
 
 
+    /**
+     * 解析 Retry-After 响应头，支持秒数和 HTTP 日期两种格式
+     *
+     * @param retryAfter 响应头的值
+     * @return 需要等待的毫秒数，无法解析时返回 -1
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // not delta-seconds, try HTTP-date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+
+    /**
+     * 计算证书的 ARI 标识 (RFC 9773)：base64url(AKI keyIdentifier) + "." + base64url(序列号 DER)
+     *
+     * @return 证书没有 Authority Key Identifier 时返回 null
+     */
+    public static String renewalCertId(X509Certificate certificate) throws IOException {
+        byte[] extension = certificate.getExtensionValue("2.5.29.35");
+        if (extension == null) {
+            return null;
+        }
+        byte[] keyIdentifier = AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extension)).getKeyIdentifier();
+        if (keyIdentifier == null) {
+            return null;
+        }
+        return base64UrlEncode(keyIdentifier) + "." + base64UrlEncode(certificate.getSerialNumber().toByteArray());
+    }
+
     public static void sleep(long seconds) {
         try {
             Thread.sleep(1000 * seconds);
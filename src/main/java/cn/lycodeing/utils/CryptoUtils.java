@@ -1,25 +1,33 @@
 package cn.lycodeing.utils;
 
-import org.bouncycastle.asn1.x500.X500Name;
+import cn.lycodeing.enums.KeyTypeEnum;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
 import org.bouncycastle.asn1.x509.Attribute;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
 
 import java.nio.charset.StandardCharsets;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.Security;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author lycodeing
  */
 public class CryptoUtils {
 
+    private static final int MAX_CN_LENGTH = 64;
 
     static {
         Security.addProvider(new BouncyCastleProvider());
@@ -30,11 +38,50 @@ public class CryptoUtils {
      * 生成密钥对
      */
     public static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
-        generator.initialize(2048);
+        return generateKeyPair(KeyTypeEnum.RSA_2048);
+    }
+
+    /**
+     * 生成指定类型的密钥对
+     */
+    public static KeyPair generateKeyPair(KeyTypeEnum keyType) throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType.getAlgorithm());
+        if (keyType.getCurve() != null) {
+            try {
+                generator.initialize(new ECGenParameterSpec(keyType.getCurve()));
+            } catch (InvalidAlgorithmParameterException e) {
+                throw new NoSuchAlgorithmException("Unsupported curve " + keyType.getCurve(), e);
+            }
+        } else {
+            generator.initialize(keyType.getSize());
+        }
         return generator.generateKeyPair();
     }
 
+    /**
+     * 根据密钥类型选择 CSR 签名算法
+     */
+    public static String csrSignatureAlgorithm(PublicKey publicKey) {
+        if (publicKey instanceof ECPublicKey) {
+            int fieldSize = ((ECPublicKey) publicKey).getParams().getCurve().getField().getFieldSize();
+            if (fieldSize <= 256) {
+                return "SHA256withECDSA";
+            }
+            return fieldSize <= 384 ? "SHA384withECDSA" : "SHA512withECDSA";
+        }
+        return "SHA256WithRSAEncryption";
+    }
+
+
+    /**
+     * DER 编码转为 PEM，每行 64 个字符
+     *
+     * @param type PEM 类型，如 CERTIFICATE、PRIVATE KEY
+     */
+    public static byte[] toPem(String type, byte[] der) {
+        return ("-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(der)
+                + "\n-----END " + type + "-----\n").getBytes(StandardCharsets.US_ASCII);
+    }
 
     /**
      * sha256+base64
@@ -58,13 +105,32 @@ public class CryptoUtils {
      * @throws Exception
      */
     public static String generateCsr(String domain, KeyPair keyPair) throws Exception {
-        // 构建主题信息
-        X500Name subject = new X500Name(String.format("CN=%s, OU=MyUnit, O=MyOrg, L=City, ST=State, C=US", domain));
-
-        // 创建CSR请求
-        PKCS10CertificationRequest csr = createCsr(subject , keyPair);
+        return generateCsr(Collections.singletonList(domain), keyPair);
+    }
 
-        return base64UrlEncode(csr.getEncoded());
+    /**
+     * 生成包含多个域名的CSR，所有域名写入 subjectAltName 扩展，第一个域名同时作为 CN
+     *
+     * @param domains 域名列表
+     * @return base64url 编码的 DER
+     */
+    public static String generateCsr(List<String> domains, KeyPair keyPair) throws Exception {
+        // CN is limited to 64 characters, longer names are only carried in the SAN extension
+        X500NameBuilder subject = new X500NameBuilder(BCStyle.INSTANCE);
+        if (domains.get(0).length() <= MAX_CN_LENGTH) {
+            subject.addRDN(BCStyle.CN, domains.get(0));
+        }
+        GeneralName[] names = domains.stream()
+                .map(domain -> new GeneralName(GeneralName.dNSName, domain))
+                .toArray(GeneralName[]::new);
+        Extensions extensions = new Extensions(new Extension(Extension.subjectAlternativeName, false,
+                new GeneralNames(names).getEncoded()));
+
+        JcaPKCS10CertificationRequestBuilder csrBuilder = new JcaPKCS10CertificationRequestBuilder(subject.build(), keyPair.getPublic());
+        csrBuilder.addAttribute(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest, extensions);
+        ContentSigner contentSigner = new JcaContentSignerBuilder(csrSignatureAlgorithm(keyPair.getPublic()))
+                .build(keyPair.getPrivate());
+        return base64UrlEncode(csrBuilder.build(contentSigner).getEncoded());
     }
 
 
@@ -76,15 +142,4 @@ public class CryptoUtils {
     public static String base64UrlEncode(String data) {
         return Base64.getUrlEncoder().withoutPadding().encodeToString(data.getBytes(StandardCharsets.UTF_8));
     }
-
-
-    private static PKCS10CertificationRequest createCsr(X500Name subject,KeyPair keyPair) throws Exception {
-
-        JcaPKCS10CertificationRequestBuilder csrBuilder = new JcaPKCS10CertificationRequestBuilder(subject, keyPair.getPublic());
-
-        ContentSigner contentSigner = new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(keyPair.getPrivate());
-
-
-        return csrBuilder.build(contentSigner);
-    }
 }
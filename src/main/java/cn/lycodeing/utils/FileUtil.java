@@ -1,15 +1,28 @@
 package cn.lycodeing.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
 
 /**
  * @author lycodeing
  */
 public class FileUtil {
 
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
     /**
      * 读取文件内容到字符串
      * @param filePath 文件路径
@@ -51,4 +64,94 @@ public class FileUtil {
     public static void writeByteArrayToFile(String filePath, byte[] bytes) throws IOException {
         Files.write(Paths.get(filePath), bytes);
     }
+
+    /**
+     * 先写入同目录的临时文件再原子替换目标文件，读取方不会看到写了一半的文件
+     * @param target 目标文件，父目录不存在时创建
+     * @param bytes 要写入的内容
+     * @param ownerOnly 是否仅允许所有者读写，用于私钥等敏感文件（仅 POSIX 文件系统生效）
+     * @throws IOException 如果发生I/O错误
+     */
+    public static void writeAtomically(Path target, byte[] bytes, boolean ownerOnly) throws IOException {
+        writeAtomically(target, bytes, ownerOnly, false);
+    }
+
+    /**
+     * @param sync 替换前是否将临时文件刷到磁盘，用于崩溃后不能丢失的文件
+     */
+    public static void writeAtomically(Path target, byte[] bytes, boolean ownerOnly, boolean sync) throws IOException {
+        Path temp = createTempFileFor(target, ownerOnly);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 将输入流经 FileChannel 写入临时文件后原子替换目标文件，内容不经过内存中的字节数组
+     */
+    public static void writeAtomically(Path target, InputStream in, boolean ownerOnly, boolean sync) throws IOException {
+        Path temp = createTempFileFor(target, ownerOnly);
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, 1 << 20)) > 0) {
+                    position += transferred;
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 在目标文件同目录下创建临时文件，用于之后的原子替换；父目录不存在时创建
+     */
+    public static Path createTempFileFor(Path target, boolean ownerOnly) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        return ownerOnly && POSIX
+                ? Files.createTempFile(dir, ".tmp", null, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(dir, ".tmp", null);
+    }
+
+    /**
+     * 原子替换目标文件，文件系统不支持时退化为普通替换
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 以追加方式打开文件，不存在时创建
+     * @param ownerOnly 新建文件是否仅允许所有者读写（仅 POSIX 文件系统生效）
+     */
+    public static FileChannel openForAppend(Path target, boolean ownerOnly) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        if (ownerOnly && POSIX) {
+            return FileChannel.open(target, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
 }
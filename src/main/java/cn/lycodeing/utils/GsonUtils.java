@@ -2,7 +2,9 @@ package cn.lycodeing.utils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 
+import java.io.Reader;
 import java.lang.reflect.Type;
 
 /**
@@ -26,4 +28,18 @@ public class GsonUtils {
     public static <T> T fromJson(String json, Type type) {
         return GSON.fromJson(json, type);
     }
+
+    /**
+     * 从已解析的 JSON 树解码
+     */
+    public static <T> T fromJson(JsonElement json, Class<T> classOfT) {
+        return GSON.fromJson(json, classOfT);
+    }
+
+    /**
+     * 从字符流解码，避免先读成字符串
+     */
+    public static <T> T fromJson(Reader reader, Class<T> classOfT) {
+        return GSON.fromJson(reader, classOfT);
+    }
 }
@@ -1,31 +1,44 @@
 package cn.lycodeing.utils;
 
+import cn.lycodeing.enums.AcmeErrorTypeEnum;
+import cn.lycodeing.http.ApacheHttpTransport;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.response.ProblemResponse;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpHead;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
+ * 静态 HTTP 工具，请求委托给可替换的默认 {@link HttpTransport}
+ *
  * @author lycodeing
  */
 public class HttpUtil {
 
-    private static final CloseableHttpClient HTTP_CLIENT = HttpClients.createDefault();
+    private static volatile HttpTransport defaultTransport = new ApacheHttpTransport();
+
+    /**
+     * 获取默认传输层
+     */
+    public static HttpTransport getDefaultTransport() {
+        return defaultTransport;
+    }
+
+    /**
+     * 替换默认传输层，之前的传输层由调用方负责关闭
+     */
+    public static void setDefaultTransport(HttpTransport transport) {
+        defaultTransport = transport;
+    }
 
     /**
      * 发送HTTP GET请求并返回响应内容和响应头
@@ -39,20 +52,8 @@ public class HttpUtil {
             throw new IllegalArgumentException("URL不能为空");
         }
 
-        HttpGet request = new HttpGet(url);
-        try (CloseableHttpResponse response = HTTP_CLIENT.execute(request)) {
-            String content = null;
-            HttpEntity entity = response.getEntity();
-            if (entity != null) {
-                try {
-                    content = EntityUtils.toString(entity, StandardCharsets.UTF_8);
-                } catch (IOException e) {
-                    // 确保即使在EntityUtils.toString抛出异常时，response对象也能被正确关闭
-                    throw new IOException("读取响应内容失败", e);
-                }
-            }
-            Map<String, String> headers = getHeadersFromResponse(response);
-            return new Response(content, headers);
+        try {
+            return defaultTransport.get(url);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("无效的URL: " + url, e);
         } catch (Exception e) {
@@ -69,48 +70,31 @@ public class HttpUtil {
      * @throws IOException 如果发生I/O错误
      */
     public static Response sendHttpPost(String url, Object body, Map<String, String> headers) throws IOException {
-        HttpPost request = new HttpPost(url);
-        StringEntity entity = new StringEntity(GsonUtils.toJson(body), StandardCharsets.UTF_8);
-        request.setEntity(entity);
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            request.setHeader(entry.getKey(), entry.getValue());
-        }
-
-        try (CloseableHttpResponse response = HTTP_CLIENT.execute(request)) {
-            String content = null;
-            HttpEntity responseEntity = response.getEntity();
-            if (responseEntity != null) {
-                content = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-            }
-            Map<String, String> responseHeaders = getHeadersFromResponse(response);
-            return new Response(content, responseHeaders);
-        }
+        return sendHttpPost(url, GsonUtils.toJson(body).getBytes(StandardCharsets.UTF_8), headers);
     }
 
     /**
-     * 发送HTTP HEAD请求并返回响应头
+     * 发送已编码的请求体
      *
-     * @param url 请求URL
-     * @return 响应头信息
+     * @param url     请求URL
+     * @param body    UTF-8 编码的请求体
+     * @param headers 请求头
+     * @return 包含响应内容和响应头的Response对象
      * @throws IOException 如果发生I/O错误
      */
-    public static Response sendHttpHead(String url) throws IOException {
-        HttpHead request = new HttpHead(url);
-        try (CloseableHttpResponse response = HTTP_CLIENT.execute(request)) {
-            return new Response(null, getHeadersFromResponse(response));
-        }
+    public static Response sendHttpPost(String url, byte[] body, Map<String, String> headers) throws IOException {
+        return defaultTransport.post(url, body, headers);
     }
 
     /**
-     * 从响应中提取响应头信息
+     * 发送HTTP HEAD请求并返回响应头
      *
-     * @param response 响应对象
-     * @return 响应头信息的Map
+     * @param url 请求URL
+     * @return 响应头信息
+     * @throws IOException 如果发生I/O错误
      */
-    private static Map<String, String> getHeadersFromResponse(CloseableHttpResponse response) {
-        Map<String, String> headers = new HashMap<>();
-        Arrays.stream(response.getAllHeaders()).forEach(header -> headers.put(header.getName(), header.getValue()));
-        return headers;
+    public static Response sendHttpHead(String url) throws IOException {
+        return defaultTransport.head(url);
     }
 
     /**
@@ -120,17 +104,62 @@ public class HttpUtil {
     @AllArgsConstructor
     @NoArgsConstructor
     public static class Response {
+        private int statusCode;
         private String content;
         private Map<String, String> headers;
+        // JSON body decoded straight from the response stream, content is null in that case
+        private Object body;
 
+        public Response(int statusCode, String content, Map<String, String> headers) {
+            this(statusCode, content, headers, null);
+        }
 
         public String getHeader(String name) {
             return headers.get(name);
         }
 
         public <T> T getContent(Class<T> clazz) {
+            if (clazz.isInstance(body)) {
+                return clazz.cast(body);
+            }
             return GsonUtils.fromJson(content, clazz);
         }
+
+        /**
+         * 状态码为 4xx/5xx 且响应体为 JSON 对象时解析 ACME 错误信息，否则返回 null
+         */
+        public ProblemResponse getProblem() {
+            if (statusCode < 400 || content == null || content.isEmpty() || !isJson()) {
+                return null;
+            }
+            try {
+                JsonElement element = JsonParser.parseString(content);
+                return element.isJsonObject() ? GsonUtils.fromJson(element, ProblemResponse.class) : null;
+            } catch (JsonParseException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Content-Type 是否为 application/problem+json 或 application/json，代理返回的 HTML 错误页不是
+         */
+        private boolean isJson() {
+            String contentType = headers != null ? headers.get("Content-Type") : null;
+            if (contentType == null) {
+                return false;
+            }
+            int semicolon = contentType.indexOf(';');
+            String mediaType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase(Locale.ROOT);
+            return mediaType.equals("application/problem+json") || mediaType.equals("application/json");
+        }
+
+        /**
+         * 是否为指定类型的 ACME 错误
+         */
+        public boolean isProblem(AcmeErrorTypeEnum errorType) {
+            ProblemResponse problem = getProblem();
+            return problem != null && errorType.matches(problem.getType());
+        }
     }
 }
 
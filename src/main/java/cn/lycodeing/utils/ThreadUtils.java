@@ -0,0 +1,66 @@
+package cn.lycodeing.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程工具类
+ *
+ * @author lycodeing
+ */
+public class ThreadUtils {
+
+    // Executors.newVirtualThreadPerTaskExecutor, null before Java 21
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    /**
+     * 创建守护线程工厂，线程名形如 prefix-1
+     *
+     * @param prefix 线程名前缀
+     * @return 线程工厂
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程（Java 21+）
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器，适合大量阻塞在网络 I/O 上的任务；
+     * JVM 不支持虚拟线程时退化为守护线程的缓存线程池
+     *
+     * @param prefix 退化为线程池时的线程名前缀
+     * @return 执行器
+     */
+    public static ExecutorService newVirtualThreadExecutor(String prefix) {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool(daemonThreadFactory(prefix));
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.account.FileAccountStore;
+import cn.lycodeing.account.StoredAccount;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AccountStoreTest {
+
+    private static final String EMAIL = "store@example.com";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+
+    private FileAccountStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        store = new FileAccountStore(folder.newFolder("accounts").toPath());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void restartReusesStoredAccount() throws Exception {
+        AcmeClient first = newClient();
+        first.createAccount(EMAIL);
+        assertEquals(1, server.getAccountCount());
+
+        AcmeClient restarted = newClient();
+        restarted.createAccount(EMAIL);
+        assertEquals(first.getKid(), restarted.getKid());
+        assertEquals(first.getKeyPair().getPublic(), restarted.getKeyPair().getPublic());
+        assertEquals(1, server.getAccountCount());
+
+        // The restored key signs requests for the stored kid
+        restarted.newOrder(Collections.singletonList("store.example.com"));
+        assertNotNull(restarted.getFinalizeOrderUrl());
+    }
+
+    @Test
+    public void looksUpAccountWhenOnlyKeyIsStored() throws Exception {
+        AcmeClient first = newClient();
+        first.createAccount(EMAIL);
+        StoredAccount stored = store.load(server.getDirectoryUrl(), EMAIL);
+        stored.setKid(null);
+        store.save(stored);
+
+        AcmeClient restarted = newClient();
+        restarted.createAccount(EMAIL);
+        assertEquals(first.getKid(), restarted.getKid());
+        assertEquals(first.getKid(), store.load(server.getDirectoryUrl(), EMAIL).getKid());
+        assertEquals(1, server.getAccountCount());
+    }
+
+    @Test
+    public void keysAccountsByDirectoryAndContact() throws Exception {
+        newClient().createAccount(EMAIL);
+        newClient().createAccount("other@example.com");
+        assertEquals(2, server.getAccountCount());
+        assertNull(store.load("https://other.example.com/directory", EMAIL));
+
+        store.delete(server.getDirectoryUrl(), EMAIL);
+        assertNull(store.load(server.getDirectoryUrl(), EMAIL));
+    }
+
+    private AcmeClient newClient() {
+        AcmeClient client = new AcmeClient(server.getDirectoryUrl());
+        client.setAccountKeyType(KeyTypeEnum.EC_P256);
+        client.setAccountStore(store);
+        return client;
+    }
+}
@@ -0,0 +1,63 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.request.Jwk;
+import cn.lycodeing.request.Jws;
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.CryptoUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AcmeUtilsTest {
+
+    @Test
+    public void rsaThumbprintMatchesRfc7638Example() throws Exception {
+        Jwk jwk = Jwk.builder()
+                .kty("RSA")
+                .e("AQAB")
+                .n("0vx7agoebGcQSuuPiLJXZptN9nndrQmbXEps2aiAFbWhM78LhWx4cbbfAAtVT86zwu1RK7aPFFxuhDR1L6tSoc_BJECP"
+                        + "ebWKRXjBZCiFV4n3oknjhMstn64tZ_2W-5JsGY4Hc5n9yBXArwl93lqt7_RN5w6Cf0h4QyQ5v-65YGjQR0_FDW2Q"
+                        + "vzqY368QQMicAtaSqzs8KJZgnYb9c7d0zgdAZHzu6qMQvRL5hajrn1n91CbOpbISD08qNLyrdkt-bFTWhAI4vMQFh6"
+                        + "WeZu0fM4lFd2NcRwr3XPksINHaQ-G_xBniIqbw0Ls1jF44-csFCur-kEgU8awapJzKnqDKgw")
+                .build();
+        assertEquals("NzbLsXh8uDCcd-6MNwXF4W_7noWXFZAfHkxZsRGC9Xs", AcmeUtils.generateThumbprint(jwk));
+    }
+
+    @Test
+    public void es256SignatureUsesRawFormat() throws Exception {
+        assertEcSignature(KeyTypeEnum.EC_P256, "SHA256withECDSAinP1363Format", 64);
+        assertEcSignature(KeyTypeEnum.EC_P384, "SHA384withECDSAinP1363Format", 96);
+    }
+
+    @Test
+    public void ecJwkHasPaddedCoordinates() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        Jwk jwk = AcmeUtils.publicKeyToJwk(keyPair.getPublic());
+        assertEquals("EC", jwk.getKty());
+        assertEquals("P-256", jwk.getCrv());
+        assertEquals(32, Base64.getUrlDecoder().decode(jwk.getX()).length);
+        assertEquals(32, Base64.getUrlDecoder().decode(jwk.getY()).length);
+        assertNotNull(AcmeUtils.generateThumbprint(jwk));
+    }
+
+    private static void assertEcSignature(KeyTypeEnum keyType, String verifyAlgorithm, int length) throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(keyType);
+        Jws jws = AcmeUtils.generateSignatureJws(keyPair.getPrivate(), "header", "payload");
+        byte[] signature = Base64.getUrlDecoder().decode(jws.getSignature());
+        assertEquals(length, signature.length);
+
+        Signature verifier = Signature.getInstance(verifyAlgorithm);
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update("header.payload".getBytes(StandardCharsets.UTF_8));
+        assertTrue(verifier.verify(signature));
+    }
+}
@@ -0,0 +1,89 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.authorization.AuthorizationCache;
+import cn.lycodeing.authorization.CachedAuthorization;
+import cn.lycodeing.challenge.DnsChallengeSolver;
+import cn.lycodeing.dns.FileDnsProvider;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(JUnit4.class)
+public class AuthorizationCacheTest {
+
+    private static final String ACCOUNT = "https://ca.example/acct/1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void persistsValidAuthorizationsAcrossRestarts() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("authorizations.jsonl");
+        long inAWeek = System.currentTimeMillis() + Duration.ofDays(7).toMillis();
+        AuthorizationCache cache = new AuthorizationCache(file);
+        cache.put(new CachedAuthorization(ACCOUNT, "example.com", "https://ca.example/authz/1", inAWeek));
+        cache.put(new CachedAuthorization(ACCOUNT, "*.example.com", "https://ca.example/authz/2", inAWeek));
+        cache.put(new CachedAuthorization(ACCOUNT, "www.example.com", "https://ca.example/authz/3", inAWeek));
+        cache.put(new CachedAuthorization(ACCOUNT, "old.example.com", "https://ca.example/authz/4", System.currentTimeMillis() - 1));
+        cache.remove(ACCOUNT, "www.example.com");
+
+        AuthorizationCache reloaded = new AuthorizationCache(file);
+        assertEquals(2, reloaded.size());
+        assertEquals("https://ca.example/authz/2", reloaded.get(ACCOUNT, "*.example.com").getUrl());
+        assertNotNull(reloaded.findByUrl(ACCOUNT, "https://ca.example/authz/1"));
+        assertNull(reloaded.findByUrl("https://ca.example/acct/2", "https://ca.example/authz/1"));
+        assertNull(reloaded.get(ACCOUNT, "www.example.com"));
+        // Loading compacts the log down to the live entries
+        assertEquals(2, Files.readAllLines(file).size());
+
+        reloaded.setExpiryMargin(Duration.ofDays(8));
+        assertNull(reloaded.get(ACCOUNT, "example.com"));
+    }
+
+    @Test
+    public void laterOrdersSkipCachedAuthorizations() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("authorizations.jsonl");
+        FileDnsProvider provider = new FileDnsProvider(folder.getRoot().toPath().resolve("challenges.zone"));
+        try (MockAcmeServer server = new MockAcmeServer()) {
+            AcmeClient account = new AcmeClient(server.getDirectoryUrl());
+            account.setAccountKeyType(KeyTypeEnum.EC_P256);
+            account.setDomainKeyType(KeyTypeEnum.EC_P256);
+            account.setChallengeSolvers(Collections.singletonList(new DnsChallengeSolver(provider, null)));
+            account.setAuthorizationCache(new AuthorizationCache(file));
+            account.createAccount("test@example.com");
+
+            issue(account.fork());
+            assertEquals(2, account.getAuthorizationCache().size());
+            assertEquals(2, provider.getBatchCount());
+            long fetches = server.getAuthorizationFetchCount();
+
+            // A restarted client loads the cache and neither fetches nor solves the authorizations again
+            account.setAuthorizationCache(new AuthorizationCache(file));
+            issue(account.fork());
+            assertEquals(fetches, server.getAuthorizationFetchCount());
+            assertEquals(2, provider.getBatchCount());
+        }
+    }
+
+    private static void issue(AcmeClient client) throws Exception {
+        client.newOrder(Arrays.asList("example.com", "www.example.com"));
+        client.validateOrder();
+        client.finalizeOrder(client.getFinalizeOrderUrl());
+        client.getOrder();
+    }
+}
@@ -0,0 +1,146 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.bulk.BulkIssuer;
+import cn.lycodeing.bulk.BulkResult;
+import cn.lycodeing.bulk.FileDomainSetSource;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.ratelimit.OrderScheduler;
+import cn.lycodeing.ratelimit.RateLimitPolicy;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BulkIssuerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+    private AcmeClient account;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        account = new AcmeClient(server.getDirectoryUrl());
+        account.setAccountKeyType(KeyTypeEnum.EC_P256);
+        account.setDomainKeyType(KeyTypeEnum.EC_P256);
+        account.setDnsPropagationChecker(null);
+        account.createAccount("test@example.com");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void runsAtMostConcurrencyOrdersAtOnce() throws Exception {
+        server.setLatency(Duration.ofMillis(10));
+        BulkIssuer issuer = new BulkIssuer(account, folder.newFolder("out").toPath());
+        issuer.setConcurrency(2);
+        issuer.setQueueCapacity(1);
+
+        BulkResult result = issuer.run(source("a.example.com", "b.example.com", "c.example.com,www.c.example.com",
+                "d.example.com", "e.example.com", "f.example.com"));
+
+        assertEquals(6, result.getSucceeded().get());
+        assertEquals(0, result.getFailed());
+        assertEquals(2, server.getMaxActiveOrders());
+        assertTrue(Files.size(issuer.getOutputDir().resolve("c.example.com").resolve("cert.pem")) > 0);
+    }
+
+    @Test
+    public void restartSkipsCheckpointedSets() throws Exception {
+        Path checkpoint = folder.getRoot().toPath().resolve("checkpoint");
+        BulkIssuer issuer = new BulkIssuer(account, folder.newFolder("out").toPath());
+        issuer.setCheckpointFile(checkpoint);
+
+        BulkResult first = issuer.run(source("a.example.com", "b.example.com,www.b.example.com"));
+        assertEquals(2, first.getSucceeded().get());
+        assertEquals(2, server.getOrderCount());
+
+        BulkResult second = issuer.run(source("a.example.com", "b.example.com,www.b.example.com", "c.example.com"));
+        assertEquals(2, second.getSkipped().get());
+        assertEquals(1, second.getSucceeded().get());
+        assertEquals(3, server.getOrderCount());
+        // Completion order, orders run in parallel
+        assertEquals(new HashSet<>(Arrays.asList("a.example.com", "b.example.com,www.b.example.com", "c.example.com")),
+                new HashSet<>(Files.readAllLines(checkpoint, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void failedSetsAreNotCheckpointed() throws Exception {
+        server.rejectIdentifier("bad.example.com");
+        Path checkpoint = folder.getRoot().toPath().resolve("checkpoint");
+        BulkIssuer issuer = new BulkIssuer(account, folder.newFolder("out").toPath());
+        issuer.setCheckpointFile(checkpoint);
+
+        BulkResult first = issuer.run(source("good.example.com", "bad.example.com"));
+        assertEquals(1, first.getSucceeded().get());
+        assertTrue(first.getFailures().containsKey("bad.example.com"));
+        assertEquals(Arrays.asList("good.example.com"), Files.readAllLines(checkpoint, StandardCharsets.UTF_8));
+
+        // The failed set is attempted again on restart
+        BulkResult second = issuer.run(source("good.example.com", "bad.example.com"));
+        assertEquals(1, second.getSkipped().get());
+        assertEquals(1, second.getFailed());
+    }
+
+    @Test
+    public void savesToTheCertificateStoreWhenConfigured() throws Exception {
+        CertificateStore store = new CertificateStore(folder.newFolder("store").toPath());
+        account.setCertificateStore(store);
+        Path out = folder.newFolder("out").toPath();
+        BulkIssuer issuer = new BulkIssuer(account, out);
+
+        BulkResult result = issuer.run(source("a.example.com", "b.example.com,www.b.example.com"));
+
+        assertEquals(2, result.getSucceeded().get());
+        assertEquals(2, store.getAll().size());
+        assertEquals(1, store.findByHost("www.b.example.com").size());
+        assertFalse(Files.exists(out.resolve("a.example.com")));
+    }
+
+    @Test
+    public void rateLimitedOrdersAreContinuedNotPlacedAgain() throws Exception {
+        server.setRetryAfterSeconds(1);
+        server.injectError(MockError.RATE_LIMITED, "/finalize/", 1);
+        BulkIssuer issuer = new BulkIssuer(account, folder.newFolder("out").toPath());
+        try (OrderScheduler scheduler = new OrderScheduler(RateLimitPolicy.defaults())) {
+            issuer.setOrderScheduler(scheduler);
+            BulkResult result = issuer.run(source("a.example.com", "b.example.com"));
+
+            assertEquals(2, result.getSucceeded().get());
+            assertEquals(1, scheduler.getRateLimitedCount());
+            assertEquals(2, server.getOrderCount());
+        }
+    }
+
+    private FileDomainSetSource source(String... lines) throws Exception {
+        Path file = Files.createTempFile(folder.getRoot().toPath(), "domains", ".txt");
+        List<String> content = new ArrayList<>(Arrays.asList("# domain sets, one order per line", ""));
+        content.addAll(Arrays.asList(lines));
+        Files.write(file, content, StandardCharsets.UTF_8);
+        return new FileDomainSetSource(file);
+    }
+}
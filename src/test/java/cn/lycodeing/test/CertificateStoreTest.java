@@ -0,0 +1,114 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockCertificateAuthority;
+import cn.lycodeing.utils.CryptoUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CertificateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockCertificateAuthority ca;
+
+    public CertificateStoreTest() throws Exception {
+        ca = new MockCertificateAuthority();
+    }
+
+    @Test
+    public void indexesByHostExpiryAndSerial() throws Exception {
+        CertificateStore store = new CertificateStore(folder.newFolder("store").toPath());
+        StoredCertificate shortLived = save(store, "short", Duration.ofDays(30), "a.example.com", "*.wild.example.com");
+        StoredCertificate longLived = save(store, "long", Duration.ofDays(60), "A.example.com");
+
+        assertEquals(Arrays.asList("long", "short"), ids(store.findByHost("a.example.com")));
+        assertEquals(Arrays.asList("short"), ids(store.findByHost("x.wild.example.com")));
+        assertTrue(store.findByHost("y.x.wild.example.com").isEmpty());
+        assertTrue(store.findByHost("wild.example.com").isEmpty());
+        assertEquals("long", store.findValid("a.example.com", Instant.now()).get().getId());
+
+        Instant now = Instant.now();
+        assertEquals(Arrays.asList("short"), ids(store.findExpiringBetween(now, now.plus(Duration.ofDays(45)))));
+        assertEquals(longLived, store.findBySerial(new BigInteger(longLived.getSerial(), 16)).get());
+
+        // Both leaves share one stored copy of the intermediate
+        assertEquals(1, Files.list(store.getRoot().resolve("intermediates")).count());
+        assertEquals(shortLived.getIntermediates(), longLived.getIntermediates());
+        assertEquals(2, store.readFullChain(shortLived).split("-----BEGIN CERTIFICATE-----").length - 1);
+        assertTrue(Files.size(store.getKeyPath(shortLived)) > 0);
+    }
+
+    @Test
+    public void reopenRebuildsIndexAndReplacesOrders() throws Exception {
+        Path root = folder.newFolder("store").toPath();
+        CertificateStore store = new CertificateStore(root);
+        save(store, "order-1", Duration.ofDays(30), "old.example.com");
+        save(store, "order-1", Duration.ofDays(30), "new.example.com");
+        save(store, "order-2", Duration.ofDays(30), "other.example.com");
+        store.delete("order-2");
+        // An interrupted save has no meta.json and is skipped
+        Files.createDirectories(root.resolve("certificates").resolve("partial"));
+
+        CertificateStore reopened = new CertificateStore(root);
+        assertEquals(1, reopened.size());
+        assertTrue(reopened.findByHost("old.example.com").isEmpty());
+        assertEquals(Arrays.asList("order-1"), ids(reopened.findByHost("new.example.com")));
+        assertTrue(reopened.findByHost("other.example.com").isEmpty());
+    }
+
+    @Test
+    public void clientSavesIssuedCertificateToStore() throws Exception {
+        try (MockAcmeServer server = new MockAcmeServer()) {
+            CertificateStore store = new CertificateStore(folder.newFolder("store").toPath());
+            AcmeClient client = new AcmeClient(server.getDirectoryUrl());
+            client.setAccountKeyType(KeyTypeEnum.EC_P256);
+            client.setDomainKeyType(KeyTypeEnum.EC_P256);
+            client.setDnsPropagationChecker(null);
+            client.setCertificateStore(store);
+            client.createAccount("store@example.com");
+            client.newOrder(Arrays.asList("example.com", "www.example.com"));
+            client.validateOrder();
+            client.finalizeOrder(client.getFinalizeOrderUrl());
+            client.getOrder();
+            client.getCertificate();
+
+            StoredCertificate stored = store.findValid("www.example.com", Instant.now()).get();
+            assertEquals(Arrays.asList("example.com", "www.example.com"), stored.getNames());
+            assertEquals(1, stored.getIntermediates().size());
+        }
+    }
+
+    private StoredCertificate save(CertificateStore store, String id, Duration validity, String... names) throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        String pem = MockCertificateAuthority.toPem(ca.issue(keyPair.getPublic(), Arrays.asList(names), validity))
+                + MockCertificateAuthority.toPem(ca.getCertificate());
+        return store.save(id, pem.getBytes(StandardCharsets.US_ASCII), keyPair.getPrivate());
+    }
+
+    private static List<String> ids(List<StoredCertificate> certificates) {
+        return certificates.stream().map(StoredCertificate::getId).collect(Collectors.toList());
+    }
+}
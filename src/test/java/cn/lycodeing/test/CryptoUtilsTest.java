@@ -0,0 +1,72 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.key.KeyPairPool;
+import cn.lycodeing.utils.CryptoUtils;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.operator.DefaultAlgorithmNameFinder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CryptoUtilsTest {
+
+    @Test
+    public void csrSignatureMatchesKeyType() throws Exception {
+        assertCsr(KeyTypeEnum.RSA_2048, "SHA256WITHRSA");
+        assertCsr(KeyTypeEnum.EC_P256, "SHA256WITHECDSA");
+        assertCsr(KeyTypeEnum.EC_P384, "SHA384WITHECDSA");
+    }
+
+    @Test
+    public void keyPairPoolPrefillsInBackground() throws Exception {
+        try (KeyPairPool pool = new KeyPairPool(KeyTypeEnum.EC_P256, 4, 1, 2)) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.size() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(4, pool.size());
+            KeyPair keyPair = pool.take();
+            assertEquals("EC", keyPair.getPublic().getAlgorithm());
+        }
+    }
+
+    @Test
+    public void csrCarriesAllDomainsAsSubjectAltNames() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        List<String> domains = Arrays.asList("example.com", "www.example.com", "*.api.example.com");
+        PKCS10CertificationRequest request = new PKCS10CertificationRequest(
+                Base64.getUrlDecoder().decode(CryptoUtils.generateCsr(domains, keyPair)));
+
+        assertEquals("CN=example.com", request.getSubject().toString());
+        Extensions extensions = Extensions.getInstance(
+                request.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest)[0].getAttrValues().getObjectAt(0));
+        List<String> names = Arrays.stream(GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName).getNames())
+                .map(name -> name.getName().toString())
+                .collect(Collectors.toList());
+        assertEquals(domains, names);
+    }
+
+    private static void assertCsr(KeyTypeEnum keyType, String expectedAlgorithm) throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(keyType);
+        String csr = CryptoUtils.generateCsr("example.com", keyPair);
+        PKCS10CertificationRequest request = new PKCS10CertificationRequest(Base64.getUrlDecoder().decode(csr));
+        assertEquals(expectedAlgorithm,
+                new DefaultAlgorithmNameFinder().getAlgorithmName(request.getSignatureAlgorithm()));
+        assertTrue(request.isSignatureValid(new JcaContentVerifierProviderBuilder().build(keyPair.getPublic())));
+    }
+}
@@ -0,0 +1,78 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.directory.DirectoryCache;
+import cn.lycodeing.http.ApacheHttpTransport;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.request.Directory;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class DirectoryCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+
+    private HttpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        transport = new ApacheHttpTransport();
+    }
+
+    @After
+    public void tearDown() {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    public void fetchesOnceAndReusesDiskCopy() throws Exception {
+        Path cacheDir = folder.newFolder("directories").toPath();
+        Directory directory = new DirectoryCache(cacheDir).get(server.getDirectoryUrl(), transport);
+        assertEquals(server.getBaseUrl() + "/new-nonce", directory.getNewNonce());
+        long requests = server.getRequestCount();
+
+        // A new cache, as in a new process, reads the file instead of the network
+        DirectoryCache restarted = new DirectoryCache(cacheDir);
+        assertEquals(directory, restarted.get(server.getDirectoryUrl(), transport));
+        assertEquals(directory, restarted.get(server.getDirectoryUrl(), transport));
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    @Test
+    public void refreshesStaleEntryInBackground() throws Exception {
+        DirectoryCache cache = new DirectoryCache(null);
+        cache.get(server.getDirectoryUrl(), transport);
+        long requests = server.getRequestCount();
+
+        cache.setTtl(Duration.ZERO);
+        Thread.sleep(5);
+        assertNotNull(cache.get(server.getDirectoryUrl(), transport));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getRequestCount() == requests && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(requests + 1, server.getRequestCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWhenNeverFetched() throws Exception {
+        new DirectoryCache(null).get(server.getBaseUrl() + "/no-such-directory", transport);
+    }
+}
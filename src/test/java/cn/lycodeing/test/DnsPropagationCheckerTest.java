@@ -0,0 +1,110 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.dns.DnsPropagationChecker;
+import cn.lycodeing.dns.TxtRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.xbill.DNS.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class DnsPropagationCheckerTest {
+
+    private static final String RECORD = "_acme-challenge.www.example.test.";
+
+    private StubDnsServer server;
+
+    private DnsPropagationChecker checker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubDnsServer();
+        Name zone = Name.fromString("example.test.");
+        Name ns = Name.fromString("ns1.example.test.");
+        server.addRecord(new NSRecord(zone, DClass.IN, 300, ns));
+        server.addRecord(new ARecord(ns, DClass.IN, 300, InetAddress.getLoopbackAddress()));
+
+        checker = new DnsPropagationChecker("127.0.0.1", server.getPort());
+        checker.setNameserverPort(server.getPort());
+        checker.setInitialBackoff(Duration.ofMillis(50));
+        checker.setMaxBackoff(Duration.ofMillis(200));
+        checker.setTimeout(Duration.ofSeconds(5));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void findsNameserversOfParentZone() throws Exception {
+        assertEquals(Collections.singletonList(InetAddress.getLoopbackAddress()),
+                checker.findAuthoritativeNameservers(Name.fromString(RECORD)));
+    }
+
+    @Test
+    public void findsIpv6OnlyNameservers() throws Exception {
+        Name zone = Name.fromString("v6.test.");
+        Name ns = Name.fromString("ns1.v6.test.");
+        server.addRecord(new NSRecord(zone, DClass.IN, 300, ns));
+        server.addRecord(new AAAARecord(ns, DClass.IN, 300, InetAddress.getByName("::1")));
+        assertEquals(Collections.singletonList(InetAddress.getByName("::1")),
+                checker.findAuthoritativeNameservers(Name.fromString("_acme-challenge.v6.test.")));
+    }
+
+    @Test
+    public void waitsUntilRecordIsPublished() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            TXTRecord record = new TXTRecord(Name.fromString(RECORD), DClass.IN, 60, "digest");
+            scheduler.schedule(() -> server.addRecord(record), 300, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            checker.awaitPropagation(RECORD, "digest");
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waitsForEveryRecordOfABatch() throws Exception {
+        String apex = "_acme-challenge.example.test.";
+        TXTRecord second = new TXTRecord(Name.fromString(RECORD), DClass.IN, 60, "digest2");
+        TXTRecord third = new TXTRecord(Name.fromString(apex), DClass.IN, 60, "digest3");
+        server.addRecord(new TXTRecord(Name.fromString(RECORD), DClass.IN, 60, "digest1"));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> {
+                server.addRecord(second);
+                server.addRecord(third);
+            }, 300, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            checker.awaitPropagation(Arrays.asList(new TxtRecord(RECORD, "digest1"), new TxtRecord(RECORD, "digest2"),
+                    new TxtRecord(apex, "digest3")));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void timesOutWhenValueDiffers() throws Exception {
+        server.addRecord(new TXTRecord(Name.fromString(RECORD), DClass.IN, 60, "other"));
+        checker.setTimeout(Duration.ofMillis(500));
+        checker.awaitPropagation(RECORD, "digest");
+    }
+}
@@ -0,0 +1,89 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.challenge.DnsChallengeSolver;
+import cn.lycodeing.challenge.Http01Responder;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class Http01ResponderTest {
+
+    private Http01Responder responder;
+
+    @Before
+    public void setUp() throws Exception {
+        responder = new Http01Responder(0);
+    }
+
+    @After
+    public void tearDown() {
+        responder.close();
+    }
+
+    @Test
+    public void answersPipelinedRequestsOnOneConnection() throws Exception {
+        responder.add("token1", "token1.thumbprint");
+        String requests = "GET /.well-known/acme-challenge/token1 HTTP/1.1\r\nHost: example.com\r\n\r\n"
+                + "GET /.well-known/acme-challenge/missing HTTP/1.1\r\nHost: example.com\r\n\r\n"
+                + "POST /.well-known/acme-challenge/token1 HTTP/1.1\r\nHost: example.com\r\n\r\n"
+                + "GET /.well-known/acme-challenge/token1 HTTP/1.1\r\nHost: example.com\r\nConnection: close\r\n\r\n";
+        try (Socket socket = new Socket("127.0.0.1", responder.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(requests.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String responses = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+
+            List<String> statuses = new ArrayList<>();
+            Matcher matcher = Pattern.compile("HTTP/1\\.1 (\\d{3})").matcher(responses);
+            while (matcher.find()) {
+                statuses.add(matcher.group(1));
+            }
+            assertEquals(Arrays.asList("200", "404", "405", "200"), statuses);
+            assertTrue(responses.endsWith("\r\n\r\ntoken1.thumbprint"));
+        }
+        assertEquals(4, responder.getRequestCount());
+    }
+
+    @Test
+    public void issuesWithHttp01AndFallsBackToDnsForWildcards() throws Exception {
+        try (MockAcmeServer server = new MockAcmeServer()) {
+            server.setHttp01Port(responder.getPort());
+            server.setHttp01VantagePoints(3);
+            AcmeClient acmeClient = new AcmeClient(server.getDirectoryUrl());
+            acmeClient.setAccountKeyType(KeyTypeEnum.EC_P256);
+            acmeClient.setChallengeSolvers(Arrays.asList(responder, new DnsChallengeSolver(null)));
+            acmeClient.createAccount("test@example.com");
+
+            acmeClient.newOrder(Arrays.asList("example.com", "*.example.com", "www.example.org"));
+            acmeClient.validateOrder();
+            acmeClient.finalizeOrder(acmeClient.getFinalizeOrderUrl());
+            acmeClient.getOrder();
+
+            // Two http-01 challenges, fetched by three vantage points each
+            assertEquals(6, responder.getRequestCount());
+            assertEquals(0, responder.size());
+            assertFalse(responder.supports("*.example.com"));
+        }
+    }
+}
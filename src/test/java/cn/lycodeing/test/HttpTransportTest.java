@@ -0,0 +1,149 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.http.ApacheHttpTransport;
+import cn.lycodeing.http.HttpTransport;
+import cn.lycodeing.http.HttpTransportConfig;
+import cn.lycodeing.http.JdkHttpTransport;
+import cn.lycodeing.request.Directory;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.utils.HttpUtil;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HttpTransportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void apacheTransportServesRequests() throws Exception {
+        try (HttpTransport transport = new ApacheHttpTransport()) {
+            assertRequests(transport);
+        }
+    }
+
+    @Test
+    public void jdkTransportServesRequests() throws Exception {
+        try (HttpTransport transport = new JdkHttpTransport()) {
+            assertRequests(transport);
+        }
+    }
+
+    @Test
+    public void issuesCertificateOverJdkTransport() throws Exception {
+        try (HttpTransport transport = new JdkHttpTransport()) {
+            AcmeClient acmeClient = new AcmeClient(server.getDirectoryUrl(), transport);
+            acmeClient.setAccountKeyType(KeyTypeEnum.EC_P256);
+            acmeClient.setDomainKeyType(KeyTypeEnum.EC_P256);
+            acmeClient.setDnsPropagationChecker(null);
+            acmeClient.createAccount("test@example.com");
+            acmeClient.newOrder(Arrays.asList("example.com"));
+            acmeClient.validateOrder();
+            acmeClient.finalizeOrder(acmeClient.getFinalizeOrderUrl());
+            acmeClient.getOrder();
+            File cert = new File(folder.getRoot(), "cert.pem");
+            acmeClient.getCertificate(cert.getPath(), new File(folder.getRoot(), "private.key").getPath());
+            assertTrue(cert.length() > 0);
+        }
+    }
+
+    @Test
+    public void apacheTransportAbortsHungRequest() throws Exception {
+        HttpServer hung = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService handlers = Executors.newCachedThreadPool();
+        hung.createContext("/", exchange -> {
+            try {
+                Thread.sleep(10_000);
+                exchange.sendResponseHeaders(200, -1);
+            } catch (InterruptedException ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        hung.setExecutor(handlers);
+        hung.start();
+        HttpTransportConfig config = HttpTransportConfig.builder()
+                .readTimeout(Duration.ofSeconds(30))
+                .requestTimeout(Duration.ofMillis(300))
+                .build();
+        long start = System.nanoTime();
+        try (HttpTransport transport = new ApacheHttpTransport(config)) {
+            transport.get("http://127.0.0.1:" + hung.getAddress().getPort() + "/");
+            fail("Expected the request to time out");
+        } catch (IOException expected) {
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        } finally {
+            hung.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+
+    private void assertRequests(HttpTransport transport) throws Exception {
+        HttpUtil.Response directory = transport.get(server.getDirectoryUrl());
+        assertEquals(200, directory.getStatusCode());
+        assertTrue(directory.getContent().contains("newNonce"));
+
+        HttpUtil.Response typed = transport.get(server.getDirectoryUrl(), Directory.class);
+        assertNull(typed.getContent());
+        assertEquals(server.getBaseUrl() + "/new-order", typed.getContent(Directory.class).getNewOrder());
+
+        Path target = folder.getRoot().toPath().resolve("directory.json");
+        HttpUtil.Response downloaded = transport.download(server.getDirectoryUrl(), target);
+        assertEquals(200, downloaded.getStatusCode());
+        assertEquals(directory.getContent(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+        Path missing = folder.getRoot().toPath().resolve("missing.pem");
+        HttpUtil.Response notFound = transport.download(server.getBaseUrl() + "/cert/unknown", missing);
+        assertEquals(404, notFound.getStatusCode());
+        assertNotNull(notFound.getProblem());
+        assertFalse(Files.exists(missing));
+        assertEquals(1, folder.getRoot().list().length);
+
+        HttpUtil.Response nonce = transport.head(server.getBaseUrl() + "/new-nonce");
+        assertEquals(200, nonce.getStatusCode());
+        assertNotNull(nonce.getHeader("replay-nonce"));
+
+        CompletableFuture<HttpUtil.Response> unsigned = transport.postAsync(server.getBaseUrl() + "/new-order",
+                "{}".getBytes(), Collections.singletonMap("Content-Type", "application/jose+json"));
+        HttpUtil.Response problem = unsigned.join();
+        assertTrue(problem.getStatusCode() >= 400);
+        assertNotNull(problem.getProblem());
+    }
+}
@@ -0,0 +1,76 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.jws.JwsBuilder;
+import cn.lycodeing.request.Identifier;
+import cn.lycodeing.request.Jws;
+import cn.lycodeing.request.Payload;
+import cn.lycodeing.request.ProtectedHeader;
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.CryptoUtils;
+import cn.lycodeing.utils.GsonUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class JwsBuilderTest {
+
+    @Test
+    public void matchesGsonEncoding() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair();
+        ProtectedHeader header = ProtectedHeader.builder()
+                .alg("RS256")
+                .jwk(AcmeUtils.publicKeyToJwk(keyPair.getPublic()))
+                .nonce("nonce-1")
+                .url("https://example.com/acme/new-order")
+                .build();
+        Payload payload = new Payload(Arrays.asList(new Identifier("dns", "example.com"), new Identifier("dns", "*.例子.com")));
+
+        Jws jws = GsonUtils.fromJson(new String(JwsBuilder.sign(keyPair.getPrivate(), header, payload), StandardCharsets.UTF_8), Jws.class);
+
+        assertEquals(GsonUtils.toJson(header), decode(jws.getProtectedHeader()));
+        assertEquals(GsonUtils.toJson(payload), decode(jws.getPayload()));
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update((jws.getProtectedHeader() + "." + jws.getPayload()).getBytes(StandardCharsets.US_ASCII));
+        assertTrue(verifier.verify(Base64.getUrlDecoder().decode(jws.getSignature())));
+    }
+
+    @Test
+    public void encodesAccountPayloads() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        ProtectedHeader header = ProtectedHeader.builder().alg("ES256").kid("kid").nonce("n").url("u").build();
+        for (Payload payload : Arrays.asList(new Payload("a@example.com", true), Payload.onlyReturnExisting())) {
+            Jws jws = GsonUtils.fromJson(new String(JwsBuilder.sign(keyPair.getPrivate(), header, payload), StandardCharsets.UTF_8), Jws.class);
+            assertEquals(GsonUtils.toJson(payload), decode(jws.getPayload()));
+        }
+    }
+
+    @Test
+    public void postAsGetHasEmptyPayload() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        ProtectedHeader header = ProtectedHeader.builder().alg("ES256").kid("kid").nonce("n").url("u").build();
+
+        Jws jws = GsonUtils.fromJson(new String(JwsBuilder.sign(keyPair.getPrivate(), header, null), StandardCharsets.UTF_8), Jws.class);
+
+        assertEquals("", jws.getPayload());
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update((jws.getProtectedHeader() + ".").getBytes(StandardCharsets.US_ASCII));
+        assertTrue(verifier.verify(Base64.getUrlDecoder().decode(jws.getSignature())));
+    }
+
+    private static String decode(String base64Url) {
+        return new String(Base64.getUrlDecoder().decode(base64Url), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.http.MeteredHttpTransport;
+import cn.lycodeing.metrics.JmxExporter;
+import cn.lycodeing.metrics.LatencyHistogram;
+import cn.lycodeing.metrics.MetricNames;
+import cn.lycodeing.metrics.SimpleMetricsRegistry;
+import cn.lycodeing.response.AcmeProblemException;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockError;
+import cn.lycodeing.utils.HttpUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+    private MockAcmeServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void histogramPercentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000_000L, histogram.getMax());
+        assertEquals(500.5e6, histogram.getMean(), 1);
+        long p50 = histogram.percentile(50);
+        long p99 = histogram.percentile(99);
+        assertTrue(p50 >= 500e6 && p50 < 500e6 * 1.25);
+        assertTrue(p99 >= 990e6 && p99 <= 1_000_000_000L);
+    }
+
+    @Test
+    public void recordsEveryStepOfAnIssuance() throws Exception {
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        AcmeClient acmeClient = new AcmeClient(server.getDirectoryUrl(),
+                new MeteredHttpTransport(HttpUtil.getDefaultTransport(), metrics));
+        acmeClient.setMetrics(metrics);
+        acmeClient.setAccountKeyType(KeyTypeEnum.EC_P256);
+        acmeClient.setDomainKeyType(KeyTypeEnum.EC_P256);
+        acmeClient.setDnsPropagationChecker(null);
+        acmeClient.createAccount("test@example.com");
+        server.injectError(MockError.BAD_NONCE, 1);
+        acmeClient.newOrder(Arrays.asList("example.com", "www.example.com"));
+        acmeClient.validateOrder();
+        acmeClient.finalizeOrder(acmeClient.getFinalizeOrderUrl());
+        acmeClient.getOrder();
+
+        for (String step : Arrays.asList(MetricNames.NONCE, MetricNames.NEW_ACCOUNT, MetricNames.NEW_ORDER,
+                MetricNames.CHALLENGE_PREPARE, MetricNames.CHALLENGE_TRIGGER, MetricNames.FINALIZE, MetricNames.KEY_GENERATION,
+                MetricNames.SIGNING, MetricNames.ORDER_WAIT, MetricNames.HTTP_PREFIX + "post")) {
+            assertNotNull(step, metrics.getHistogram(step));
+            assertEquals(step, 0, metrics.getInFlight(step));
+        }
+        assertEquals(2, metrics.getHistogram(MetricNames.AUTHORIZATION).getCount());
+        assertEquals(2, metrics.getHistogram(MetricNames.CHALLENGE_WAIT).getCount());
+        assertEquals(1, metrics.getCount(MetricNames.ERROR_PREFIX + "badNonce"));
+        assertEquals(1, metrics.getCount(MetricNames.HTTP_STATUS_PREFIX + "4xx"));
+    }
+
+    @Test
+    public void countsNonProblemErrorsByStatus() throws Exception {
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        AcmeClient acmeClient = new AcmeClient(server.getDirectoryUrl());
+        acmeClient.setMetrics(metrics);
+        acmeClient.setAccountKeyType(KeyTypeEnum.EC_P256);
+        acmeClient.setDnsPropagationChecker(null);
+        acmeClient.createAccount("test@example.com");
+        server.injectError(MockError.BAD_GATEWAY, 1);
+        try {
+            acmeClient.newOrder(Arrays.asList("example.com"));
+            fail("Expected the 502 to be returned");
+        } catch (AcmeProblemException e) {
+            assertEquals(502, e.getStatus());
+        }
+        assertEquals(1, metrics.getCount(MetricNames.unknownError(502)));
+    }
+
+    @Test
+    public void exportsMetricsOverJmx() throws Exception {
+        SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+        metrics.recordLatency(MetricNames.NEW_ORDER, 2_000_000);
+        metrics.increment(MetricNames.ERROR_PREFIX + "rateLimited");
+        metrics.addInFlight(MetricNames.NEW_ORDER, 1);
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try (JmxExporter exporter = new JmxExporter(metrics, "test")) {
+            assertEquals(1L, mBeanServer.getAttribute(exporter.getObjectName(), "acme.newOrder.count"));
+            assertEquals(2.0, (Double) mBeanServer.getAttribute(exporter.getObjectName(), "acme.newOrder.p99Millis"), 0.001);
+            assertEquals(1L, mBeanServer.getAttribute(exporter.getObjectName(), "acme.error.rateLimited"));
+            assertEquals(1L, mBeanServer.getAttribute(exporter.getObjectName(), "acme.newOrder.inFlight"));
+            assertEquals(8, mBeanServer.getMBeanInfo(exporter.getObjectName()).getAttributes().length);
+        }
+        assertTrue(mBeanServer.queryNames(null, null).stream().noneMatch(name -> name.toString().contains("AcmeMetrics")));
+    }
+}
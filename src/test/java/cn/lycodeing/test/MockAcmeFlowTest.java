@@ -0,0 +1,271 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.challenge.DnsChallengeSolver;
+import cn.lycodeing.dns.FileDnsProvider;
+import cn.lycodeing.dns.TxtRecord;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.response.AcmeProblemException;
+import cn.lycodeing.test.mock.LoadTestDriver;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockError;
+import cn.lycodeing.utils.ThreadUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MockAcmeFlowTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void issuesCertificateWithRsaAccount() throws Exception {
+        issue(KeyTypeEnum.RSA_2048);
+    }
+
+    @Test
+    public void issuesCertificateWithEcAccount() throws Exception {
+        issue(KeyTypeEnum.EC_P256);
+    }
+
+    @Test
+    public void retriesInjectedBadNonce() throws Exception {
+        server.injectError(MockError.BAD_NONCE, 1);
+        issue(KeyTypeEnum.EC_P256);
+        assertEquals(1, server.getInjectedErrorCount());
+    }
+
+    @Test
+    public void failsOnInvalidChallenge() throws Exception {
+        server.setInvalidChallengeRate(1.0);
+        AcmeClient acmeClient = newAccount(KeyTypeEnum.EC_P256);
+        acmeClient.newOrder(Arrays.asList("example.com"));
+        try {
+            acmeClient.validateOrder();
+            fail("Expected the invalid challenge to fail validation");
+        } catch (RuntimeException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void validatesAuthorizationsInParallel() throws Exception {
+        AcmeClient account = newAccount(KeyTypeEnum.EC_P256);
+        server.setLatency(Duration.ofMillis(200));
+
+        AcmeClient single = account.fork();
+        single.newOrder(Arrays.asList("single.example.com"));
+        long start = System.nanoTime();
+        single.validateOrder();
+        long oneAuthorization = System.nanoTime() - start;
+
+        AcmeClient multi = account.fork();
+        multi.newOrder(Arrays.asList("a.example.com", "b.example.com", "c.example.com", "d.example.com", "e.example.com"));
+        start = System.nanoTime();
+        multi.validateOrder();
+        long fiveAuthorizations = System.nanoTime() - start;
+
+        // Sequential validation would take about five times as long
+        assertTrue("1 authorization: " + TimeUnit.NANOSECONDS.toMillis(oneAuthorization) + " ms, 5 authorizations: "
+                        + TimeUnit.NANOSECONDS.toMillis(fiveAuthorizations) + " ms",
+                fiveAuthorizations < oneAuthorization * 2);
+    }
+
+    @Test
+    public void rejectedOrderCarriesTheProblem() throws Exception {
+        server.rejectIdentifier("forbidden.example.com");
+        AcmeClient acmeClient = newAccount(KeyTypeEnum.EC_P256);
+        try {
+            acmeClient.newOrder(Arrays.asList("example.com", "forbidden.example.com"));
+            fail("Expected the order to be rejected");
+        } catch (AcmeProblemException e) {
+            assertEquals(400, e.getStatus());
+            assertEquals("urn:ietf:params:acme:error:rejectedIdentifier", e.getType());
+            assertTrue(e.getDetail().contains("forbidden.example.com"));
+        }
+        assertNull(acmeClient.getAuthorizations());
+    }
+
+    @Test
+    public void htmlErrorPageCarriesTheStatus() throws Exception {
+        AcmeClient acmeClient = newAccount(KeyTypeEnum.EC_P256);
+        server.injectError(MockError.BAD_GATEWAY, 1);
+        try {
+            acmeClient.newOrder(Arrays.asList("example.com"));
+            fail("Expected the 502 to be returned");
+        } catch (AcmeProblemException e) {
+            assertEquals(502, e.getStatus());
+            assertNull(e.getType());
+        }
+        assertEquals(1, server.getInjectedErrorCount());
+    }
+
+    @Test
+    public void failsWithoutPollingWhenOrderIsNotFinalized() throws Exception {
+        AcmeClient acmeClient = newAccount(KeyTypeEnum.EC_P256);
+        acmeClient.newOrder(Arrays.asList("example.com"));
+        acmeClient.validateOrder();
+        long start = System.nanoTime();
+        try {
+            // Still ready, no CSR was sent
+            acmeClient.getOrder();
+            fail("Expected the ready order to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("ready"));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    @Test
+    public void waitsForManualValidation() throws Exception {
+        server.setAutoValidate(false);
+        Thread validator = new Thread(() -> {
+            try {
+                // Both challenges of the order must be triggered before they can be validated
+                int validated = 0;
+                while (validated < 2) {
+                    Thread.sleep(100);
+                    validated += server.validatePendingChallenges();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        validator.setDaemon(true);
+        validator.start();
+        issue(KeyTypeEnum.EC_P256);
+    }
+
+    @Test
+    public void loadTestDriverReportsEveryStep() throws Exception {
+        LoadTestDriver.Report report = new LoadTestDriver(server.getDirectoryUrl()).orders(4).concurrency(2).run();
+        assertEquals(4, report.getCompleted());
+        assertEquals(0, report.getFailed());
+        for (LoadTestDriver.Step step : LoadTestDriver.Step.values()) {
+            assertTrue(report.percentile(step, 99) > 0);
+        }
+    }
+
+    @Test
+    public void publishesDnsRecordsOfManyOrdersInOneBatch() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        FileDnsProvider provider = new FileDnsProvider(folder.getRoot().toPath().resolve("challenges.zone")) {
+            @Override
+            public synchronized void publish(Collection<TxtRecord> records) throws IOException {
+                batchSizes.add(records.size());
+                super.publish(records);
+            }
+        };
+        AcmeClient account = newAccount(KeyTypeEnum.EC_P256);
+        account.setChallengeSolvers(Collections.singletonList(new DnsChallengeSolver(provider, null)));
+        AcmeClient first = account.fork();
+        first.newOrder(Arrays.asList("example.com", "*.example.com", "www.example.com"));
+        AcmeClient second = account.fork();
+        second.newOrder(Arrays.asList("example.org"));
+
+        AcmeClient.validateOrders(Arrays.asList(first, second));
+
+        // example.com and *.example.com share a record name but have different values
+        assertEquals(Collections.singletonList(4), batchSizes);
+        assertEquals(2, provider.getBatchCount());
+        assertEquals(0, provider.size());
+        assertEquals(0, Files.size(provider.getFile()));
+    }
+
+    @Test
+    public void issuesConcurrentOrdersFromOneClient() throws Exception {
+        AcmeClient account = newAccount(KeyTypeEnum.EC_P256);
+        account.setDomainKeyType(KeyTypeEnum.EC_P256);
+        ExecutorService executor = ThreadUtils.newVirtualThreadExecutor("test-issue");
+        account.setExecutor(executor);
+        try {
+            List<CompletableFuture<IssuedCertificate>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(account.issue(Collections.singletonList("host" + i + ".example.com")));
+            }
+            Set<String> orderUrls = new HashSet<>();
+            for (int i = 0; i < futures.size(); i++) {
+                IssuedCertificate issued = futures.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(Collections.singletonList("host" + i + ".example.com"), issued.getDomains());
+                assertEquals(2, issued.getCertificateChain().split("-----BEGIN CERTIFICATE-----").length - 1);
+                X509Certificate leaf = (X509Certificate) CertificateFactory.getInstance("X.509")
+                        .generateCertificate(new ByteArrayInputStream(issued.getCertificateChain().getBytes(StandardCharsets.US_ASCII)));
+                assertEquals(issued.getKeyPair().getPublic(), leaf.getPublicKey());
+                assertEquals("host" + i + ".example.com", leaf.getSubjectAlternativeNames().iterator().next().get(1));
+                orderUrls.add(issued.getOrderUrl());
+            }
+            assertEquals(12, orderUrls.size());
+            // The account client itself holds no order state
+            assertNull(account.getFinalizeOrderUrl());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AcmeClient newAccount(KeyTypeEnum accountKeyType) throws Exception {
+        AcmeClient acmeClient = new AcmeClient(server.getDirectoryUrl());
+        acmeClient.setAccountKeyType(accountKeyType);
+        acmeClient.setDnsPropagationChecker(null);
+        acmeClient.createAccount("test@example.com");
+        return acmeClient;
+    }
+
+    private void issue(KeyTypeEnum accountKeyType) throws Exception {
+        AcmeClient acmeClient = newAccount(accountKeyType);
+        acmeClient.newOrder(Arrays.asList("example.com", "www.example.com"));
+        acmeClient.validateOrder();
+        acmeClient.finalizeOrder(acmeClient.getFinalizeOrderUrl());
+        acmeClient.getOrder();
+
+        File cert = new File(folder.getRoot(), "cert.pem");
+        File key = new File(folder.getRoot(), "private.key");
+        acmeClient.getCertificate(cert.getPath(), key.getPath());
+
+        String pem = new String(Files.readAllBytes(cert.toPath()), StandardCharsets.US_ASCII);
+        assertEquals(2, pem.split("-----BEGIN CERTIFICATE-----").length - 1);
+        assertTrue(key.length() > 0);
+    }
+}
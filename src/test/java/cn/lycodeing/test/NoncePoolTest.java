@@ -0,0 +1,103 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.http.JdkHttpTransport;
+import cn.lycodeing.nonce.NoncePool;
+import cn.lycodeing.response.AcmeProblemException;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class NoncePoolTest {
+
+    private MockAcmeServer server;
+    private NoncePool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        pool = new NoncePool(() -> server.getBaseUrl() + "/new-nonce", new JdkHttpTransport());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void reusesOfferedNoncesNewestFirst() throws Exception {
+        pool.setMaxSize(2);
+        pool.offer("a");
+        pool.offer("b");
+        pool.offer("c");
+        assertEquals(2, pool.size());
+        assertEquals("c", pool.take());
+        assertEquals("b", pool.take());
+        assertEquals(0, server.getNewNonceCount());
+    }
+
+    @Test
+    public void fetchesNewNonceWhenEmptyAndPrefetches() throws Exception {
+        pool.setPrefetchSize(2);
+        assertNotNull(pool.take());
+        assertEquals(1, server.getNewNonceCount());
+        // The miss starts a background prefetch
+        await(() -> pool.size() == 2);
+        assertEquals(3, server.getNewNonceCount());
+
+        pool.take();
+        pool.take();
+        assertEquals(3, server.getNewNonceCount());
+    }
+
+    @Test
+    public void prefetchesBelowLowWaterMark() throws Exception {
+        pool.setLowWaterMark(2);
+        pool.setPrefetchSize(2);
+        pool.offer("a");
+        pool.offer("b");
+        assertEquals("b", pool.take());
+        await(() -> pool.size() == 3);
+        assertEquals(2, server.getNewNonceCount());
+    }
+
+    @Test
+    public void retriesBadNonceOnce() throws Exception {
+        AcmeClient client = new AcmeClient(server.getDirectoryUrl());
+        client.setAccountKeyType(KeyTypeEnum.EC_P256);
+        client.setDnsPropagationChecker(null);
+        client.createAccount("test@example.com");
+
+        server.injectError(MockError.BAD_NONCE, 1);
+        client.newOrder(Collections.singletonList("example.com"));
+        assertEquals(1, server.getInjectedErrorCount());
+
+        server.injectError(MockError.BAD_NONCE, 2);
+        try {
+            client.newOrder(Collections.singletonList("example.com"));
+            fail("Expected the second badNonce to be returned");
+        } catch (AcmeProblemException e) {
+            assertEquals("urn:ietf:params:acme:error:badNonce", e.getType());
+        }
+        assertEquals(3, server.getInjectedErrorCount());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
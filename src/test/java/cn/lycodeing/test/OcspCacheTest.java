@@ -0,0 +1,169 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.enums.OcspStatusEnum;
+import cn.lycodeing.http.JdkHttpTransport;
+import cn.lycodeing.ocsp.OcspCache;
+import cn.lycodeing.ocsp.OcspPolicy;
+import cn.lycodeing.ocsp.OcspStaple;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import cn.lycodeing.test.mock.MockCertificateAuthority;
+import cn.lycodeing.test.mock.MockOcspResponder;
+import cn.lycodeing.utils.CryptoUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class OcspCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockCertificateAuthority ca;
+    private MockOcspResponder responder;
+    private CertificateStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        ca = new MockCertificateAuthority();
+        responder = new MockOcspResponder(ca);
+        ca.setOcspUrl(responder.getUrl());
+        store = new CertificateStore(folder.newFolder("store").toPath());
+    }
+
+    @After
+    public void tearDown() {
+        responder.close();
+    }
+
+    @Test
+    public void fetchesOneRequestPerBatchAndReloadsSavedResponses() throws Exception {
+        List<StoredCertificate> certificates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            certificates.add(issue("host" + i + ".example.com"));
+        }
+        BigInteger revoked = new BigInteger(certificates.get(3).getSerial(), 16);
+        responder.revoke(revoked);
+        OcspPolicy policy = OcspPolicy.builder().certificatesPerRequest(4).build();
+
+        try (OcspCache cache = new OcspCache(store, new JdkHttpTransport(), policy)) {
+            cache.start();
+            await(() -> cache.getFetchedCount() == 4);
+            assertEquals(1, responder.getRequestCount());
+            assertEquals(1, cache.getRequestCount());
+            for (StoredCertificate certificate : certificates) {
+                OcspStaple staple = cache.getStaple(certificate.getId());
+                assertEquals(staple.getSerial().equals(revoked) ? OcspStatusEnum.REVOKED : OcspStatusEnum.GOOD, staple.getStatus());
+                assertArrayEquals(staple.getResponse(), Files.readAllBytes(store.getOcspResponsePath(certificate)));
+            }
+        }
+
+        // Saved responses are verified and served after a restart without asking the responder again
+        try (OcspCache cache = new OcspCache(store, new JdkHttpTransport(), policy)) {
+            cache.start();
+            assertEquals(4, cache.size());
+            for (StoredCertificate certificate : certificates) {
+                assertNotNull(cache.getResponse(certificate.getId()));
+                assertTrue(cache.getRefreshAt(certificate.getId()).toEpochMilli() > System.currentTimeMillis());
+            }
+            assertEquals(1, responder.getRequestCount());
+            assertEquals(0, cache.getRequestCount());
+        }
+    }
+
+    @Test
+    public void refreshesBeforeResponsesExpire() throws Exception {
+        responder.setValidity(Duration.ofSeconds(2));
+        StoredCertificate certificate = issue("short.example.com");
+        OcspPolicy policy = OcspPolicy.builder().minRefreshInterval(Duration.ofMillis(100)).build();
+
+        try (OcspCache cache = new OcspCache(store, new JdkHttpTransport(), policy)) {
+            cache.start();
+            await(() -> cache.getFetchedCount() == 1);
+            OcspStaple first = cache.getStaple(certificate.getId());
+            await(() -> cache.getFetchedCount() == 2);
+            assertTrue(System.currentTimeMillis() < first.getNextUpdate());
+            assertNotNull(cache.getResponse(certificate.getId()));
+            assertEquals(2, responder.getRequestCount());
+        }
+    }
+
+    @Test
+    public void rejectsResponsesNotSignedByTheIssuer() throws Exception {
+        // No AIA extension, the responder comes from the policy
+        ca.setOcspUrl(null);
+        StoredCertificate certificate = issue("forged.example.com");
+        responder.setSigningKey(CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256).getPrivate());
+        OcspPolicy policy = OcspPolicy.builder().responderUrl(responder.getUrl()).build();
+
+        try (OcspCache cache = new OcspCache(store, new JdkHttpTransport(), policy)) {
+            cache.start();
+            await(() -> cache.getFailedCount() == 1);
+            assertEquals(1, responder.getRequestCount());
+            assertNull(cache.getResponse(certificate.getId()));
+            assertFalse(Files.exists(store.getOcspResponsePath(certificate)));
+            // Retried after the backoff
+            assertTrue(cache.getRefreshAt(certificate.getId()).toEpochMilli() > System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    public void corruptCertificatesDoNotStopTheRefreshThread() throws Exception {
+        StoredCertificate good = issue("good.example.com");
+        StoredCertificate corruptPem = issue("corrupt-pem.example.com");
+        Files.write(store.getCertificatePath(corruptPem), "not a certificate".getBytes(StandardCharsets.US_ASCII));
+        // Metadata without the intermediates list fails with a NullPointerException while reading the chain
+        StoredCertificate corruptMeta = issue("corrupt-meta.example.com");
+        corruptMeta.setIntermediates(null);
+
+        try (OcspCache cache = new OcspCache(store, new JdkHttpTransport(), OcspPolicy.defaults())) {
+            cache.start();
+            await(() -> cache.getFetchedCount() == 1 && cache.getFailedCount() == 2);
+            assertNotNull(cache.getResponse(good.getId()));
+            assertNull(cache.getResponse(corruptPem.getId()));
+            assertNull(cache.getResponse(corruptMeta.getId()));
+            // Both are retried after the backoff
+            assertNotNull(cache.getRefreshAt(corruptMeta.getId()));
+
+            // The refresh thread is still running
+            StoredCertificate later = issue("later.example.com");
+            cache.add(later);
+            await(() -> cache.getFetchedCount() == 2);
+            assertNotNull(cache.getResponse(later.getId()));
+        }
+    }
+
+    private StoredCertificate issue(String domain) throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        X509Certificate leaf = ca.issue(keyPair.getPublic(), Collections.singletonList(domain), Duration.ofDays(90));
+        String chain = MockCertificateAuthority.toPem(leaf) + MockCertificateAuthority.toPem(ca.getCertificate());
+        return store.save(domain.replace(".", "-"), chain.getBytes(StandardCharsets.US_ASCII), keyPair.getPrivate());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
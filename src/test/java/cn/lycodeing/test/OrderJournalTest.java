@@ -0,0 +1,166 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.enums.OrderStateEnum;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.order.JournaledOrder;
+import cn.lycodeing.order.OrderJournal;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.utils.CryptoUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.KeyPair;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class OrderJournalTest {
+
+    private static final String ACCOUNT = "https://ca.example/acct/1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysPendingOrdersAndCompacts() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("orders.jsonl");
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        try (OrderJournal journal = new OrderJournal(file)) {
+            journal.record(order("1", OrderStateEnum.CREATED, 0));
+            journal.record(order("2", OrderStateEnum.CREATED, 0));
+            JournaledOrder finalizing = order("2", OrderStateEnum.FINALIZING, 0);
+            finalizing.setKeyPair(keyPair);
+            journal.record(finalizing);
+            journal.record(order("3", OrderStateEnum.CREATED, 0));
+            journal.record(order("3", OrderStateEnum.COMPLETED, 0));
+            journal.record(order("4", OrderStateEnum.CREATED, System.currentTimeMillis() - 1));
+        }
+        // A record torn by a crash
+        Files.write(file, "{\"orderUrl\":\"https://ca.example/order/5\",\"sta".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (OrderJournal journal = new OrderJournal(file)) {
+            assertEquals(2, journal.size());
+            assertEquals(OrderStateEnum.CREATED, journal.get("https://ca.example/order/1").getState());
+            JournaledOrder restored = journal.get("https://ca.example/order/2");
+            assertEquals(OrderStateEnum.FINALIZING, restored.getState());
+            assertEquals(keyPair.getPublic(), restored.toKeyPair().getPublic());
+            assertEquals(keyPair.getPrivate(), restored.toKeyPair().getPrivate());
+            assertNull(journal.get("https://ca.example/order/3"));
+            assertEquals(2, journal.getPending(ACCOUNT).size());
+            assertTrue(journal.getPending("https://ca.example/acct/2").isEmpty());
+            assertEquals(2, Files.readAllLines(file).size());
+        }
+    }
+
+    @Test
+    public void concurrentWritersShareSyncs() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("orders.jsonl");
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try (OrderJournal journal = new OrderJournal(file)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(writers.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        journal.record(order(thread + "-" + i, OrderStateEnum.CREATED, 0));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(400, journal.size());
+            assertTrue(journal.getSyncCount() <= 400);
+        } finally {
+            writers.shutdownNow();
+        }
+        assertEquals(400, new OrderJournal(file).size());
+    }
+
+    @Test
+    public void resumesOrdersInterruptedAtEveryStep() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("orders.jsonl");
+        try (MockAcmeServer server = new MockAcmeServer()) {
+            AcmeClient account = new AcmeClient(server.getDirectoryUrl());
+            account.setAccountKeyType(KeyTypeEnum.EC_P256);
+            account.setDomainKeyType(KeyTypeEnum.EC_P256);
+            account.setDnsPropagationChecker(null);
+            account.createAccount("test@example.com");
+
+            Map<String, KeyPair> journaledKeys = new HashMap<>();
+            try (OrderJournal journal = new OrderJournal(file)) {
+                account.setOrderJournal(journal);
+                // Lost right after the order was created
+                account.fork().newOrder(Collections.singletonList("created.example.com"));
+                // Lost after validation, before the CSR was sent
+                AcmeClient validated = account.fork();
+                validated.newOrder(Collections.singletonList("ready.example.com"));
+                validated.validateOrder();
+                // Lost after finalize, the certificate was issued for the journaled key
+                AcmeClient finalized = account.fork();
+                finalized.newOrder(Arrays.asList("finalized.example.com", "www.finalized.example.com"));
+                finalized.validateOrder();
+                finalized.finalizeOrder(finalized.getFinalizeOrderUrl());
+                journaledKeys.put(finalized.getOrderUrl(), finalized.getDomainKeyPair());
+                assertEquals(3, journal.size());
+            }
+
+            try (OrderJournal journal = new OrderJournal(file)) {
+                account.setOrderJournal(journal);
+                List<CompletableFuture<IssuedCertificate>> resumed = account.resumePendingOrders();
+                assertEquals(3, resumed.size());
+                for (CompletableFuture<IssuedCertificate> future : resumed) {
+                    IssuedCertificate issued = future.get(30, TimeUnit.SECONDS);
+                    X509Certificate leaf = (X509Certificate) CertificateFactory.getInstance("X.509")
+                            .generateCertificate(new ByteArrayInputStream(issued.getCertificateChain().getBytes(StandardCharsets.US_ASCII)));
+                    assertEquals(issued.getKeyPair().getPublic(), leaf.getPublicKey());
+                    KeyPair journaledKey = journaledKeys.get(issued.getOrderUrl());
+                    if (journaledKey != null) {
+                        assertEquals(journaledKey.getPublic(), issued.getKeyPair().getPublic());
+                    }
+                    assertNotNull(issued.getDomains());
+                }
+                assertEquals(0, journal.size());
+            }
+            assertEquals(0, new OrderJournal(file).size());
+        }
+    }
+
+    private static JournaledOrder order(String id, OrderStateEnum state, long expires) {
+        JournaledOrder order = new JournaledOrder();
+        order.setAccount(ACCOUNT);
+        order.setOrderUrl("https://ca.example/order/" + id);
+        order.setState(state);
+        order.setDomains(Collections.singletonList("host" + id + ".example.com"));
+        order.setFinalizeUrl("https://ca.example/finalize/" + id);
+        order.setExpires(expires);
+        return order;
+    }
+}
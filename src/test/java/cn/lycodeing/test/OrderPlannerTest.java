@@ -0,0 +1,94 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.bulk.DomainSet;
+import cn.lycodeing.bulk.OrderPlanner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class OrderPlannerTest {
+
+    @Test
+    public void packsDomainsIntoFewestOrders() {
+        List<String> hosts = new ArrayList<>();
+        // 7 registered domains with 30 hosts each fit into 3 orders of 100 when kept together
+        for (int domain = 0; domain < 7; domain++) {
+            for (int host = 0; host < 30; host++) {
+                hosts.add("h" + host + ".d" + domain + ".com");
+            }
+        }
+        List<DomainSet> orders = new OrderPlanner().plan(hosts);
+
+        assertEquals(3, orders.size());
+        Set<String> planned = new HashSet<>();
+        for (DomainSet order : orders) {
+            assertTrue(order.getDomains().size() <= 100);
+            planned.addAll(order.getDomains());
+            // No registered domain is split across orders
+            for (String domain : order.getDomains()) {
+                String registered = domain.substring(domain.indexOf('.') + 1);
+                assertTrue(order.getDomains().containsAll(filter(hosts, registered)));
+            }
+        }
+        assertEquals(new HashSet<>(hosts), planned);
+    }
+
+    @Test
+    public void splitsDomainsLargerThanOneOrder() {
+        List<String> hosts = new ArrayList<>();
+        for (int host = 0; host < 250; host++) {
+            hosts.add("h" + host + ".big.com");
+        }
+        hosts.add("small.com");
+        OrderPlanner planner = new OrderPlanner();
+        List<DomainSet> orders = planner.plan(hosts);
+
+        assertEquals(3, orders.size());
+        assertEquals(100, orders.get(0).getDomains().size());
+        assertEquals(100, orders.get(1).getDomains().size());
+        assertEquals(51, orders.get(2).getDomains().size());
+    }
+
+    @Test
+    public void normalizesAndCollapsesWildcards() {
+        OrderPlanner planner = new OrderPlanner();
+        planner.setWildcardThreshold(3);
+        List<DomainSet> orders = planner.plan(Arrays.asList(
+                "A.api.example.com.", "a.api.example.com", "b.api.example.com", "c.api.example.com",
+                "x.cdn.example.com", "*.cdn.example.com", "www.example.com", "example.com", "www.other.org"));
+
+        assertEquals(1, orders.size());
+        assertEquals(new HashSet<>(Arrays.asList("*.api.example.com", "*.cdn.example.com", "www.example.com",
+                "example.com", "www.other.org")), new HashSet<>(orders.get(0).getDomains()));
+    }
+
+    @Test
+    public void findsRegisteredDomain() {
+        OrderPlanner planner = new OrderPlanner();
+        planner.getPublicSuffixes().add("github.io");
+        assertEquals("example.com", planner.registeredDomain("a.b.example.com"));
+        assertEquals("example.co.uk", planner.registeredDomain("www.example.co.uk"));
+        assertEquals("example.com.cn", planner.registeredDomain("*.example.com.cn"));
+        assertEquals("user.github.io", planner.registeredDomain("docs.user.github.io"));
+        assertEquals("example.com", planner.registeredDomain("example.com"));
+    }
+
+    private static List<String> filter(List<String> hosts, String registered) {
+        List<String> result = new ArrayList<>();
+        for (String host : hosts) {
+            if (host.endsWith("." + registered)) {
+                result.add(host);
+            }
+        }
+        return result;
+    }
+}
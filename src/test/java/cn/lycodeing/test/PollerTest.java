@@ -0,0 +1,72 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.poll.PollPolicy;
+import cn.lycodeing.poll.PollResult;
+import cn.lycodeing.poll.Poller;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class PollerTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final PollPolicy policy = PollPolicy.builder()
+            .initialDelay(Duration.ofMillis(10))
+            .maxDelay(Duration.ofMillis(50))
+            .timeout(Duration.ofSeconds(2))
+            .build();
+
+    @Test
+    public void completesAfterPendingAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        String value = new Poller().poll(() -> attempts.incrementAndGet() < 5
+                        ? PollResult.<String>pending(-1)
+                        : PollResult.done("valid"), policy, executor)
+                .join();
+        assertEquals("valid", value);
+        assertEquals(5, attempts.get());
+    }
+
+    @Test
+    public void honoursRetryAfter() {
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        new Poller().poll(() -> attempts.incrementAndGet() < 2
+                ? PollResult.<String>pending(300)
+                : PollResult.done("valid"), policy, executor).join();
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(300).toNanos());
+    }
+
+    @Test
+    public void failsWhenDeadlineWouldBeExceeded() {
+        try {
+            new Poller().poll(() -> PollResult.<String>pending(5000), policy, executor).join();
+            fail("expected timeout");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void propagatesAttemptFailure() {
+        try {
+            new Poller().poll(() -> {
+                throw new IllegalStateException("invalid");
+            }, policy, executor).join();
+            fail("expected failure");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.challenge.ChallengeFailedException;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.order.IssuedCertificate;
+import cn.lycodeing.order.OrderSession;
+import cn.lycodeing.ratelimit.OrderScheduler;
+import cn.lycodeing.ratelimit.RateLimitPolicy;
+import cn.lycodeing.ratelimit.RateLimitedException;
+import cn.lycodeing.ratelimit.TokenBucket;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockError;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RateLimitTest {
+
+    @Test
+    public void tokenBucketRefillsContinuouslyAndPauses() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), now::get);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        bucket.pause(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), bucket.nanosUntilAvailable());
+        assertEquals(2.0, bucket.getTokens(), 0.001);
+    }
+
+    @Test
+    public void parksOrdersUntilTheirBucketsRefill() throws Exception {
+        RateLimitPolicy policy = RateLimitPolicy.builder()
+                .certificatesPerDomain(1).certificateWindow(Duration.ofMillis(500))
+                .failedValidationsPerHost(1).failedValidationWindow(Duration.ofHours(1))
+                .build();
+        try (OrderScheduler scheduler = new OrderScheduler(policy)) {
+            long start = System.nanoTime();
+            scheduler.submit(Arrays.asList("a.example.com"), System::nanoTime).get(5, TimeUnit.SECONDS);
+            CompletableFuture<Long> second = scheduler.submit(Arrays.asList("b.example.com"), System::nanoTime);
+            long other = scheduler.submit(Arrays.asList("example.org"), System::nanoTime).get(5, TimeUnit.SECONDS);
+            // Same registered domain waits for a refill, a different one does not
+            assertTrue(second.get(5, TimeUnit.SECONDS) - start >= TimeUnit.MILLISECONDS.toNanos(400));
+            assertTrue(second.get() > other);
+            assertTrue(scheduler.getParkedCount() >= 1);
+
+            CompletableFuture<Object> failed = scheduler.submit(Collections.singletonList("bad.example.net"), () -> {
+                throw new ChallengeFailedException("bad.example.net", "Challenge validation failed");
+            });
+            try {
+                failed.get(5, TimeUnit.SECONDS);
+                fail("Expected the validation failure");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ChallengeFailedException);
+            }
+            // The hostname used up its failed validations and is parked for the rest of the window
+            CompletableFuture<Long> retry = scheduler.submit(Collections.singletonList("bad.example.net"), System::nanoTime);
+            try {
+                retry.get(300, TimeUnit.MILLISECONDS);
+                fail("Expected the order to be parked");
+            } catch (TimeoutException expected) {
+                assertEquals(1, scheduler.getParkedSize());
+            }
+        }
+    }
+
+    @Test
+    public void honorsRetryAfterOfRateLimitedResponses() throws Exception {
+        try (MockAcmeServer server = new MockAcmeServer();
+             OrderScheduler scheduler = new OrderScheduler(RateLimitPolicy.defaults())) {
+            AcmeClient account = new AcmeClient(server.getDirectoryUrl());
+            account.setAccountKeyType(KeyTypeEnum.EC_P256);
+            account.setDnsPropagationChecker(null);
+            account.createAccount("test@example.com");
+
+            server.setRetryAfterSeconds(1);
+            server.injectError(MockError.RATE_LIMITED, 1);
+            AcmeClient direct = account.fork();
+            try {
+                direct.newOrder(Arrays.asList("example.com"));
+                fail("Expected the 429 to be detected");
+            } catch (RateLimitedException e) {
+                assertEquals(1000, e.getRetryAfterMillis());
+            }
+
+            server.injectError(MockError.RATE_LIMITED, 1);
+            long start = System.nanoTime();
+            String finalizeUrl = scheduler.submit(Arrays.asList("example.com"), () -> {
+                AcmeClient client = account.fork();
+                client.newOrder(Arrays.asList("example.com"));
+                client.validateOrder();
+                return client.getFinalizeOrderUrl();
+            }).get(10, TimeUnit.SECONDS);
+            assertTrue(finalizeUrl.startsWith(server.getBaseUrl()));
+            assertEquals(1, scheduler.getRateLimitedCount());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        }
+    }
+
+    @Test
+    public void continuesTheSameOrderWhenFinalizeIsRateLimited() throws Exception {
+        // One order per hour, a retry charged as a new order would wait for the next token
+        RateLimitPolicy policy = RateLimitPolicy.builder().ordersPerAccount(1).orderWindow(Duration.ofHours(1)).build();
+        try (MockAcmeServer server = new MockAcmeServer();
+             OrderScheduler scheduler = new OrderScheduler(policy)) {
+            AcmeClient account = new AcmeClient(server.getDirectoryUrl());
+            account.setAccountKeyType(KeyTypeEnum.EC_P256);
+            account.setDomainKeyType(KeyTypeEnum.EC_P256);
+            account.setDnsPropagationChecker(null);
+            account.createAccount("test@example.com");
+
+            server.setRetryAfterSeconds(1);
+            server.injectError(MockError.RATE_LIMITED, "/finalize/", 1);
+            OrderSession session = new OrderSession(account);
+            IssuedCertificate issued = scheduler.issue(session, Arrays.asList("example.com")).get(10, TimeUnit.SECONDS);
+
+            assertTrue(issued.getCertificateChain().contains("BEGIN CERTIFICATE"));
+            assertEquals(1, server.getInjectedErrorCount());
+            assertEquals(1, scheduler.getRateLimitedCount());
+            assertEquals(1, server.getOrderCount());
+            assertEquals(session.getOrderUrl(), issued.getOrderUrl());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cn.lycodeing.test;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.renewal.RenewalPolicy;
+import cn.lycodeing.renewal.RenewalScheduler;
+import cn.lycodeing.store.CertificateStore;
+import cn.lycodeing.store.StoredCertificate;
+import cn.lycodeing.test.mock.MockAcmeServer;
+import cn.lycodeing.test.mock.MockCertificateAuthority;
+import cn.lycodeing.utils.CryptoUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class RenewalSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockAcmeServer server;
+
+    private CertificateStore store;
+
+    private AcmeClient account;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockAcmeServer();
+        store = new CertificateStore(folder.newFolder("store").toPath());
+        account = new AcmeClient(server.getDirectoryUrl());
+        account.setAccountKeyType(KeyTypeEnum.EC_P256);
+        account.setDomainKeyType(KeyTypeEnum.EC_P256);
+        account.setDnsPropagationChecker(null);
+        account.createAccount("renewal@example.com");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void renewsDueCertificatesInBoundedBatches() throws Exception {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            StoredCertificate certificate = issue("host" + i + ".example.com", Duration.ofDays(90));
+            server.suggestRenewal(new BigInteger(certificate.getSerial(), 16), now.minus(Duration.ofHours(1)), now);
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        RenewalScheduler scheduler = new RenewalScheduler(account, store, RenewalPolicy.builder().batchSize(2).build()) {
+            @Override
+            protected StoredCertificate renew(StoredCertificate certificate) throws Exception {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return super.renew(certificate);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+        try {
+            scheduler.start();
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (scheduler.getRenewedCount() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(5, scheduler.getRenewedCount());
+            assertEquals(0, scheduler.getFailedCount());
+            assertTrue(maxRunning.get() <= 2);
+            assertEquals(10, store.size());
+            assertEquals(5, scheduler.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(2, store.findByHost("host" + i + ".example.com").size());
+            }
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void schedulesInsideSuggestedWindow() throws Exception {
+        StoredCertificate certificate = issue("window.example.com", Duration.ofDays(90));
+        try (RenewalScheduler scheduler = new RenewalScheduler(account, store, RenewalPolicy.defaults())) {
+            scheduler.start();
+            Instant renewAt = awaitRenewAt(scheduler, certificate.getId());
+            long lifetime = certificate.getNotAfter() - certificate.getNotBefore();
+            assertTrue(renewAt.toEpochMilli() >= certificate.getNotBefore() + lifetime * 2 / 3);
+            assertTrue(renewAt.toEpochMilli() < certificate.getNotBefore() + lifetime * 3 / 4);
+            assertEquals(0, scheduler.getRenewedCount());
+        }
+    }
+
+    @Test
+    public void fallsBackToJitteredDefaultWithoutRenewalInfo() throws Exception {
+        // A certificate the CA does not know, as after moving to another CA
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        MockCertificateAuthority otherCa = new MockCertificateAuthority();
+        String pem = MockCertificateAuthority.toPem(otherCa.issue(keyPair.getPublic(), Collections.singletonList("other.example.com"), Duration.ofDays(90)))
+                + MockCertificateAuthority.toPem(otherCa.getCertificate());
+        StoredCertificate certificate = store.save("other", pem.getBytes(StandardCharsets.US_ASCII), keyPair.getPrivate());
+
+        RenewalPolicy policy = RenewalPolicy.builder().jitter(Duration.ofDays(2)).build();
+        try (RenewalScheduler scheduler = new RenewalScheduler(account, store, policy)) {
+            scheduler.start();
+            Instant renewAt = awaitRenewAt(scheduler, certificate.getId());
+            long lifetime = certificate.getNotAfter() - certificate.getNotBefore();
+            long renewPoint = certificate.getNotBefore() + (long) (lifetime * policy.getRenewAfterFraction());
+            assertTrue(renewAt.toEpochMilli() >= renewPoint - Duration.ofDays(2).toMillis());
+            assertTrue(renewAt.toEpochMilli() < renewPoint);
+        }
+    }
+
+    @Test
+    public void renewalOrderLeavesOutIpAddresses() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        MockCertificateAuthority ca = server.getCa();
+        String pem = MockCertificateAuthority.toPem(ca.issue(keyPair.getPublic(), Arrays.asList("mixed.example.com", "192.0.2.1"), Duration.ofDays(90)))
+                + MockCertificateAuthority.toPem(ca.getCertificate());
+        StoredCertificate certificate = store.save("mixed", pem.getBytes(StandardCharsets.US_ASCII), keyPair.getPrivate());
+        assertEquals(Arrays.asList("mixed.example.com", "192.0.2.1"), certificate.getNames());
+        // A dns identifier for the address would be refused
+        server.rejectIdentifier("192.0.2.1");
+
+        // Calls the protected renewal step directly, the scheduler thread is never started
+        class DirectRenewal extends RenewalScheduler {
+            DirectRenewal() {
+                super(account, store, RenewalPolicy.defaults());
+            }
+
+            StoredCertificate renewNow() throws Exception {
+                return renew(certificate);
+            }
+        }
+        try (DirectRenewal scheduler = new DirectRenewal()) {
+            StoredCertificate renewed = scheduler.renewNow();
+            assertEquals(Collections.singletonList("mixed.example.com"), renewed.getNames());
+        }
+    }
+
+    private StoredCertificate issue(String domain, Duration validity) throws Exception {
+        server.setCertificateValidity(validity);
+        AcmeClient client = account.fork();
+        client.setCertificateStore(store);
+        client.newOrder(Collections.singletonList(domain));
+        client.validateOrder();
+        client.finalizeOrder(client.getFinalizeOrderUrl());
+        client.getOrder();
+        return client.storeCertificate();
+    }
+
+    private static Instant awaitRenewAt(RenewalScheduler scheduler, String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scheduler.getRenewAt(id) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNotNull(scheduler.getRenewAt(id));
+        return scheduler.getRenewAt(id);
+    }
+}
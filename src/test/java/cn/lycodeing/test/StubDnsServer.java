@@ -0,0 +1,77 @@
+package cn.lycodeing.test;
+
+import org.xbill.DNS.*;
+import org.xbill.DNS.Record;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 本地 UDP DNS 桩服务，按名称和类型返回预先配置的记录
+ */
+public class StubDnsServer implements AutoCloseable {
+
+    private final DatagramSocket socket;
+
+    private final Map<String, List<Record>> records = new ConcurrentHashMap<>();
+
+    public StubDnsServer() throws IOException {
+        this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this::serve, "stub-dns");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    public void addRecord(Record record) {
+        records.computeIfAbsent(key(record.getName(), record.getType()), k -> new CopyOnWriteArrayList<>()).add(record);
+    }
+
+    public void clear() {
+        records.clear();
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                Message query = new Message(packet.getData());
+                Record question = query.getQuestion();
+                Message response = new Message(query.getHeader().getID());
+                response.getHeader().setFlag(Flags.QR);
+                response.getHeader().setFlag(Flags.AA);
+                response.addRecord(question, Section.QUESTION);
+                for (Record record : records.getOrDefault(key(question.getName(), question.getType()), new CopyOnWriteArrayList<>())) {
+                    response.addRecord(record, Section.ANSWER);
+                }
+                byte[] wire = response.toWire(512);
+                socket.send(new DatagramPacket(wire, wire.length, packet.getSocketAddress()));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                // ignore malformed packets
+            }
+        }
+    }
+
+    private static String key(Name name, int type) {
+        return name.toString().toLowerCase() + "/" + type;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,239 @@
+package cn.lycodeing.test.mock;
+
+import cn.lycodeing.AcmeClient;
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.poll.PollPolicy;
+import cn.lycodeing.utils.ThreadUtils;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoadTestDriver
+ * <p>
+ * Issues a number of certificates with a shared account against an ACME server (by default an
+ * embedded {@link MockAcmeServer}) and reports certificates per second plus p50/p99 latency of
+ * every step. Run it from the test classpath, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.lycodeing.test.mock.LoadTestDriver -Dexec.args="--orders=500 --concurrency=16 --latency=20"}.
+ * </p>
+ */
+public class LoadTestDriver {
+
+    /**
+     * 签发流程中计时的步骤
+     */
+    public enum Step {
+        NEW_ORDER, VALIDATE, FINALIZE, ORDER, DOWNLOAD
+    }
+
+    private final String directoryUrl;
+    // Number of certificates to issue
+    private int orders = 100;
+    // Number of orders in flight
+    private int concurrency = 8;
+    // Domains per order
+    private int domainsPerOrder = 1;
+    private KeyTypeEnum accountKeyType = KeyTypeEnum.EC_P256;
+    private KeyTypeEnum domainKeyType = KeyTypeEnum.EC_P256;
+    private PollPolicy pollPolicy = PollPolicy.builder().initialDelay(Duration.ofMillis(5)).build();
+
+    public LoadTestDriver(String directoryUrl) {
+        this.directoryUrl = directoryUrl;
+    }
+
+    public LoadTestDriver orders(int orders) {
+        this.orders = orders;
+        return this;
+    }
+
+    public LoadTestDriver concurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    public LoadTestDriver domainsPerOrder(int domainsPerOrder) {
+        this.domainsPerOrder = domainsPerOrder;
+        return this;
+    }
+
+    public LoadTestDriver accountKeyType(KeyTypeEnum accountKeyType) {
+        this.accountKeyType = accountKeyType;
+        return this;
+    }
+
+    public LoadTestDriver domainKeyType(KeyTypeEnum domainKeyType) {
+        this.domainKeyType = domainKeyType;
+        return this;
+    }
+
+    public LoadTestDriver pollPolicy(PollPolicy pollPolicy) {
+        this.pollPolicy = pollPolicy;
+        return this;
+    }
+
+    /**
+     * 注册账户并执行全部订单
+     */
+    public Report run() throws Exception {
+        AcmeClient account = new AcmeClient(directoryUrl);
+        account.setAccountKeyType(accountKeyType);
+        account.setDomainKeyType(domainKeyType);
+        account.setDnsPropagationChecker(null);
+        account.setPollPolicy(pollPolicy);
+        account.createAccount("load@example.com");
+
+        Path outputDir = Files.createTempDirectory("acme-load");
+        Report report = new Report();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, ThreadUtils.daemonThreadFactory("acme-load"));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                int id = i;
+                futures.add(workers.submit(() -> issue(account, id, outputDir, report)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+            report.elapsedNanos = System.nanoTime() - start;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(outputDir)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(outputDir);
+        }
+        return report;
+    }
+
+    private void issue(AcmeClient account, int id, Path outputDir, Report report) {
+        AcmeClient client = account.fork();
+        List<String> domains = new ArrayList<>(domainsPerOrder);
+        for (int i = 0; i < domainsPerOrder; i++) {
+            domains.add("host" + id + "-" + i + ".example.com");
+        }
+        try {
+            long t = System.nanoTime();
+            client.newOrder(domains);
+            t = report.record(Step.NEW_ORDER, t);
+            client.validateOrder();
+            t = report.record(Step.VALIDATE, t);
+            client.finalizeOrder(client.getFinalizeOrderUrl());
+            t = report.record(Step.FINALIZE, t);
+            client.getOrder();
+            t = report.record(Step.ORDER, t);
+            client.getCertificate(outputDir.resolve(id + ".pem").toString(), outputDir.resolve(id + ".key").toString());
+            report.record(Step.DOWNLOAD, t);
+            report.completed.incrementAndGet();
+        } catch (Exception e) {
+            report.failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    public static class Report {
+        private final Map<Step, Queue<Long>> latencies = new EnumMap<>(Step.class);
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile long elapsedNanos;
+
+        Report() {
+            for (Step step : Step.values()) {
+                latencies.put(step, new ConcurrentLinkedQueue<>());
+            }
+        }
+
+        private long record(Step step, long startNanos) {
+            long now = System.nanoTime();
+            latencies.get(step).add(now - startNanos);
+            return now;
+        }
+
+        public int getCompleted() {
+            return completed.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public double getCertificatesPerSecond() {
+            return elapsedNanos == 0 ? 0 : completed.get() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 获取某个步骤的延迟分位数，单位毫秒
+         *
+         * @param percentile 0 到 100
+         */
+        public double percentile(Step step, double percentile) {
+            long[] values = latencies.get(step).stream().mapToLong(Long::longValue).sorted().toArray();
+            if (values.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * values.length) - 1;
+            return values[Math.max(0, Math.min(index, values.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("completed=%d failed=%d elapsed=%.1fs throughput=%.1f certs/s%n",
+                    completed.get(), failed.get(), elapsedNanos / 1e9, getCertificatesPerSecond()));
+            builder.append(String.format("%-10s %10s %10s%n", "step", "p50 (ms)", "p99 (ms)"));
+            for (Step step : Step.values()) {
+                builder.append(String.format("%-10s %10.1f %10.1f%n", step, percentile(step, 50), percentile(step, 99)));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * 参数：--orders= --concurrency= --domains= --latency=(ms) --bad-nonce-rate= --rate-limit-rate= --invalid-rate=
+     * --directory=（指定时不启动内置服务器）
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        MockAcmeServer server = null;
+        String directoryUrl = options.get("directory");
+        if (directoryUrl == null) {
+            server = new MockAcmeServer();
+            server.setLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "0"))));
+            server.setErrorRate(MockError.BAD_NONCE, Double.parseDouble(options.getOrDefault("bad-nonce-rate", "0")));
+            server.setErrorRate(MockError.RATE_LIMITED, Double.parseDouble(options.getOrDefault("rate-limit-rate", "0")));
+            server.setInvalidChallengeRate(Double.parseDouble(options.getOrDefault("invalid-rate", "0")));
+            directoryUrl = server.getDirectoryUrl();
+        }
+        try {
+            Report report = new LoadTestDriver(directoryUrl)
+                    .orders(Integer.parseInt(options.getOrDefault("orders", "100")))
+                    .concurrency(Integer.parseInt(options.getOrDefault("concurrency", "8")))
+                    .domainsPerOrder(Integer.parseInt(options.getOrDefault("domains", "1")))
+                    .run();
+            System.out.print(report);
+            if (server != null) {
+                System.out.printf("server requests=%d injected errors=%d%n", server.getRequestCount(), server.getInjectedErrorCount());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,870 @@
+package cn.lycodeing.test.mock;
+
+import cn.lycodeing.utils.AcmeUtils;
+import cn.lycodeing.utils.ThreadUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.pkcs.Attribute;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.cert.X509Certificate;
+import java.security.spec.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MockAcmeServer
+ * <p>
+ * In-process RFC 8555 stand-in CA for offline tests and benchmarks. It serves the directory,
+ * nonces, accounts, orders, authorizations, challenges, finalize and certificate download.
+ * Every signed request is checked for a valid nonce, matching url and a valid signature.
+ * Challenges become valid as soon as they are triggered.
+ * </p>
+ * <p>
+ * For load and failure testing every request can be delayed by a fixed latency, signed requests
+ * can be answered with injected errors (by rate or for the next n requests), triggered
+ * challenges can turn invalid at a given rate, and automatic validation can be switched off so
+ * that challenges stay processing until {@link #validatePendingChallenges()} is called.
+ * </p>
+ * <p>
+ * With {@link #setHttp01Port(int)} set, triggered http-01 challenges are validated for real: the
+ * key authorization is fetched from {@code http://127.0.0.1:<port>/.well-known/acme-challenge/<token>}
+ * by a number of parallel "vantage points", and the challenge becomes valid only if all of them
+ * see the expected value.
+ * </p>
+ */
+public class MockAcmeServer implements AutoCloseable {
+
+    private static final String PROBLEM_PREFIX = "urn:ietf:params:acme:error:";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String baseUrl;
+    private final MockCertificateAuthority ca = new MockCertificateAuthority();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final Set<String> nonces = ConcurrentHashMap.newKeySet();
+    private final Map<String, PublicKey> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Order> orders = new ConcurrentHashMap<>();
+    private final Map<String, Authorization> authorizations = new ConcurrentHashMap<>();
+    // Valid authorizations by account key and identifier, reused by later orders like real CAs do
+    private final Map<String, Authorization> validAuthorizations = new ConcurrentHashMap<>();
+    private final AtomicLong authorizationFetchCount = new AtomicLong();
+
+    // Validity of issued leaf certificates
+    private volatile Duration certificateValidity = Duration.ofDays(90);
+    // Lifetime of valid authorizations
+    private volatile Duration authorizationValidity = Duration.ofDays(30);
+    // Delay added to every request
+    private volatile Duration latency = Duration.ZERO;
+    // Whether triggered challenges become valid immediately
+    private volatile boolean autoValidate = true;
+    // Port http-01 challenges are fetched from, 0 skips the fetch
+    private volatile int http01Port;
+    // Number of parallel fetches per http-01 validation
+    private volatile int http01VantagePoints = 1;
+    // Probability that a triggered challenge becomes invalid
+    private volatile double invalidChallengeRate;
+    // Suggested renewal windows overriding the default one, by serial number
+    private final Map<BigInteger, Instant[]> renewalWindows = new ConcurrentHashMap<>();
+    // Retry-After seconds sent with renewal info
+    private volatile int renewalInfoRetryAfterSeconds = 21600;
+    // Retry-After seconds sent with injected rateLimited errors
+    private volatile int retryAfterSeconds = 1;
+    // Probability of each injected error per signed request
+    private final Map<MockError, Double> errorRates = new ConcurrentHashMap<>();
+    // Number of upcoming signed requests answered with each error
+    private final Map<MockError, AtomicInteger> pendingErrors = new ConcurrentHashMap<>();
+    // Number of upcoming signed requests to a resource, by path prefix such as /finalize/, answered with an error
+    private final Map<String, Map.Entry<MockError, AtomicInteger>> pendingResourceErrors = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong newNonceCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+    // Identifiers refused by newOrder with rejectedIdentifier
+    private final Set<String> rejectedIdentifiers = ConcurrentHashMap.newKeySet();
+    // Orders created whose certificate has not been downloaded yet, and the highest number seen
+    private final AtomicInteger activeOrders = new AtomicInteger();
+    private final AtomicInteger maxActiveOrders = new AtomicInteger();
+
+    public MockAcmeServer() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        this.executor = Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("mock-acme"));
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getDirectoryUrl() {
+        return baseUrl + "/directory";
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public MockCertificateAuthority getCa() {
+        return ca;
+    }
+
+    public void setCertificateValidity(Duration certificateValidity) {
+        this.certificateValidity = certificateValidity;
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    public void setAuthorizationValidity(Duration authorizationValidity) {
+        this.authorizationValidity = authorizationValidity;
+    }
+
+    /**
+     * 授权被获取的次数
+     */
+    public long getAuthorizationFetchCount() {
+        return authorizationFetchCount.get();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setAutoValidate(boolean autoValidate) {
+        this.autoValidate = autoValidate;
+    }
+
+    /**
+     * 设置 http-01 验证请求的端口，设置后触发的 http-01 挑战会真正发起 HTTP 请求验证
+     */
+    public void setHttp01Port(int http01Port) {
+        this.http01Port = http01Port;
+    }
+
+    public void setHttp01VantagePoints(int http01VantagePoints) {
+        this.http01VantagePoints = http01VantagePoints;
+    }
+
+    public void setInvalidChallengeRate(double invalidChallengeRate) {
+        this.invalidChallengeRate = invalidChallengeRate;
+    }
+
+    /**
+     * 指定证书的建议续期窗口，未指定的证书使用有效期 2/3 到 3/4 之间的窗口
+     */
+    public void suggestRenewal(BigInteger serial, Instant start, Instant end) {
+        renewalWindows.put(serial, new Instant[]{start, end});
+    }
+
+    public void setRenewalInfoRetryAfterSeconds(int renewalInfoRetryAfterSeconds) {
+        this.renewalInfoRetryAfterSeconds = renewalInfoRetryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 设置签名请求返回指定错误的概率
+     */
+    public void setErrorRate(MockError error, double rate) {
+        errorRates.put(error, rate);
+    }
+
+    /**
+     * 接下来的 count 个签名请求返回指定错误
+     */
+    public void injectError(MockError error, int count) {
+        pendingErrors.computeIfAbsent(error, e -> new AtomicInteger()).addAndGet(count);
+    }
+
+    /**
+     * 接下来的 count 个发往指定资源（路径前缀，如 /finalize/）的签名请求返回指定错误
+     */
+    public void injectError(MockError error, String resource, int count) {
+        pendingResourceErrors.put(resource, new AbstractMap.SimpleImmutableEntry<>(error, new AtomicInteger(count)));
+    }
+
+    /**
+     * 将所有处理中的挑战标记为有效，用于关闭自动验证的场景
+     *
+     * @return 被标记为有效的挑战数量
+     */
+    public int validatePendingChallenges() {
+        int validated = 0;
+        for (Authorization authorization : authorizations.values()) {
+            if ("processing".equals(authorization.challengeStatus)) {
+                markValid(authorization);
+                validated++;
+            }
+        }
+        return validated;
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * newNonce 被请求的次数
+     */
+    public long getNewNonceCount() {
+        return newNonceCount.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    /**
+     * 包含该标识符的新订单返回 rejectedIdentifier
+     */
+    public void rejectIdentifier(String identifier) {
+        rejectedIdentifiers.add(identifier);
+    }
+
+    /**
+     * 同时处于进行中（已创建、证书未下载）的订单数的最大值
+     */
+    public int getMaxActiveOrders() {
+        return maxActiveOrders.get();
+    }
+
+    // ========================== Routing ==========================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            long delay = latency.toMillis();
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/directory")) {
+                directory(exchange);
+            } else if (path.equals("/new-nonce")) {
+                newNonceCount.incrementAndGet();
+                respond(exchange, "HEAD".equals(method) ? 200 : 204, null, null);
+            } else if (path.equals("/new-account")) {
+                newAccount(exchange);
+            } else if (path.equals("/new-order")) {
+                newOrder(exchange);
+            } else if (path.startsWith("/authz/")) {
+                authorization(exchange, id(path));
+            } else if (path.startsWith("/chall/")) {
+                challenge(exchange, id(path));
+            } else if (path.startsWith("/finalize/")) {
+                finalizeOrder(exchange, id(path));
+            } else if (path.startsWith("/order/")) {
+                order(exchange, id(path));
+            } else if (path.startsWith("/cert/")) {
+                certificate(exchange, id(path));
+            } else if (path.startsWith("/renewal-info/")) {
+                renewalInfo(exchange, id(path));
+            } else {
+                throw new Problem(404, "malformed", "Unknown resource " + path);
+            }
+        } catch (Problem problem) {
+            if (problem.type == null) {
+                respondHtml(exchange, problem.status, problem.getMessage());
+                return;
+            }
+            JsonObject body = new JsonObject();
+            body.addProperty("type", PROBLEM_PREFIX + problem.type);
+            body.addProperty("detail", problem.getMessage());
+            body.addProperty("status", problem.status);
+            if (problem.retryAfter >= 0) {
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(problem.retryAfter));
+            }
+            respond(exchange, problem.status, body, null);
+        } catch (Exception e) {
+            JsonObject body = new JsonObject();
+            body.addProperty("type", PROBLEM_PREFIX + "serverInternal");
+            body.addProperty("detail", String.valueOf(e));
+            respond(exchange, 500, body, null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String id(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    // ========================== Resources ==========================
+
+    private void directory(HttpExchange exchange) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("newNonce", baseUrl + "/new-nonce");
+        body.addProperty("newAccount", baseUrl + "/new-account");
+        body.addProperty("newOrder", baseUrl + "/new-order");
+        body.addProperty("renewalInfo", baseUrl + "/renewal-info");
+        respond(exchange, 200, body, null);
+    }
+
+    private void newAccount(HttpExchange exchange) throws Exception {
+        SignedRequest request = verify(exchange, true);
+        JsonObject body = new JsonObject();
+        body.addProperty("status", "valid");
+        for (Map.Entry<String, PublicKey> account : accounts.entrySet()) {
+            if (account.getValue().equals(request.key)) {
+                respond(exchange, 200, body, account.getKey());
+                return;
+            }
+        }
+        if (request.payload != null && request.payload.has("onlyReturnExisting")
+                && request.payload.get("onlyReturnExisting").getAsBoolean()) {
+            throw new Problem(400, "accountDoesNotExist", "No account for this key");
+        }
+        String kid = baseUrl + "/acct/" + ids.incrementAndGet();
+        accounts.put(kid, request.key);
+        respond(exchange, 201, body, kid);
+    }
+
+    private void newOrder(HttpExchange exchange) throws Exception {
+        SignedRequest request = verify(exchange, false);
+        for (JsonElement identifier : request.payload.getAsJsonArray("identifiers")) {
+            String value = identifier.getAsJsonObject().get("value").getAsString();
+            if (rejectedIdentifiers.contains(value)) {
+                throw new Problem(400, "rejectedIdentifier", "Policy forbids issuing for " + value);
+            }
+        }
+        Order order = new Order(String.valueOf(ids.incrementAndGet()));
+        String account = Base64.getEncoder().encodeToString(request.key.getEncoded());
+        for (JsonElement identifier : request.payload.getAsJsonArray("identifiers")) {
+            String value = identifier.getAsJsonObject().get("value").getAsString();
+            Authorization authorization = validAuthorizations.get(account + " " + value);
+            if (authorization == null || authorization.expires.isBefore(Instant.now())) {
+                authorization = new Authorization(String.valueOf(ids.incrementAndGet()), value.replace("*.", ""));
+                authorization.wildcard = value.startsWith("*.");
+                authorization.account = account;
+                authorization.order = order;
+                authorizations.put(authorization.id, authorization);
+            }
+            order.identifiers.add(value);
+            order.authorizations.add(authorization);
+        }
+        if (order.authorizations.stream().allMatch(a -> "valid".equals(a.status))) {
+            order.status = "ready";
+        }
+        orders.put(order.id, order);
+        maxActiveOrders.accumulateAndGet(activeOrders.incrementAndGet(), Math::max);
+        respond(exchange, 201, order.toJson(), baseUrl + "/order/" + order.id);
+    }
+
+    private void authorization(HttpExchange exchange, String id) throws Exception {
+        readOptionalSignedRequest(exchange);
+        authorizationFetchCount.incrementAndGet();
+        respond(exchange, 200, find(authorizations, id).toJson(), null);
+    }
+
+    private void challenge(HttpExchange exchange, String id) throws Exception {
+        SignedRequest request = verify(exchange, false);
+        String authorizationId = id.substring(0, id.indexOf('-'));
+        Authorization authorization = find(authorizations, authorizationId);
+        String type = id.substring(id.indexOf('-') + 1);
+        if (request.payload != null) {
+            if ("http".equals(type) && http01Port > 0) {
+                onHttp01Triggered(authorization, request.key);
+            } else {
+                onChallengeTriggered(authorization);
+            }
+        }
+        respond(exchange, 200, authorization.challengeJson(type), null);
+    }
+
+    /**
+     * 标记为处理中，异步从多个"验证点"并行获取 key authorization
+     */
+    private void onHttp01Triggered(Authorization authorization, PublicKey accountKey) throws Exception {
+        synchronized (authorization) {
+            if (!"pending".equals(authorization.challengeStatus)) {
+                return;
+            }
+            authorization.challengeStatus = "processing";
+        }
+        String expected = authorization.token + "." + AcmeUtils.generateThumbprint(AcmeUtils.publicKeyToJwk(accountKey));
+        String url = "http://127.0.0.1:" + http01Port + "/.well-known/acme-challenge/" + authorization.token;
+        List<Future<Boolean>> fetches = new ArrayList<>();
+        for (int i = 0; i < http01VantagePoints; i++) {
+            fetches.add(executor.submit(() -> expected.equals(fetch(url))));
+        }
+        executor.execute(() -> {
+            boolean valid = true;
+            for (Future<Boolean> fetch : fetches) {
+                try {
+                    valid &= fetch.get();
+                } catch (Exception e) {
+                    valid = false;
+                }
+            }
+            if (valid) {
+                markValid(authorization);
+            } else {
+                authorization.challengeStatus = "invalid";
+                authorization.status = "invalid";
+                authorization.order.status = "invalid";
+            }
+        });
+    }
+
+    private static String fetch(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try {
+            if (connection.getResponseCode() != 200) {
+                return null;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 挑战被触发时按配置标记为有效、无效或处理中
+     */
+    protected void onChallengeTriggered(Authorization authorization) {
+        if (!"pending".equals(authorization.challengeStatus)) {
+            return;
+        }
+        if (invalidChallengeRate > 0 && ThreadLocalRandom.current().nextDouble() < invalidChallengeRate) {
+            authorization.challengeStatus = "invalid";
+            authorization.status = "invalid";
+            authorization.order.status = "invalid";
+        } else if (autoValidate) {
+            markValid(authorization);
+        } else {
+            authorization.challengeStatus = "processing";
+        }
+    }
+
+    private void markValid(Authorization authorization) {
+        authorization.expires = Instant.now().plus(authorizationValidity);
+        authorization.challengeStatus = "valid";
+        authorization.status = "valid";
+        validAuthorizations.put(authorization.account + " " + (authorization.wildcard ? "*." : "") + authorization.identifier, authorization);
+        Order order = authorization.order;
+        synchronized (order) {
+            if ("pending".equals(order.status) && order.authorizations.stream().allMatch(a -> "valid".equals(a.status))) {
+                order.status = "ready";
+            }
+        }
+    }
+
+    private void finalizeOrder(HttpExchange exchange, String id) throws Exception {
+        SignedRequest request = verify(exchange, false);
+        Order order = find(orders, id);
+        if (!"ready".equals(order.status)) {
+            throw new Problem(403, "orderNotReady", "Order " + id + " is " + order.status);
+        }
+        byte[] der = Base64.getUrlDecoder().decode(request.payload.get("csr").getAsString());
+        JcaPKCS10CertificationRequest csr = new JcaPKCS10CertificationRequest(der);
+        Set<String> requested = csrDnsNames(csr);
+        if (!requested.equals(new HashSet<>(order.identifiers))) {
+            throw new Problem(400, "badCSR", "CSR names " + requested + " do not match order identifiers " + order.identifiers);
+        }
+        PublicKey publicKey = csr.getPublicKey();
+        order.certificate = MockCertificateAuthority.toPem(ca.issue(publicKey, order.identifiers, certificateValidity))
+                + MockCertificateAuthority.toPem(ca.getCertificate());
+        order.status = "valid";
+        respond(exchange, 200, order.toJson(), baseUrl + "/order/" + order.id);
+    }
+
+    private static Set<String> csrDnsNames(JcaPKCS10CertificationRequest csr) {
+        Set<String> names = new HashSet<>();
+        for (Attribute attribute : csr.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest)) {
+            GeneralNames generalNames = GeneralNames.fromExtensions(
+                    Extensions.getInstance(attribute.getAttrValues().getObjectAt(0)), Extension.subjectAlternativeName);
+            if (generalNames != null) {
+                for (GeneralName name : generalNames.getNames()) {
+                    if (name.getTagNo() == GeneralName.dNSName) {
+                        names.add(name.getName().toString());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private void order(HttpExchange exchange, String id) throws Exception {
+        readOptionalSignedRequest(exchange);
+        respond(exchange, 200, find(orders, id).toJson(), null);
+    }
+
+    private void certificate(HttpExchange exchange, String id) throws Exception {
+        readOptionalSignedRequest(exchange);
+        Order order = find(orders, id);
+        if (order.certificate == null) {
+            throw new Problem(404, "malformed", "Certificate not issued yet");
+        }
+        synchronized (order) {
+            if (!order.downloaded) {
+                order.downloaded = true;
+                activeOrders.decrementAndGet();
+            }
+        }
+        byte[] pem = order.certificate.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().add("Content-Type", "application/pem-certificate-chain");
+        addNonce(exchange);
+        exchange.sendResponseHeaders(200, pem.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(pem);
+        }
+    }
+
+    private void renewalInfo(HttpExchange exchange, String certId) throws Exception {
+        int dot = certId.indexOf('.');
+        if (dot < 0) {
+            throw new Problem(400, "malformed", "Invalid certID " + certId);
+        }
+        byte[] keyIdentifier = Base64.getUrlDecoder().decode(certId.substring(0, dot));
+        BigInteger serial = new BigInteger(Base64.getUrlDecoder().decode(certId.substring(dot + 1)));
+        X509Certificate certificate = ca.getIssued(serial);
+        if (certificate == null || !Arrays.equals(keyIdentifier, ca.getKeyIdentifier())) {
+            throw new Problem(404, "malformed", "Unknown certificate " + certId);
+        }
+        Instant[] window = renewalWindows.get(serial);
+        if (window == null) {
+            long notBefore = certificate.getNotBefore().getTime();
+            long lifetime = certificate.getNotAfter().getTime() - notBefore;
+            window = new Instant[]{Instant.ofEpochMilli(notBefore + lifetime * 2 / 3), Instant.ofEpochMilli(notBefore + lifetime * 3 / 4)};
+        }
+        JsonObject suggestedWindow = new JsonObject();
+        suggestedWindow.addProperty("start", window[0].toString());
+        suggestedWindow.addProperty("end", window[1].toString());
+        JsonObject body = new JsonObject();
+        body.add("suggestedWindow", suggestedWindow);
+        exchange.getResponseHeaders().add("Retry-After", String.valueOf(renewalInfoRetryAfterSeconds));
+        respond(exchange, 200, body, null);
+    }
+
+    private static <T> T find(Map<String, T> resources, String id) throws Problem {
+        T resource = resources.get(id);
+        if (resource == null) {
+            throw new Problem(404, "malformed", "No such resource " + id);
+        }
+        return resource;
+    }
+
+    // ========================== JWS ==========================
+
+    /**
+     * GET 请求直接放行，POST 请求按 POST-as-GET 校验
+     */
+    private void readOptionalSignedRequest(HttpExchange exchange) throws Exception {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            verify(exchange, false);
+        }
+    }
+
+    private SignedRequest verify(HttpExchange exchange, boolean useJwk) throws Exception {
+        JsonObject jws = JsonParser.parseString(new String(readBody(exchange), StandardCharsets.UTF_8)).getAsJsonObject();
+        String protectedHeader = jws.get("protected").getAsString();
+        String payload = jws.get("payload").getAsString();
+        JsonObject header = JsonParser.parseString(decode(protectedHeader)).getAsJsonObject();
+        injectError(exchange.getRequestURI().getPath());
+
+        if (!header.has("nonce") || !nonces.remove(header.get("nonce").getAsString())) {
+            throw new Problem(400, "badNonce", "Unknown or reused nonce");
+        }
+        String url = baseUrl + exchange.getRequestURI().getPath();
+        if (!url.equals(header.get("url").getAsString())) {
+            throw new Problem(401, "unauthorized", "url header does not match " + url);
+        }
+        PublicKey key;
+        if (useJwk) {
+            key = toPublicKey(header.getAsJsonObject("jwk"));
+        } else {
+            key = header.has("kid") ? accounts.get(header.get("kid").getAsString()) : null;
+            if (key == null) {
+                throw new Problem(400, "accountDoesNotExist", "Unknown kid");
+            }
+        }
+        Signature signature = Signature.getInstance(jcaAlgorithm(header.get("alg").getAsString()));
+        signature.initVerify(key);
+        signature.update((protectedHeader + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        if (!signature.verify(Base64.getUrlDecoder().decode(jws.get("signature").getAsString()))) {
+            throw new Problem(400, "malformed", "JWS signature is invalid");
+        }
+        JsonObject payloadJson = payload.isEmpty() ? null : JsonParser.parseString(decode(payload)).getAsJsonObject();
+        return new SignedRequest(key, payloadJson);
+    }
+
+    /**
+     * 按配置向签名请求注入错误
+     */
+    private void injectError(String path) throws Problem {
+        for (Map.Entry<String, Map.Entry<MockError, AtomicInteger>> pending : pendingResourceErrors.entrySet()) {
+            if (path.startsWith(pending.getKey()) && pending.getValue().getValue().getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw injected(pending.getValue().getKey());
+            }
+        }
+        for (MockError error : MockError.values()) {
+            AtomicInteger pending = pendingErrors.get(error);
+            boolean inject = pending != null && pending.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+            if (!inject) {
+                double rate = errorRates.getOrDefault(error, 0.0);
+                inject = rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+            }
+            if (inject) {
+                throw injected(error);
+            }
+        }
+    }
+
+    private Problem injected(MockError error) {
+        injectedErrorCount.incrementAndGet();
+        return new Problem(error.status, error.type, "Injected " + error,
+                error == MockError.RATE_LIMITED ? retryAfterSeconds : -1);
+    }
+
+    private static String jcaAlgorithm(String alg) throws Problem {
+        switch (alg) {
+            case "RS256":
+                return "SHA256withRSA";
+            case "ES256":
+                return "SHA256withECDSAinP1363Format";
+            case "ES384":
+                return "SHA384withECDSAinP1363Format";
+            case "ES512":
+                return "SHA512withECDSAinP1363Format";
+            default:
+                throw new Problem(400, "badSignatureAlgorithm", "Unsupported alg " + alg);
+        }
+    }
+
+    private static PublicKey toPublicKey(JsonObject jwk) throws Exception {
+        if ("EC".equals(jwk.get("kty").getAsString())) {
+            String crv = jwk.get("crv").getAsString();
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("P-256".equals(crv) ? "secp256r1" : "P-384".equals(crv) ? "secp384r1" : "secp521r1"));
+            ECPoint point = new ECPoint(unsigned(jwk, "x"), unsigned(jwk, "y"));
+            return KeyFactory.getInstance("EC")
+                    .generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        }
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(unsigned(jwk, "n"), unsigned(jwk, "e")));
+    }
+
+    private static BigInteger unsigned(JsonObject jwk, String member) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get(member).getAsString()));
+    }
+
+    private static String decode(String base64Url) {
+        return new String(Base64.getUrlDecoder().decode(base64Url), StandardCharsets.UTF_8);
+    }
+
+    // ========================== HTTP ==========================
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void addNonce(HttpExchange exchange) {
+        String nonce = Long.toHexString(ids.incrementAndGet()) + UUID.randomUUID().toString().replace("-", "");
+        nonces.add(nonce);
+        exchange.getResponseHeaders().add("Replay-Nonce", nonce);
+        exchange.getResponseHeaders().add("Cache-Control", "no-store");
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonObject body, String location) throws IOException {
+        addNonce(exchange);
+        if (location != null) {
+            exchange.getResponseHeaders().add("Location", location);
+        }
+        if (body == null) {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                // The JDK server drops the connection after a HEAD response, tell the client not to reuse it
+                exchange.getResponseHeaders().add("Connection", "close");
+            }
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", status >= 400 ? "application/problem+json" : "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void respondHtml(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = ("<html><body><h1>" + status + " " + message + "</h1></body></html>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ========================== Model ==========================
+
+    private static class SignedRequest {
+        final PublicKey key;
+        final JsonObject payload;
+
+        SignedRequest(PublicKey key, JsonObject payload) {
+            this.key = key;
+            this.payload = payload;
+        }
+    }
+
+    static class Problem extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String type;
+        final long retryAfter;
+
+        Problem(int status, String type, String detail) {
+            this(status, type, detail, -1);
+        }
+
+        Problem(int status, String type, String detail, long retryAfter) {
+            super(detail);
+            this.status = status;
+            this.type = type;
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    class Order {
+        final String id;
+        final List<String> identifiers = new ArrayList<>();
+        final List<Authorization> authorizations = new ArrayList<>();
+        volatile String status = "pending";
+        volatile String certificate;
+        boolean downloaded;
+        final Instant expires = Instant.now().plus(Duration.ofDays(7));
+
+        Order(String id) {
+            this.id = id;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("status", status);
+            json.addProperty("expires", expires.toString());
+            JsonArray identifierArray = new JsonArray();
+            for (String identifier : identifiers) {
+                JsonObject value = new JsonObject();
+                value.addProperty("type", "dns");
+                value.addProperty("value", identifier);
+                identifierArray.add(value);
+            }
+            json.add("identifiers", identifierArray);
+            JsonArray authorizationArray = new JsonArray();
+            authorizations.forEach(authorization -> authorizationArray.add(baseUrl + "/authz/" + authorization.id));
+            json.add("authorizations", authorizationArray);
+            json.addProperty("finalize", baseUrl + "/finalize/" + id);
+            if (certificate != null) {
+                json.addProperty("certificate", baseUrl + "/cert/" + id);
+            }
+            return json;
+        }
+    }
+
+    class Authorization {
+        final String id;
+        final String identifier;
+        final String token = UUID.randomUUID().toString().replace("-", "");
+        volatile String status = "pending";
+        volatile String challengeStatus = "pending";
+        boolean wildcard;
+        volatile Instant expires = Instant.now().plus(Duration.ofDays(7));
+        // Base64 of the account key
+        String account;
+        Order order;
+
+        Authorization(String id, String identifier) {
+            this.id = id;
+            this.identifier = identifier;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("status", status);
+            json.addProperty("expires", expires.toString());
+            JsonObject identifierJson = new JsonObject();
+            identifierJson.addProperty("type", "dns");
+            identifierJson.addProperty("value", identifier);
+            json.add("identifier", identifierJson);
+            if (wildcard) {
+                json.addProperty("wildcard", true);
+            }
+            JsonArray challenges = new JsonArray();
+            // Wildcard names can only be validated with dns-01
+            if (!wildcard) {
+                challenges.add(challengeJson("http"));
+            }
+            challenges.add(challengeJson("dns"));
+            json.add("challenges", challenges);
+            return json;
+        }
+
+        JsonObject challengeJson(String type) {
+            JsonObject json = new JsonObject();
+            json.addProperty("type", type + "-01");
+            json.addProperty("url", baseUrl + "/chall/" + id + "-" + type);
+            json.addProperty("status", challengeStatus);
+            json.addProperty("token", token);
+            if ("invalid".equals(challengeStatus)) {
+                JsonObject error = new JsonObject();
+                error.addProperty("type", PROBLEM_PREFIX + "incorrectResponse");
+                error.addProperty("detail", "Injected invalid challenge");
+                json.add("error", error);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package cn.lycodeing.test.mock;
+
+import cn.lycodeing.enums.KeyTypeEnum;
+import cn.lycodeing.utils.CryptoUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.*;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟 CA，用自签名的 EC 根证书签发叶子证书
+ */
+public class MockCertificateAuthority {
+
+    private static final Base64.Encoder PEM_ENCODER = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII));
+
+    private final KeyPair keyPair;
+
+    private final X509Certificate certificate;
+
+    private final AtomicLong serials = new AtomicLong(System.currentTimeMillis());
+
+    private final Map<BigInteger, X509Certificate> issued = new ConcurrentHashMap<>();
+
+    // OCSP responder written to the AIA extension of issued certificates, null leaves it out
+    private volatile String ocspUrl;
+
+    public MockCertificateAuthority() throws Exception {
+        this.keyPair = CryptoUtils.generateKeyPair(KeyTypeEnum.EC_P256);
+        X500Name name = new X500Name("CN=Mock ACME Root");
+        Date notBefore = new Date(System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+        Date notAfter = new Date(System.currentTimeMillis() + Duration.ofDays(3650).toMillis());
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, notBefore, notAfter,
+                name, keyPair.getPublic());
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        builder.addExtension(Extension.subjectKeyIdentifier, false, extensionUtils.createSubjectKeyIdentifier(keyPair.getPublic()));
+        this.certificate = sign(builder);
+    }
+
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+
+    public KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    public void setOcspUrl(String ocspUrl) {
+        this.ocspUrl = ocspUrl;
+    }
+
+    /**
+     * 签发包含所有域名的叶子证书
+     */
+    public X509Certificate issue(PublicKey publicKey, List<String> domains, Duration validity) throws Exception {
+        long now = System.currentTimeMillis();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(certificate,
+                BigInteger.valueOf(serials.incrementAndGet()), new Date(now - 60_000), new Date(now + validity.toMillis()),
+                new X500Name("CN=" + domains.get(0)), publicKey);
+        // IP literals become iPAddress names
+        GeneralName[] names = domains.stream()
+                .map(domain -> new GeneralName(domain.matches("[0-9.]+") || domain.contains(":") ? GeneralName.iPAddress : GeneralName.dNSName, domain))
+                .toArray(GeneralName[]::new);
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(names));
+        builder.addExtension(Extension.authorityKeyIdentifier, false, extensionUtils.createAuthorityKeyIdentifier(certificate));
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        String ocsp = ocspUrl;
+        if (ocsp != null) {
+            builder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+                    new AccessDescription(AccessDescription.id_ad_ocsp, new GeneralName(GeneralName.uniformResourceIdentifier, ocsp))));
+        }
+        X509Certificate leaf = sign(builder);
+        issued.put(leaf.getSerialNumber(), leaf);
+        return leaf;
+    }
+
+    /**
+     * 按序列号查找签发过的证书
+     */
+    public X509Certificate getIssued(BigInteger serial) {
+        return issued.get(serial);
+    }
+
+    /**
+     * CA 证书的 Subject Key Identifier，即叶子证书 AKI 中的 keyIdentifier
+     */
+    public byte[] getKeyIdentifier() throws Exception {
+        return new JcaX509ExtensionUtils().createSubjectKeyIdentifier(keyPair.getPublic()).getKeyIdentifier();
+    }
+
+    private X509Certificate sign(X509v3CertificateBuilder builder) throws Exception {
+        return new JcaX509CertificateConverter()
+                .getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())));
+    }
+
+    public static String toPem(X509Certificate certificate) throws Exception {
+        return "-----BEGIN CERTIFICATE-----\n" + PEM_ENCODER.encodeToString(certificate.getEncoded()) + "\n-----END CERTIFICATE-----\n";
+    }
+}
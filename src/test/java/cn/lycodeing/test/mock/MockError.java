@@ -0,0 +1,20 @@
+package cn.lycodeing.test.mock;
+
+/**
+ * Errors {@link MockAcmeServer} can inject into signed requests.
+ */
+public enum MockError {
+    BAD_NONCE(400, "badNonce"),
+    RATE_LIMITED(429, "rateLimited"),
+    SERVER_INTERNAL(500, "serverInternal"),
+    // An HTML error page from a proxy in front of the CA, not a problem document
+    BAD_GATEWAY(502, null);
+
+    final int status;
+    final String type;
+
+    MockError(int status, String type) {
+        this.status = status;
+        this.type = type;
+    }
+}
@@ -0,0 +1,128 @@
+package cn.lycodeing.test.mock;
+
+import cn.lycodeing.utils.ThreadUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟 OCSP 响应者，用 CA 私钥签名 POST /ocsp 请求中所有证书的状态
+ */
+public class MockOcspResponder implements AutoCloseable {
+
+    private final MockCertificateAuthority ca;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String url;
+
+    // Key signing the responses, another key than the CA's forges them
+    private volatile PrivateKey signingKey;
+    // Time between thisUpdate and nextUpdate of every response
+    private volatile Duration validity = Duration.ofDays(7);
+    private final Set<BigInteger> revoked = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public MockOcspResponder(MockCertificateAuthority ca) throws IOException {
+        this.ca = ca;
+        this.signingKey = ca.getKeyPair().getPrivate();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.url = "http://127.0.0.1:" + server.getAddress().getPort() + "/ocsp";
+        this.executor = Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("mock-ocsp"));
+        server.createContext("/ocsp", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setSigningKey(PrivateKey signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public void setValidity(Duration validity) {
+        this.validity = validity;
+    }
+
+    public void revoke(BigInteger serial) {
+        revoked.add(serial);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            requestCount.incrementAndGet();
+            byte[] request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = in.readAllBytes();
+            }
+            byte[] response = respond(new OCSPReq(request));
+            exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] respond(OCSPReq request) throws Exception {
+        Date thisUpdate = new Date();
+        Date nextUpdate = new Date(thisUpdate.getTime() + validity.toMillis());
+        JcaBasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(ca.getKeyPair().getPublic(),
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1));
+        for (Req single : request.getRequestList()) {
+            CertificateID id = single.getCertID();
+            CertificateStatus status = revoked.contains(id.getSerialNumber())
+                    ? new RevokedStatus(thisUpdate, CRLReason.keyCompromise)
+                    : CertificateStatus.GOOD;
+            builder.addResponse(id, status, thisUpdate, nextUpdate, null);
+        }
+        BasicOCSPResp basic = builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(signingKey),
+                new X509CertificateHolder[0], thisUpdate);
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}